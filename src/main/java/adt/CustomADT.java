@@ -8,9 +8,18 @@ package adt;
  *
  * @author Whrl
  */
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 @SuppressWarnings("unchecked")
 public class CustomADT<T> implements ADTInterface<T> {
     // ===== Inner minimal functional/iterable types =====
@@ -22,9 +31,52 @@ public class CustomADT<T> implements ADTInterface<T> {
     private int size;
     private static final int INITIAL_CAPACITY = 10;
 
+    // Optional id -> slot index (null unless a key extractor was supplied)
+    private final Function<? super T, String> keyExtractor;
+    private final IdIndex idIndex;
+
+    // Sort engine for sort()/sortComparable(); keeps its merge buffer between calls
+    private TimSort<T> sorter;
+    // Merge buffer reused by mergeSort()/parallelMergeSort()
+    private T[] aux;
+
+    /** Suggested parallelMergeSort threshold: below this, fork-join overhead outweighs the gain. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 13;
+
     public CustomADT() {
         data = (T[]) new Object[INITIAL_CAPACITY];
         size = 0;
+        keyExtractor = null;
+        idIndex = null;
+    }
+
+    /**
+     * Create a list that keeps an id -> index hash alongside the array, so
+     * findEntry/indexOf are O(1) and need no reflection. Keys should be unique;
+     * if an element's id is changed in place, call reindex().
+     */
+    public CustomADT(Function<? super T, String> keyExtractor) {
+        data = (T[]) new Object[INITIAL_CAPACITY];
+        size = 0;
+        this.keyExtractor = keyExtractor;
+        idIndex = keyExtractor == null ? null : new IdIndex();
+    }
+
+    /** A new list holding source's elements in the same order (the elements themselves are shared). */
+    public static <T> CustomADT<T> copyOf(ADTInterface<? extends T> source) {
+        CustomADT<T> out = new CustomADT<>();
+        if (source == null) return out;
+        out.ensureCapacity(source.size());
+        for (int i = 0; i < source.size(); i++) out.add(source.get(i));
+        return out;
+    }
+
+    /** Grow the backing array up front when the final size is known or estimated. */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity <= data.length) return;
+        T[] newData = (T[]) new Object[minCapacity];
+        for (int i = 0; i < size; i++) newData[i] = data[i];
+        data = newData;
     }
 
     private void ensureCapacity() {
@@ -41,6 +93,7 @@ public class CustomADT<T> implements ADTInterface<T> {
     public void add(T element) {
         ensureCapacity();
         data[size++] = element;
+        if (idIndex != null) indexPut(size - 1);
     }
 
     @Override
@@ -54,6 +107,10 @@ public class CustomADT<T> implements ADTInterface<T> {
         }
         data[index] = element;
         size++;
+        if (idIndex != null) {
+            // Everything from index onwards moved one slot to the right
+            for (int i = index; i < size; i++) indexPut(i);
+        }
     }
 
     @Override
@@ -70,7 +127,9 @@ public class CustomADT<T> implements ADTInterface<T> {
             throw new IndexOutOfBoundsException("Index: " + index);
         }
         T old = data[index];
+        if (idIndex != null) indexRemove(old, index);
         data[index] = element;
+        if (idIndex != null) indexPut(index);
         return old;
     }
 
@@ -82,6 +141,7 @@ public class CustomADT<T> implements ADTInterface<T> {
         T temp = data[i];
         data[i] = data[j];
         data[j] = temp;
+        if (idIndex != null) { indexPut(i); indexPut(j); }
     }
 
     @Override
@@ -90,11 +150,15 @@ public class CustomADT<T> implements ADTInterface<T> {
             throw new IndexOutOfBoundsException("Index: " + index);
         }
         T removed = data[index];
+        if (idIndex != null) indexRemove(removed, index);
         for (int i = index; i < size - 1; i++) {
             data[i] = data[i + 1];
         }
         data[size - 1] = null;
         size--;
+        if (idIndex != null) {
+            for (int i = index; i < size; i++) indexPut(i);
+        }
         return removed;
     }
 
@@ -125,6 +189,7 @@ public class CustomADT<T> implements ADTInterface<T> {
             data[i] = null;
         }
         size = 0;
+        if (idIndex != null) idIndex.clear();
     }
 
     // ===== QUEUE-STYLE HELPERS (generic) =====
@@ -141,9 +206,13 @@ public class CustomADT<T> implements ADTInterface<T> {
     
     // Type-specific helpers like findNextIndex/reposition should be implemented outside this ADT.
     
-    /** Find an entry by its ID (requires T to have getId()) */
+    /** Find an entry by its ID (uses the id index if present, else requires T to have getId()) */
     @Override
     public T findEntry(String id) {
+        if (idIndex != null) {
+            int idx = indexOf(id);
+            return idx >= 0 ? data[idx] : null;
+        }
         for (int i = 0; i < size; i++) {
             String curId = getIdValue(data[i]);
             if (curId != null && curId.equals(id)) return data[i];
@@ -151,9 +220,24 @@ public class CustomADT<T> implements ADTInterface<T> {
         return null;
     }
     
-    /** Find the index of an entry by its ID (requires T to have getId()) */
+    /** Find the index of an entry by its ID (uses the id index if present, else requires T to have getId()) */
     @Override
     public int indexOf(String id) {
+        if (idIndex != null) {
+            if (id == null) return -1;
+            if (idIndex.duplicates) {
+                // Shared ids make "first occurrence" order-dependent; scan without reflection
+                for (int i = 0; i < size; i++) if (id.equals(keyOf(data[i]))) return i;
+                return -1;
+            }
+            int idx = idIndex.get(id);
+            if (idx < 0) return -1;
+            if (idx < size && id.equals(keyOf(data[idx]))) return idx;
+            // An id was changed in place; rebuild once and retry
+            reindex();
+            idx = idIndex.get(id);
+            return idx;
+        }
         for (int i = 0; i < size; i++) {
             String curId = getIdValue(data[i]);
             if (curId != null && curId.equals(id)) return i;
@@ -175,27 +259,115 @@ public class CustomADT<T> implements ADTInterface<T> {
         }
     }
 
-    // Try to extract a priority int via reflection (generic)
+    /** Rebuild the id index from scratch (no-op when the list was created without a key extractor). */
+    public void reindex() {
+        if (idIndex == null) return;
+        idIndex.clear();
+        for (int i = 0; i < size; i++) indexPut(i);
+    }
+
+    private String keyOf(T element) {
+        return element == null ? null : keyExtractor.apply(element);
+    }
+
+    private void indexPut(int slot) {
+        String key = keyOf(data[slot]);
+        if (key == null) return;
+        int cur = idIndex.get(key);
+        // Keep the first occurrence so indexOf matches a left-to-right scan
+        if (cur >= 0 && cur != slot && cur < size && key.equals(keyOf(data[cur]))) {
+            idIndex.duplicates = true;
+            if (cur < slot) return;
+        }
+        idIndex.put(key, slot);
+    }
+
+    private void indexRemove(T element, int slot) {
+        String key = keyOf(element);
+        if (key != null && idIndex.get(key) == slot) idIndex.remove(key);
+    }
+
+    // Extract a priority int via getPriority() if the element type has one (generic)
     private int getPriorityValue(Object o) {
         if (o == null) return Integer.MIN_VALUE;
-        // Use reflection to find getPriority()
-        try {
-            java.lang.reflect.Method m = o.getClass().getMethod("getPriority");
-            Object v = m.invoke(o);
-            if (v instanceof Integer i) return i;
-        } catch (Exception ignored) {}
-        return Integer.MIN_VALUE;
+        return PRIORITY_ACCESSORS.get(o.getClass()).applyAsInt(o);
     }
 
-    // Try to extract an id String via reflection (generic)
+    // Extract an id String via getId() if the element type has one (generic)
     private String getIdValue(Object o) {
         if (o == null) return null;
+        return ID_ACCESSORS.get(o.getClass()).apply(o);
+    }
+
+    // ===== Per-class accessor cache =====
+    // getPriority()/getId() are looked up once per element class and bound through
+    // LambdaMetafactory, so the hot path is a plain interface call the JIT can inline.
+    private static final ToIntFunction<Object> NO_PRIORITY = o -> Integer.MIN_VALUE;
+    private static final Function<Object, String> NO_ID = o -> null;
+
+    private static final ClassValue<ToIntFunction<Object>> PRIORITY_ACCESSORS = new ClassValue<ToIntFunction<Object>>() {
+        @Override
+        protected ToIntFunction<Object> computeValue(Class<?> type) {
+            Method m = findGetter(type, "getPriority");
+            if (m == null) return NO_PRIORITY;
+            if (m.getReturnType() == int.class) {
+                try {
+                    MethodHandles.Lookup lookup = MethodHandles.lookup();
+                    CallSite site = LambdaMetafactory.metafactory(lookup, "applyAsInt",
+                            MethodType.methodType(ToIntFunction.class),
+                            MethodType.methodType(int.class, Object.class),
+                            lookup.unreflect(m),
+                            MethodType.methodType(int.class, type));
+                    return (ToIntFunction<Object>) site.getTarget().invokeExact();
+                } catch (Throwable ignored) {
+                    // Not linkable from here (e.g. non-public class); use the reflective path below
+                }
+            }
+            return o -> {
+                try {
+                    Object v = m.invoke(o);
+                    if (v instanceof Integer i) return i;
+                } catch (Exception ignored) {}
+                return Integer.MIN_VALUE;
+            };
+        }
+    };
+
+    private static final ClassValue<Function<Object, String>> ID_ACCESSORS = new ClassValue<Function<Object, String>>() {
+        @Override
+        protected Function<Object, String> computeValue(Class<?> type) {
+            Method m = findGetter(type, "getId");
+            if (m == null) return NO_ID;
+            if (m.getReturnType() == String.class) {
+                try {
+                    MethodHandles.Lookup lookup = MethodHandles.lookup();
+                    CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                            MethodType.methodType(Function.class),
+                            MethodType.methodType(Object.class, Object.class),
+                            lookup.unreflect(m),
+                            MethodType.methodType(String.class, type));
+                    return (Function<Object, String>) site.getTarget().invokeExact();
+                } catch (Throwable ignored) {
+                    // Not linkable from here; use the reflective path below
+                }
+            }
+            return o -> {
+                try {
+                    Object v = m.invoke(o);
+                    if (v instanceof String str) return str;
+                } catch (Exception ignored) {}
+                return null;
+            };
+        }
+    };
+
+    private static Method findGetter(Class<?> type, String name) {
         try {
-            java.lang.reflect.Method m = o.getClass().getMethod("getId");
-            Object v = m.invoke(o);
-            if (v instanceof String s) return s;
-        } catch (Exception ignored) {}
-        return null;
+            Method m = type.getMethod(name);
+            return m.getParameterCount() == 0 ? m : null;
+        } catch (NoSuchMethodException | SecurityException ex) {
+            return null;
+        }
     }
 
     // ===== Generic searching/sorting/iteration exposed by CustomADT =====
@@ -217,21 +389,14 @@ public class CustomADT<T> implements ADTInterface<T> {
         return -1;
     }
 
-    /** In-place stable insertion sort using provided comparator. */
+    /** In-place stable sort (TimSort: O(n log n), near-linear on presorted input) using provided comparator. */
     public void sort(ADTComparator<T> comparator) {
         if (comparator == null || size <= 1) return;
-        for (int i = 1; i < size; i++) {
-            T key = data[i];
-            int j = i - 1;
-            while (j >= 0 && comparator.compare(data[j], key) > 0) {
-                data[j + 1] = data[j];
-                j--;
-            }
-            data[j + 1] = key;
-        }
+        sorter().sort(data, 0, size, comparator);
+        reindex();
     }
 
-    /** In-place stable insertion sort using java.util.Comparator. */
+    /** In-place stable sort using java.util.Comparator. */
     public void sort(Comparator<? super T> comparator) {
         if (comparator == null) return;
         sort(new ADTComparator<T>() { 
@@ -269,6 +434,7 @@ public class CustomADT<T> implements ADTInterface<T> {
             }
             if (!swapped) break;
         }
+        reindex();
     }
 
     /** Bubble sort using java.util.Comparator. */
@@ -289,6 +455,7 @@ public class CustomADT<T> implements ADTInterface<T> {
                 T tmp = data[i]; data[i] = data[minIdx]; data[minIdx] = tmp;
             }
         }
+        reindex();
     }
 
     /** Selection sort using java.util.Comparator. */
@@ -300,8 +467,69 @@ public class CustomADT<T> implements ADTInterface<T> {
     /** Stable merge sort using provided comparator (O(n log n)). */
     public void mergeSort(ADTComparator<T> comparator) {
         if (comparator == null || size <= 1) return;
-        T[] aux = (T[]) new Object[size];
+        T[] aux = auxBuffer();
         mergeSortInternal(0, size - 1, comparator, aux);
+        releaseAux();
+        reindex();
+    }
+
+    /**
+     * Stable merge sort that splits ranges larger than {@code threshold} across the
+     * common ForkJoinPool; smaller ranges (and lists no larger than the threshold)
+     * are sorted sequentially. Produces the same order as mergeSort.
+     */
+    public void parallelMergeSort(Comparator<? super T> comparator, int threshold) {
+        if (comparator == null) return;
+        parallelMergeSortInternal(new ADTComparator<T>() { public int compare(T a, T b){ return comparator.compare(a,b); } }, threshold);
+    }
+
+    private void parallelMergeSortInternal(ADTComparator<T> comparator, int threshold) {
+        if (size <= 1) return;
+        int cutoff = Math.max(threshold, 1);
+        T[] aux = auxBuffer();
+        if (size <= cutoff) {
+            mergeSortInternal(0, size - 1, comparator, aux);
+        } else {
+            ForkJoinPool.commonPool().invoke(new MergeSortTask(0, size - 1, comparator, aux, cutoff));
+        }
+        releaseAux();
+        reindex();
+    }
+
+    // Fork-join task: sort both halves in parallel, then merge them (halves touch disjoint ranges of data/aux)
+    private final class MergeSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int left, right, cutoff;
+        private final ADTComparator<T> cmp;
+        private final T[] aux;
+
+        MergeSortTask(int left, int right, ADTComparator<T> cmp, T[] aux, int cutoff) {
+            this.left = left; this.right = right; this.cmp = cmp; this.aux = aux; this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if (right - left + 1 <= cutoff) {
+                mergeSortInternal(left, right, cmp, aux);
+                return;
+            }
+            int mid = (left + right) >>> 1;
+            invokeAll(new MergeSortTask(left, mid, cmp, aux, cutoff),
+                      new MergeSortTask(mid + 1, right, cmp, aux, cutoff));
+            if (cmp.compare(data[mid], data[mid + 1]) <= 0) return;
+            merge(left, mid, right, cmp, aux);
+        }
+    }
+
+    // Merge buffer shared by mergeSort/parallelMergeSort; grown only when the list outgrows it
+    private T[] auxBuffer() {
+        if (aux == null || aux.length < size) aux = (T[]) new Object[data.length];
+        return aux;
+    }
+
+    // Keep the buffer for the next sort but don't hold on to the elements
+    private void releaseAux() {
+        for (int i = 0; i < size && i < aux.length; i++) aux[i] = null;
     }
 
     /** Stable merge sort using java.util.Comparator. */
@@ -331,19 +559,20 @@ public class CustomADT<T> implements ADTInterface<T> {
         while (j <= right) data[idx++] = aux[j++];
     }
 
-    /** Sort using natural ordering when elements implement Comparable. */
+    /** Sort using natural ordering when elements implement Comparable (stable, via the same TimSort engine). */
     @SuppressWarnings({"rawtypes"})
     public void sortComparable() {
         if (size <= 1) return;
-        for (int i = 1; i < size; i++) {
-            T key = data[i];
-            int j = i - 1;
-            while (j >= 0 && ((Comparable) data[j]).compareTo(key) > 0) {
-                data[j + 1] = data[j];
-                j--;
-            }
-            data[j + 1] = key;
-        }
+        sorter().sort(data, 0, size, new ADTComparator<T>() {
+            public int compare(T a, T b) { return ((Comparable) a).compareTo(b); }
+        });
+        reindex();
+    }
+
+    // Lazily created so lists that are never sorted don't carry a merge buffer
+    private TimSort<T> sorter() {
+        if (sorter == null) sorter = new TimSort<>();
+        return sorter;
     }
 
     /** Binary search on a sorted array according to the same comparator. Returns index or -insertionPoint-1. */
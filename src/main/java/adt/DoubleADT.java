@@ -0,0 +1,115 @@
+package adt;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of unboxed doubles with the same list surface as CustomADT
+ * (add/get/set/swap/remove/size/isEmpty/clear).
+ * Used for cost totals and other running sums without boxing.
+ * Removal by value is removeValue so it can't be confused with remove(int index).
+ */
+public class DoubleADT {
+    private double[] data;
+    private int size;
+    private static final int INITIAL_CAPACITY = 10;
+
+    public DoubleADT() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public DoubleADT(int initialCapacity) {
+        data = new double[Math.max(1, initialCapacity)];
+        size = 0;
+    }
+
+    private void ensureCapacity() {
+        if (size >= data.length) data = Arrays.copyOf(data, data.length * 2);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index);
+    }
+
+    /** Add value to end. */
+    public void add(double value) {
+        ensureCapacity();
+        data[size++] = value;
+    }
+
+    /** Add value at index, shifting later values right. */
+    public void add(int index, double value) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index);
+        ensureCapacity();
+        System.arraycopy(data, index, data, index + 1, size - index);
+        data[index] = value;
+        size++;
+    }
+
+    public double get(int index) {
+        checkIndex(index);
+        return data[index];
+    }
+
+    /** Replace value at index; returns the old value. */
+    public double set(int index, double value) {
+        checkIndex(index);
+        double old = data[index];
+        data[index] = value;
+        return old;
+    }
+
+    /** Add delta to the value at index (counter-style update); returns the new value. */
+    public double addAt(int index, double delta) {
+        checkIndex(index);
+        return data[index] += delta;
+    }
+
+    public void swap(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        double t = data[i]; data[i] = data[j]; data[j] = t;
+    }
+
+    /** Remove value at index; returns it. */
+    public double remove(int index) {
+        checkIndex(index);
+        double removed = data[index];
+        System.arraycopy(data, index + 1, data, index, size - index - 1);
+        size--;
+        return removed;
+    }
+
+    /** Remove first occurrence of value. */
+    public boolean removeValue(double value) {
+        int idx = indexOfValue(value);
+        if (idx < 0) return false;
+        remove(idx);
+        return true;
+    }
+
+    /** Index of first occurrence of value; -1 if none. */
+    public int indexOfValue(double value) {
+        for (int i = 0; i < size; i++) if (Double.compare(data[i], value) == 0) return i;
+        return -1;
+    }
+
+    public boolean contains(double value) { return indexOfValue(value) >= 0; }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() { size = 0; }
+
+    /** Sort ascending in place. */
+    public void sort() { Arrays.sort(data, 0, size); }
+
+    public double sum() {
+        double total = 0;
+        for (int i = 0; i < size; i++) total += data[i];
+        return total;
+    }
+
+    /** Copy of the current values (0..size-1). */
+    public double[] toArray() { return Arrays.copyOf(data, size); }
+}
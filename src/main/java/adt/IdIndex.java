@@ -0,0 +1,65 @@
+package adt;
+
+/**
+ * Open-addressing (linear probing) String -> int map.
+ * Used by CustomADT as its id index and by IndexedPriorityQueue as its handle map.
+ */
+final class IdIndex {
+    private String[] keys = new String[16];
+    private int[] vals = new int[16];
+    private int count;
+    boolean duplicates;
+
+    private static int hash(String k) {
+        int h = k.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    int get(String key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(key)) return vals[i];
+        }
+        return -1;
+    }
+
+    void put(String key, int val) {
+        if ((count + 1) * 2 > keys.length) resize(keys.length * 2);
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != null) {
+            if (keys[i].equals(key)) { vals[i] = val; return; }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key; vals[i] = val; count++;
+    }
+
+    void remove(String key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != null && !keys[i].equals(key)) i = (i + 1) & mask;
+        if (keys[i] == null) return;
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j]; vals[gap] = vals[j]; gap = j;
+            }
+        }
+        keys[gap] = null;
+        count--;
+    }
+
+    void clear() {
+        for (int i = 0; i < keys.length; i++) keys[i] = null;
+        count = 0;
+        duplicates = false;
+    }
+
+    private void resize(int newCap) {
+        String[] oldKeys = keys; int[] oldVals = vals;
+        keys = new String[newCap]; vals = new int[newCap]; count = 0;
+        for (int i = 0; i < oldKeys.length; i++) if (oldKeys[i] != null) put(oldKeys[i], oldVals[i]);
+    }
+}
@@ -0,0 +1,259 @@
+package adt;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * Indexed d-ary heap priority queue.
+ *
+ * Elements are ordered by the supplied comparator ("smaller" is served first) and
+ * ties are broken by an enqueue sequence number, so equal elements stay FIFO.
+ * A handle map (id -> heap slot) lets callers change an element's priority or
+ * remove it by id in O(log n) instead of shifting a whole array.
+ */
+@SuppressWarnings("unchecked")
+public class IndexedPriorityQueue<T> {
+    private static final int DEFAULT_ARITY = 4;
+    private static final int INITIAL_CAPACITY = 10;
+
+    private final int arity;
+    private final Comparator<? super T> order;
+    private final Function<? super T, String> keyExtractor;
+
+    private T[] heap;
+    private String[] keys;   // id of the element in each slot
+    private long[] seq;      // enqueue sequence of the element in each slot
+    private int size;
+    private long nextSeq;
+    private final IdIndex handles = new IdIndex();
+
+    public IndexedPriorityQueue(Comparator<? super T> order, Function<? super T, String> keyExtractor) {
+        this(DEFAULT_ARITY, order, keyExtractor);
+    }
+
+    public IndexedPriorityQueue(int arity, Comparator<? super T> order, Function<? super T, String> keyExtractor) {
+        if (arity < 2) throw new IllegalArgumentException("Arity must be at least 2");
+        if (order == null || keyExtractor == null) throw new IllegalArgumentException("Order and key extractor are required");
+        this.arity = arity;
+        this.order = order;
+        this.keyExtractor = keyExtractor;
+        heap = (T[]) new Object[INITIAL_CAPACITY];
+        keys = new String[INITIAL_CAPACITY];
+        seq = new long[INITIAL_CAPACITY];
+    }
+
+    // ===== Core operations =====
+
+    /** Insert an element; its id must be non-null and not already queued. */
+    public void offer(T element) {
+        String key = element == null ? null : keyExtractor.apply(element);
+        if (key == null) throw new IllegalArgumentException("Element must have an id");
+        if (handles.get(key) >= 0) throw new IllegalArgumentException("Duplicate id: " + key);
+        ensureCapacity();
+        heap[size] = element;
+        keys[size] = key;
+        seq[size] = nextSeq++;
+        handles.put(key, size);
+        siftUp(size++);
+    }
+
+    /** Element that would be served next, or null when empty. */
+    public T peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /** Remove and return the element served next, or null when empty. */
+    public T poll() {
+        return size == 0 ? null : removeAt(0);
+    }
+
+    public T get(String id) {
+        int slot = id == null ? -1 : handles.get(id);
+        return slot >= 0 ? heap[slot] : null;
+    }
+
+    public boolean contains(String id) {
+        return id != null && handles.get(id) >= 0;
+    }
+
+    /** Remove an arbitrary element by id in O(log n). Returns it, or null if absent. */
+    public T remove(String id) {
+        int slot = id == null ? -1 : handles.get(id);
+        return slot >= 0 ? removeAt(slot) : null;
+    }
+
+    /**
+     * Restore heap order after the element's ordering fields (e.g. priority) were
+     * changed in place. Keeps its original sequence number. Returns false if absent.
+     */
+    public boolean update(String id) {
+        int slot = id == null ? -1 : handles.get(id);
+        if (slot < 0) return false;
+        resift(slot);
+        return true;
+    }
+
+    /**
+     * Like update(), but gives the element a fresh sequence number so it sorts
+     * behind everything it currently ties with.
+     */
+    public boolean requeue(String id) {
+        int slot = id == null ? -1 : handles.get(id);
+        if (slot < 0) return false;
+        seq[slot] = nextSeq++;
+        resift(slot);
+        return true;
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) { heap[i] = null; keys[i] = null; }
+        size = 0;
+        handles.clear();
+    }
+
+    // ===== Iteration / snapshots =====
+
+    /** Iterate in heap (storage) order: cheap, but not in priority order. */
+    public CustomADT.ADTIterator<T> iterator() {
+        return new CustomADT.ADTIterator<T>() {
+            private int idx = 0;
+            public boolean hasNext() { return idx < size; }
+            public T next() { return heap[idx++]; }
+        };
+    }
+
+    /**
+     * Iterate in priority order without modifying the heap. Visiting the first k
+     * elements costs O(k log k), so scans that stop early stay cheap.
+     * The iterator must not be used after the queue is modified.
+     */
+    public CustomADT.ADTIterator<T> orderedIterator() {
+        return new CustomADT.ADTIterator<T>() {
+            // Binary min-heap of heap slots still to visit
+            private int[] frontier = new int[Math.max(4, arity + 1)];
+            private int count = size > 0 ? 1 : 0;
+
+            public boolean hasNext() { return count > 0; }
+
+            public T next() {
+                int slot = frontier[0];
+                frontier[0] = frontier[--count];
+                down(0);
+                int first = arity * slot + 1;
+                for (int c = first; c < first + arity && c < size; c++) push(c);
+                return heap[slot];
+            }
+
+            private void push(int slot) {
+                if (count == frontier.length) {
+                    int[] bigger = new int[frontier.length * 2];
+                    for (int i = 0; i < count; i++) bigger[i] = frontier[i];
+                    frontier = bigger;
+                }
+                int i = count++;
+                frontier[i] = slot;
+                while (i > 0) {
+                    int p = (i - 1) >>> 1;
+                    if (!less(frontier[i], frontier[p])) break;
+                    int t = frontier[i]; frontier[i] = frontier[p]; frontier[p] = t;
+                    i = p;
+                }
+            }
+
+            private void down(int i) {
+                while (true) {
+                    int l = 2 * i + 1, best = i;
+                    if (l < count && less(frontier[l], frontier[best])) best = l;
+                    if (l + 1 < count && less(frontier[l + 1], frontier[best])) best = l + 1;
+                    if (best == i) return;
+                    int t = frontier[i]; frontier[i] = frontier[best]; frontier[best] = t;
+                    i = best;
+                }
+            }
+        };
+    }
+
+    /** Copy of the elements in priority order, as a CustomADT keyed by the same id. */
+    public CustomADT<T> toSortedADT() {
+        CustomADT<T> out = new CustomADT<>(keyExtractor);
+        CustomADT.ADTIterator<T> it = orderedIterator();
+        while (it.hasNext()) out.add(it.next());
+        return out;
+    }
+
+    // ===== Heap internals =====
+
+    private boolean less(int i, int j) {
+        int cmp = order.compare(heap[i], heap[j]);
+        if (cmp != 0) return cmp < 0;
+        return seq[i] < seq[j];
+    }
+
+    private T removeAt(int slot) {
+        T removed = heap[slot];
+        handles.remove(keys[slot]);
+        int last = --size;
+        if (slot != last) {
+            move(last, slot);
+            heap[last] = null; keys[last] = null;
+            resift(slot);
+        } else {
+            heap[last] = null; keys[last] = null;
+        }
+        return removed;
+    }
+
+    private void resift(int slot) {
+        if (slot > 0 && less(slot, (slot - 1) / arity)) siftUp(slot);
+        else siftDown(slot);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / arity;
+            if (!less(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int first = arity * i + 1;
+            if (first >= size) return;
+            int best = first;
+            int end = Math.min(first + arity, size);
+            for (int c = first + 1; c < end; c++) if (less(c, best)) best = c;
+            if (!less(best, i)) return;
+            swap(i, best);
+            i = best;
+        }
+    }
+
+    private void swap(int i, int j) {
+        T e = heap[i]; heap[i] = heap[j]; heap[j] = e;
+        String k = keys[i]; keys[i] = keys[j]; keys[j] = k;
+        long s = seq[i]; seq[i] = seq[j]; seq[j] = s;
+        handles.put(keys[i], i);
+        handles.put(keys[j], j);
+    }
+
+    private void move(int from, int to) {
+        heap[to] = heap[from]; keys[to] = keys[from]; seq[to] = seq[from];
+        handles.put(keys[to], to);
+    }
+
+    private void ensureCapacity() {
+        if (size < heap.length) return;
+        int cap = heap.length * 2;
+        T[] h = (T[]) new Object[cap];
+        String[] k = new String[cap];
+        long[] s = new long[cap];
+        for (int i = 0; i < size; i++) { h[i] = heap[i]; k[i] = keys[i]; s[i] = seq[i]; }
+        heap = h; keys = k; seq = s;
+    }
+}
@@ -0,0 +1,119 @@
+package adt;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from unboxed long keys to unboxed int values, e.g. a
+ * packed (doctor, day) key to a bitmap of that day's hours.
+ *
+ * Entries live in dense arrays in insertion order and a linear-probing table maps
+ * hashes to entry positions, like ObjectIntMap. Lookups and updates of existing
+ * keys allocate nothing.
+ */
+public class LongIntMap {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    private int[] table; // entry position + 1; 0 means empty
+    private int mask;
+
+    public LongIntMap() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int cap = Math.max(INITIAL_CAPACITY, expectedSize);
+        keys = new long[cap];
+        values = new int[cap];
+        int tableSize = Integer.highestOneBit(Math.max(2, cap * 2 - 1)) << 1;
+        table = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; // spread packed keys that differ only in low bits
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** Position of key in insertion order, or -1 if absent. */
+    public int indexOf(long key) {
+        for (int i = hash(key) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int pos = table[i] - 1;
+            if (keys[pos] == key) return pos;
+        }
+        return -1;
+    }
+
+    public boolean containsKey(long key) { return indexOf(key) >= 0; }
+
+    /** Value for key, or 0 if absent. */
+    public int get(long key) { return getOrDefault(key, 0); }
+
+    public int getOrDefault(long key, int defaultValue) {
+        int pos = indexOf(key);
+        return pos >= 0 ? values[pos] : defaultValue;
+    }
+
+    public void put(long key, int value) {
+        int pos = indexOf(key);
+        if (pos >= 0) values[pos] = value;
+        else insert(key, value);
+    }
+
+    /** OR bits into key's value (starting from 0); returns the new value. */
+    public int orInto(long key, int bits) {
+        int pos = indexOf(key);
+        if (pos >= 0) return values[pos] |= bits;
+        insert(key, bits);
+        return bits;
+    }
+
+    // ===== Insertion-order access (allocation-free iteration) =====
+    public long keyAt(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index);
+        return keys[index];
+    }
+
+    public int valueAt(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index);
+        return values[index];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    private void insert(long key, int value) {
+        if (size == keys.length) {
+            int cap = keys.length * 2;
+            keys = Arrays.copyOf(keys, cap);
+            values = Arrays.copyOf(values, cap);
+        }
+        // Keep the probe table at most half full
+        if ((size + 1) * 2 > table.length) rehash(table.length * 2);
+        keys[size] = key;
+        values[size] = value;
+        place(hash(key), size);
+        size++;
+    }
+
+    private void place(int h, int pos) {
+        int i = h & mask;
+        while (table[i] != 0) i = (i + 1) & mask;
+        table[i] = pos + 1;
+    }
+
+    private void rehash(int newTableSize) {
+        table = new int[newTableSize];
+        mask = newTableSize - 1;
+        for (int pos = 0; pos < size; pos++) place(hash(keys[pos]), pos);
+    }
+}
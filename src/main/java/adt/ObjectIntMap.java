@@ -0,0 +1,130 @@
+package adt;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Open-addressing hash map from object keys to unboxed int values, meant for tallies.
+ *
+ * Entries live in dense arrays in insertion order (so reports print keys in the
+ * order they were first seen) and a linear-probing table maps hashes to entry
+ * positions. Incrementing an existing key allocates nothing. A null key is allowed.
+ */
+@SuppressWarnings("unchecked")
+public class ObjectIntMap<K> {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private K[] keys;
+    private int[] values;
+    private int[] hashes;
+    private int size;
+
+    private int[] table; // entry position + 1; 0 means empty
+    private int mask;
+
+    public ObjectIntMap() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ObjectIntMap(int expectedSize) {
+        int cap = Math.max(INITIAL_CAPACITY, expectedSize);
+        keys = (K[]) new Object[cap];
+        values = new int[cap];
+        hashes = new int[cap];
+        int tableSize = Integer.highestOneBit(Math.max(2, cap * 2 - 1)) << 1;
+        table = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    private static int hash(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /** Position of key in insertion order, or -1 if absent. */
+    public int indexOf(K key) {
+        int h = hash(key);
+        for (int i = h & mask; table[i] != 0; i = (i + 1) & mask) {
+            int pos = table[i] - 1;
+            if (hashes[pos] == h && Objects.equals(keys[pos], key)) return pos;
+        }
+        return -1;
+    }
+
+    public boolean containsKey(K key) { return indexOf(key) >= 0; }
+
+    /** Value for key, or 0 if absent. */
+    public int get(K key) { return getOrDefault(key, 0); }
+
+    public int getOrDefault(K key, int defaultValue) {
+        int pos = indexOf(key);
+        return pos >= 0 ? values[pos] : defaultValue;
+    }
+
+    public void put(K key, int value) {
+        int pos = indexOf(key);
+        if (pos >= 0) values[pos] = value;
+        else insert(key, value);
+    }
+
+    /** Add delta to key's value (starting from 0); returns the new value. */
+    public int addTo(K key, int delta) {
+        int pos = indexOf(key);
+        if (pos >= 0) return values[pos] += delta;
+        insert(key, delta);
+        return delta;
+    }
+
+    /** Count one more occurrence of key; returns the new count. */
+    public int increment(K key) { return addTo(key, 1); }
+
+    // ===== Insertion-order access (allocation-free iteration) =====
+    public K keyAt(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index);
+        return keys[index];
+    }
+
+    public int valueAt(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index);
+        return values[index];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    private void insert(K key, int value) {
+        if (size == keys.length) {
+            int cap = keys.length * 2;
+            keys = Arrays.copyOf(keys, cap);
+            values = Arrays.copyOf(values, cap);
+            hashes = Arrays.copyOf(hashes, cap);
+        }
+        // Keep the probe table at most half full
+        if ((size + 1) * 2 > table.length) rehash(table.length * 2);
+        int h = hash(key);
+        keys[size] = key;
+        values[size] = value;
+        hashes[size] = h;
+        place(h, size);
+        size++;
+    }
+
+    private void place(int h, int pos) {
+        int i = h & mask;
+        while (table[i] != 0) i = (i + 1) & mask;
+        table[i] = pos + 1;
+    }
+
+    private void rehash(int newTableSize) {
+        table = new int[newTableSize];
+        mask = newTableSize - 1;
+        for (int pos = 0; pos < size; pos++) place(hashes[pos], pos);
+    }
+}
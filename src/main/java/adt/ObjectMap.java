@@ -0,0 +1,195 @@
+package adt;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Open-addressing hash map from object keys to object values, in insertion order.
+ *
+ * Entries live in dense arrays in insertion order and a linear-probing table maps
+ * hashes to entry positions, like ObjectIntMap. remove() leaves a hole that the
+ * next positional access (keyAt/valueAt) or growth closes up in one pass, so a
+ * run of removals costs O(1) each. A removed key that is put again goes to the
+ * end. Keys are compared with equals(), or by identity for byIdentity() maps; a
+ * null key is allowed.
+ *
+ * Iterate with for (int i = 0; i < map.size(); i++) map.keyAt(i), map.valueAt(i),
+ * and do not remove while iterating.
+ */
+@SuppressWarnings("unchecked")
+public class ObjectMap<K, V> {
+    private static final int INITIAL_CAPACITY = 8;
+    private static final Object GONE = new Object(); // key of a removed entry, until compact()
+
+    private final boolean identity;
+    private Object[] keys;
+    private V[] values;
+    private int[] hashes;
+    private int end;  // entries in use, removed ones included
+    private int size; // live entries
+
+    private int[] table; // entry position + 1; 0 means empty
+    private int mask;
+
+    public ObjectMap() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ObjectMap(int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    private ObjectMap(int expectedSize, boolean identity) {
+        this.identity = identity;
+        int cap = Math.max(INITIAL_CAPACITY, expectedSize);
+        keys = new Object[cap];
+        values = (V[]) new Object[cap];
+        hashes = new int[cap];
+        int tableSize = Integer.highestOneBit(Math.max(2, cap * 2 - 1)) << 1;
+        table = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    /** A map that compares keys with == and System.identityHashCode (e.g. entities whose fields change). */
+    public static <K, V> ObjectMap<K, V> byIdentity() {
+        return new ObjectMap<>(INITIAL_CAPACITY, true);
+    }
+
+    private int hash(Object key) {
+        int h = key == null ? 0 : identity ? System.identityHashCode(key) : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private boolean same(Object stored, Object key) {
+        return stored != GONE && (identity ? stored == key : Objects.equals(stored, key));
+    }
+
+    // Entry position of key (holes included), or -1 if absent
+    private int find(Object key) {
+        int h = hash(key);
+        for (int i = h & mask; table[i] != 0; i = (i + 1) & mask) {
+            int pos = table[i] - 1;
+            if (hashes[pos] == h && same(keys[pos], key)) return pos;
+        }
+        return -1;
+    }
+
+    public boolean containsKey(K key) { return find(key) >= 0; }
+
+    /** Value for key, or null if absent. */
+    public V get(K key) {
+        int pos = find(key);
+        return pos >= 0 ? values[pos] : null;
+    }
+
+    public V getOrDefault(K key, V defaultValue) {
+        int pos = find(key);
+        return pos >= 0 ? values[pos] : defaultValue;
+    }
+
+    /** Set key's value, keeping its place if present; returns the previous value, or null. */
+    public V put(K key, V value) {
+        int pos = find(key);
+        if (pos >= 0) {
+            V old = values[pos];
+            values[pos] = value;
+            return old;
+        }
+        insert(key, value);
+        return null;
+    }
+
+    /** Put only if key is absent; returns the value already there, or null. */
+    public V putIfAbsent(K key, V value) {
+        int pos = find(key);
+        if (pos >= 0) return values[pos];
+        insert(key, value);
+        return null;
+    }
+
+    /** Remove key; returns its value, or null if it was absent. */
+    public V remove(K key) {
+        int pos = find(key);
+        if (pos < 0) return null;
+        V old = values[pos];
+        keys[pos] = GONE;
+        values[pos] = null;
+        size--;
+        return old;
+    }
+
+    // ===== Insertion-order access (allocation-free iteration) =====
+    public K keyAt(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index);
+        if (end != size) compact();
+        return (K) keys[index];
+    }
+
+    public V valueAt(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index);
+        if (end != size) compact();
+        return values[index];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() {
+        Arrays.fill(keys, 0, end, null);
+        Arrays.fill(values, 0, end, null);
+        Arrays.fill(table, 0);
+        end = 0;
+        size = 0;
+    }
+
+    private void insert(K key, V value) {
+        if (end == keys.length) {
+            if (end - size >= keys.length / 4) {
+                compact(); // reuse the holes rather than grow
+            } else {
+                int cap = keys.length * 2;
+                keys = Arrays.copyOf(keys, cap);
+                values = Arrays.copyOf(values, cap);
+                hashes = Arrays.copyOf(hashes, cap);
+            }
+        }
+        // Keep the probe table at most half full
+        if ((end + 1) * 2 > table.length) rehash(table.length * 2);
+        int h = hash(key);
+        keys[end] = key;
+        values[end] = value;
+        hashes[end] = h;
+        place(h, end);
+        end++;
+        size++;
+    }
+
+    // Close the holes left by remove(), keeping insertion order
+    private void compact() {
+        int kept = 0;
+        for (int pos = 0; pos < end; pos++) {
+            if (keys[pos] == GONE) continue;
+            keys[kept] = keys[pos];
+            values[kept] = values[pos];
+            hashes[kept] = hashes[pos];
+            kept++;
+        }
+        Arrays.fill(keys, kept, end, null);
+        Arrays.fill(values, kept, end, null);
+        end = kept;
+        rehash(table.length);
+    }
+
+    private void place(int h, int pos) {
+        int i = h & mask;
+        while (table[i] != 0) i = (i + 1) & mask;
+        table[i] = pos + 1;
+    }
+
+    private void rehash(int newTableSize) {
+        table = new int[newTableSize];
+        mask = newTableSize - 1;
+        for (int pos = 0; pos < end; pos++) if (keys[pos] != GONE) place(hashes[pos], pos);
+    }
+}
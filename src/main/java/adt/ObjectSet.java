@@ -0,0 +1,36 @@
+package adt;
+
+/**
+ * Hash set of objects in insertion order, on top of ObjectMap (same probing,
+ * same hole handling on remove). Iterate with get(i) for i below size().
+ */
+public class ObjectSet<K> {
+    private final ObjectMap<K, Boolean> map;
+
+    public ObjectSet() {
+        map = new ObjectMap<>();
+    }
+
+    public ObjectSet(int expectedSize) {
+        map = new ObjectMap<>(expectedSize);
+    }
+
+    /** Add key; returns false if it was already there (its place is kept). */
+    public boolean add(K key) {
+        return map.putIfAbsent(key, Boolean.TRUE) == null;
+    }
+
+    public boolean contains(K key) { return map.containsKey(key); }
+
+    /** Returns false if key was not there. */
+    public boolean remove(K key) { return map.remove(key) != null; }
+
+    /** The index-th key in insertion order. */
+    public K get(int index) { return map.keyAt(index); }
+
+    public int size() { return map.size(); }
+
+    public boolean isEmpty() { return map.isEmpty(); }
+
+    public void clear() { map.clear(); }
+}
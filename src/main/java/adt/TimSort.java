@@ -0,0 +1,397 @@
+package adt;
+
+/**
+ * Adaptive, stable run-merging sort (TimSort) backing CustomADT.sort.
+ *
+ * Natural ascending/descending runs are detected and extended to a minimum
+ * length with binary insertion sort, then merged with a run stack that keeps
+ * merges balanced. Merges switch to galloping (exponential search) when one
+ * run keeps winning, so presorted or nearly sorted input is close to linear.
+ *
+ * One instance belongs to one CustomADT and keeps its merge buffer between
+ * calls, so repeated sorts of the same list do not reallocate it.
+ */
+@SuppressWarnings("unchecked")
+final class TimSort<T> {
+    private static final int MIN_MERGE = 32;
+    private static final int MIN_GALLOP = 7;
+    private static final int MAX_RUNS = 49; // enough for any int-sized array
+
+    private T[] a;
+    private CustomADT.ADTComparator<? super T> c;
+    private int minGallop = MIN_GALLOP;
+
+    // Merge buffer, reused across sorts
+    private T[] tmp = (T[]) new Object[0];
+    private int tmpUsed;
+
+    private int stackSize;
+    private final int[] runBase = new int[MAX_RUNS];
+    private final int[] runLen = new int[MAX_RUNS];
+
+    /** Sort a[lo, hi) in place. */
+    void sort(T[] a, int lo, int hi, CustomADT.ADTComparator<? super T> c) {
+        int remaining = hi - lo;
+        if (remaining < 2) return;
+
+        // Small arrays: one run plus binary insertion, no merging
+        if (remaining < MIN_MERGE) {
+            int initRunLen = countRunAndMakeAscending(a, lo, hi, c);
+            binarySort(a, lo, hi, lo + initRunLen, c);
+            return;
+        }
+
+        this.a = a;
+        this.c = c;
+        minGallop = MIN_GALLOP;
+        stackSize = 0;
+        try {
+            int minRun = minRunLength(remaining);
+            do {
+                int len = countRunAndMakeAscending(a, lo, hi, c);
+                if (len < minRun) {
+                    int force = remaining <= minRun ? remaining : minRun;
+                    binarySort(a, lo, lo + force, lo + len, c);
+                    len = force;
+                }
+                pushRun(lo, len);
+                mergeCollapse();
+                lo += len;
+                remaining -= len;
+            } while (remaining != 0);
+            mergeForceCollapse();
+        } finally {
+            // Keep the buffer but drop references to the caller's elements
+            for (int i = 0; i < tmpUsed; i++) tmp[i] = null;
+            tmpUsed = 0;
+            this.a = null;
+            this.c = null;
+        }
+    }
+
+    // ===== Runs =====
+
+    private static int minRunLength(int n) {
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= (n & 1);
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    /** Length of the run starting at lo; a strictly descending run is reversed in place. */
+    private static <T> int countRunAndMakeAscending(T[] a, int lo, int hi, CustomADT.ADTComparator<? super T> c) {
+        int runHi = lo + 1;
+        if (runHi == hi) return 1;
+        if (c.compare(a[runHi++], a[lo]) < 0) {
+            while (runHi < hi && c.compare(a[runHi], a[runHi - 1]) < 0) runHi++;
+            reverseRange(a, lo, runHi);
+        } else {
+            while (runHi < hi && c.compare(a[runHi], a[runHi - 1]) >= 0) runHi++;
+        }
+        return runHi - lo;
+    }
+
+    private static <T> void reverseRange(T[] a, int lo, int hi) {
+        hi--;
+        while (lo < hi) {
+            T t = a[lo]; a[lo++] = a[hi]; a[hi--] = t;
+        }
+    }
+
+    /** Binary insertion sort of a[lo, hi) where a[lo, start) is already sorted. */
+    private static <T> void binarySort(T[] a, int lo, int hi, int start, CustomADT.ADTComparator<? super T> c) {
+        if (start == lo) start++;
+        for (; start < hi; start++) {
+            T pivot = a[start];
+            int left = lo, right = start;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                if (c.compare(pivot, a[mid]) < 0) right = mid;
+                else left = mid + 1;
+            }
+            System.arraycopy(a, left, a, left + 1, start - left);
+            a[left] = pivot;
+        }
+    }
+
+    // ===== Run stack =====
+
+    private void pushRun(int base, int len) {
+        runBase[stackSize] = base;
+        runLen[stackSize] = len;
+        stackSize++;
+    }
+
+    /** Merge until the stack invariants hold: len[i-2] > len[i-1] + len[i] and len[i-1] > len[i]. */
+    private void mergeCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if ((n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1])
+                    || (n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1])) {
+                if (runLen[n - 1] < runLen[n + 1]) n--;
+            } else if (runLen[n] > runLen[n + 1]) {
+                break;
+            }
+            mergeAt(n);
+        }
+    }
+
+    private void mergeForceCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] < runLen[n + 1]) n--;
+            mergeAt(n);
+        }
+    }
+
+    /** Merge runs i and i+1 on the stack. */
+    private void mergeAt(int i) {
+        int base1 = runBase[i], len1 = runLen[i];
+        int base2 = runBase[i + 1], len2 = runLen[i + 1];
+
+        runLen[i] = len1 + len2;
+        if (i == stackSize - 3) {
+            runBase[i + 1] = runBase[i + 2];
+            runLen[i + 1] = runLen[i + 2];
+        }
+        stackSize--;
+
+        // Elements of run1 already before run2's head, and of run2 already after run1's tail, stay put
+        int k = gallopRight(a[base2], a, base1, len1, 0, c);
+        base1 += k;
+        len1 -= k;
+        if (len1 == 0) return;
+        len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2, len2 - 1, c);
+        if (len2 == 0) return;
+
+        if (len1 <= len2) mergeLo(base1, len1, base2, len2);
+        else mergeHi(base1, len1, base2, len2);
+    }
+
+    // ===== Galloping search =====
+
+    /** First position in a[base, base+len) where key could be inserted (leftmost among equals). */
+    private static <T> int gallopLeft(T key, T[] a, int base, int len, int hint, CustomADT.ADTComparator<? super T> c) {
+        int lastOfs = 0, ofs = 1;
+        if (c.compare(key, a[base + hint]) > 0) {
+            int maxOfs = len - hint;
+            while (ofs < maxOfs && c.compare(key, a[base + hint + ofs]) > 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) ofs = maxOfs;
+            }
+            if (ofs > maxOfs) ofs = maxOfs;
+            lastOfs += hint;
+            ofs += hint;
+        } else {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && c.compare(key, a[base + hint - ofs]) <= 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) ofs = maxOfs;
+            }
+            if (ofs > maxOfs) ofs = maxOfs;
+            int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        }
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (c.compare(key, a[base + m]) > 0) lastOfs = m + 1;
+            else ofs = m;
+        }
+        return ofs;
+    }
+
+    /** Last position in a[base, base+len) where key could be inserted (rightmost among equals). */
+    private static <T> int gallopRight(T key, T[] a, int base, int len, int hint, CustomADT.ADTComparator<? super T> c) {
+        int lastOfs = 0, ofs = 1;
+        if (c.compare(key, a[base + hint]) < 0) {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && c.compare(key, a[base + hint - ofs]) < 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) ofs = maxOfs;
+            }
+            if (ofs > maxOfs) ofs = maxOfs;
+            int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        } else {
+            int maxOfs = len - hint;
+            while (ofs < maxOfs && c.compare(key, a[base + hint + ofs]) >= 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) ofs = maxOfs;
+            }
+            if (ofs > maxOfs) ofs = maxOfs;
+            lastOfs += hint;
+            ofs += hint;
+        }
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (c.compare(key, a[base + m]) < 0) ofs = m;
+            else lastOfs = m + 1;
+        }
+        return ofs;
+    }
+
+    // ===== Merging =====
+
+    /** Merge adjacent runs where len1 <= len2, copying run1 into the buffer and filling from the left. */
+    private void mergeLo(int base1, int len1, int base2, int len2) {
+        T[] a = this.a;
+        CustomADT.ADTComparator<? super T> c = this.c;
+        T[] tmp = ensureCapacity(len1);
+        System.arraycopy(a, base1, tmp, 0, len1);
+
+        int cursor1 = 0, cursor2 = base2, dest = base1;
+        a[dest++] = a[cursor2++];
+        if (--len2 == 0) {
+            System.arraycopy(tmp, cursor1, a, dest, len1);
+            return;
+        }
+        if (len1 == 1) {
+            System.arraycopy(a, cursor2, a, dest, len2);
+            a[dest + len2] = tmp[cursor1];
+            return;
+        }
+
+        int minGallop = this.minGallop;
+        outer:
+        while (true) {
+            int count1 = 0, count2 = 0;
+            // One-at-a-time until one run wins consistently
+            do {
+                if (c.compare(a[cursor2], tmp[cursor1]) < 0) {
+                    a[dest++] = a[cursor2++];
+                    count2++; count1 = 0;
+                    if (--len2 == 0) break outer;
+                } else {
+                    a[dest++] = tmp[cursor1++];
+                    count1++; count2 = 0;
+                    if (--len1 == 1) break outer;
+                }
+            } while ((count1 | count2) < minGallop);
+
+            // Gallop while it keeps paying off
+            do {
+                count1 = gallopRight(a[cursor2], tmp, cursor1, len1, 0, c);
+                if (count1 != 0) {
+                    System.arraycopy(tmp, cursor1, a, dest, count1);
+                    dest += count1; cursor1 += count1; len1 -= count1;
+                    if (len1 <= 1) break outer;
+                }
+                a[dest++] = a[cursor2++];
+                if (--len2 == 0) break outer;
+
+                count2 = gallopLeft(tmp[cursor1], a, cursor2, len2, 0, c);
+                if (count2 != 0) {
+                    System.arraycopy(a, cursor2, a, dest, count2);
+                    dest += count2; cursor2 += count2; len2 -= count2;
+                    if (len2 == 0) break outer;
+                }
+                a[dest++] = tmp[cursor1++];
+                if (--len1 == 1) break outer;
+                minGallop--;
+            } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+            if (minGallop < 0) minGallop = 0;
+            minGallop += 2;
+        }
+        this.minGallop = minGallop < 1 ? 1 : minGallop;
+
+        if (len1 == 1) {
+            System.arraycopy(a, cursor2, a, dest, len2);
+            a[dest + len2] = tmp[cursor1];
+        } else if (len1 == 0) {
+            throw new IllegalArgumentException("Comparator violates its general contract");
+        } else {
+            System.arraycopy(tmp, cursor1, a, dest, len1);
+        }
+    }
+
+    /** Merge adjacent runs where len1 > len2, copying run2 into the buffer and filling from the right. */
+    private void mergeHi(int base1, int len1, int base2, int len2) {
+        T[] a = this.a;
+        CustomADT.ADTComparator<? super T> c = this.c;
+        T[] tmp = ensureCapacity(len2);
+        System.arraycopy(a, base2, tmp, 0, len2);
+
+        int cursor1 = base1 + len1 - 1, cursor2 = len2 - 1, dest = base2 + len2 - 1;
+        a[dest--] = a[cursor1--];
+        if (--len1 == 0) {
+            System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+            return;
+        }
+        if (len2 == 1) {
+            dest -= len1; cursor1 -= len1;
+            System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+            a[dest] = tmp[cursor2];
+            return;
+        }
+
+        int minGallop = this.minGallop;
+        outer:
+        while (true) {
+            int count1 = 0, count2 = 0;
+            do {
+                if (c.compare(tmp[cursor2], a[cursor1]) < 0) {
+                    a[dest--] = a[cursor1--];
+                    count1++; count2 = 0;
+                    if (--len1 == 0) break outer;
+                } else {
+                    a[dest--] = tmp[cursor2--];
+                    count2++; count1 = 0;
+                    if (--len2 == 1) break outer;
+                }
+            } while ((count1 | count2) < minGallop);
+
+            do {
+                count1 = len1 - gallopRight(tmp[cursor2], a, base1, len1, len1 - 1, c);
+                if (count1 != 0) {
+                    dest -= count1; cursor1 -= count1; len1 -= count1;
+                    System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+                    if (len1 == 0) break outer;
+                }
+                a[dest--] = tmp[cursor2--];
+                if (--len2 == 1) break outer;
+
+                count2 = len2 - gallopLeft(a[cursor1], tmp, 0, len2, len2 - 1, c);
+                if (count2 != 0) {
+                    dest -= count2; cursor2 -= count2; len2 -= count2;
+                    System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
+                    if (len2 <= 1) break outer;
+                }
+                a[dest--] = a[cursor1--];
+                if (--len1 == 0) break outer;
+                minGallop--;
+            } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+            if (minGallop < 0) minGallop = 0;
+            minGallop += 2;
+        }
+        this.minGallop = minGallop < 1 ? 1 : minGallop;
+
+        if (len2 == 1) {
+            dest -= len1; cursor1 -= len1;
+            System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+            a[dest] = tmp[cursor2];
+        } else if (len2 == 0) {
+            throw new IllegalArgumentException("Comparator violates its general contract");
+        } else {
+            System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+        }
+    }
+
+    private T[] ensureCapacity(int minCapacity) {
+        if (tmp.length < minCapacity) {
+            int cap = Math.max(minCapacity, Math.min(tmp.length * 2 + 1, Integer.MAX_VALUE - 8));
+            tmp = (T[]) new Object[cap];
+        }
+        if (minCapacity > tmpUsed) tmpUsed = minCapacity;
+        return tmp;
+    }
+}
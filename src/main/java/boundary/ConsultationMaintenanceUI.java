@@ -43,10 +43,11 @@ public class ConsultationMaintenanceUI {
         case 10 -> { InputUtil.clearScreen(); handleBinarySearchById(); pause(); }
         case 11 -> { InputUtil.clearScreen(); handleReportWorkloadUtilization(); pause(); }
         case 12 -> { InputUtil.clearScreen(); handleReportFollowUpNoShow(); pause(); }
-        case 13 -> {return;}
+        case 13 -> { InputUtil.clearScreen(); handleFindFreeSlots(); pause(); }
+        case 14 -> {return;}
                 default -> { printInvalidSelection(); pause(); }
             }
-    } while (choice != 13);
+    } while (choice != 14);
     }
 
     private void listAllConsultations() {
@@ -362,7 +363,7 @@ public class ConsultationMaintenanceUI {
             for (int i = 0; i < slots.size(); i++) {
                 var sd = slots.get(i);
                 StringBuilder hours = new StringBuilder();
-                ADTInterface<Integer> hourList = sd.hours;
+                adt.IntADT hourList = sd.hours;
                 for (int j = 0; j < hourList.size(); j++) hours.append(String.format("%02d:00 ", hourList.get(j)));
                 body.append(String.format("%s : %s%n", sd.date, hours.toString().trim()));
             }
@@ -396,7 +397,8 @@ public class ConsultationMaintenanceUI {
     System.out.println("10. Binary Search by ID");
     System.out.println("11. Report: Workload & Utilization (last 7 days)");
     System.out.println("12. Report: Follow-up & No-show (last 14 days)");
-    System.out.println("13. Back");
+    System.out.println("13. Find Next Free Slots (all doctors or a specialty)");
+    System.out.println("14. Back");
         return InputUtil.getIntInput(scanner, "Choose: ");
     }
 
@@ -477,6 +479,30 @@ public class ConsultationMaintenanceUI {
     }
 
     // === Reports (UI only formatting) ===
+    private void handleFindFreeSlots() {
+        System.out.println("═".repeat(60));
+        System.out.println("FIND NEXT FREE SLOTS");
+        System.out.println("═".repeat(60));
+        String spec = InputUtil.getInput(scanner, "Specialization (blank for all doctors): ");
+        int count = InputUtil.getIntInput(scanner, "How many slots: ");
+        int days = InputUtil.getIntInput(scanner, "Search how many days ahead: ");
+        if (count <= 0 || days <= 0) { printInvalidSelection(); return; }
+
+        ADTInterface<control.AvailabilityEngine.FreeSlot> slots = control.findNextFreeSlots(count, spec, days);
+        if (slots.isEmpty()) {
+            System.out.println("(No free slots in the next " + days + " days)");
+            return;
+        }
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        System.out.printf("%-16s | %-30s | %-20s%n", "Date/Time", "Doctor", "Specialization");
+        System.out.println("-".repeat(72));
+        for (int i = 0; i < slots.size(); i++) {
+            var slot = slots.get(i);
+            System.out.printf("%-16s | %-30s | %-20s%n", slot.time.format(fmt),
+                slot.doctor.getName() + " (" + slot.doctor.getId() + ")", safe(slot.doctor.getSpecialization()));
+        }
+    }
+
     private void handleReportWorkloadUtilization() {
         java.time.LocalDate end = java.time.LocalDate.now();
         java.time.LocalDate start = end.minusDays(6);
@@ -5,6 +5,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Supplier;
 import utility.InputUtil;
 import entity.Doctor;
 import adt.ADTInterface;
@@ -17,10 +18,12 @@ public class DoctorMaintenanceUI {
 
     private Scanner scanner = new Scanner(System.in);
     private final DoctorMaintenance control = new DoctorMaintenance();
-    // sort state flags for in-place toggles (true = ascending next)
+    // sort state flags for the toggles (true = ascending next)
     private boolean sortByNameAsc = true;
     private boolean sortByIdAsc = true;
     private boolean sortBySpecialtyAsc = true;
+    // The listing shown on this screen: file order, or the last sort re-applied to the current list
+    private Supplier<ADTInterface<Doctor>> listing = control::getAllDoctors;
 
     public int getMenuChoice() {
         System.out.println("Please select an option:");
@@ -56,7 +59,7 @@ public class DoctorMaintenanceUI {
                 case 3 -> { InputUtil.clearScreen(); handleDelete(); }
                 case 4 -> { InputUtil.clearScreen(); handleViewDetails(); }
                 case 5 -> {
-                    // Submenu: choose field to sort (in-place toggles)
+                    // Submenu: choose field to sort (toggles)
                     printHeader("Sort Doctors (toggle)");
                     System.out.println("1. Name (toggle asc/desc)");
                     System.out.println("2. ID (toggle asc/desc)");
@@ -65,20 +68,20 @@ public class DoctorMaintenanceUI {
                     int sc = InputUtil.getIntInput(scanner, "Choose option: ");
                     switch (sc) {
                         case 1 -> {
-                            if (sortByNameAsc) control.sortDoctorsByName(); else control.sortDoctorsByNameDesc();
+                            listing = sortByNameAsc ? control::sortDoctorsByName : control::sortDoctorsByNameDesc;
                             sortByNameAsc = !sortByNameAsc;
                         }
                         case 2 -> {
-                            if (sortByIdAsc) control.sortDoctorsById(); else control.sortDoctorsByIdDesc();
+                            listing = sortByIdAsc ? control::sortDoctorsById : control::sortDoctorsByIdDesc;
                             sortByIdAsc = !sortByIdAsc;
                         }
                         case 3 -> {
-                            if (sortBySpecialtyAsc) control.sortDoctorsBySpecialty(); else control.sortDoctorsBySpecialtyDesc();
+                            listing = sortBySpecialtyAsc ? control::sortDoctorsBySpecialty : control::sortDoctorsBySpecialtyDesc;
                             sortBySpecialtyAsc = !sortBySpecialtyAsc;
                         }
                         default -> { /* cancel/no-op */ }
                     }
-                    InputUtil.clearScreen(); printHeader("Clinic Doctor Maintenance"); printTable(buildRows(control.getAllDoctors()));
+                    InputUtil.clearScreen(); printHeader("Clinic Doctor Maintenance"); printTable(buildRows(listing.get()));
                 }
                 case 6 -> { InputUtil.clearScreen(); handleSearchBySpecialty(); }
                 case 7 -> { InputUtil.clearScreen(); handleSearch(); }
@@ -94,7 +97,7 @@ public class DoctorMaintenanceUI {
                 InputUtil.pauseScreen();
                 InputUtil.clearScreen();
                 printHeader("Clinic Doctor Maintenance");
-                displayDoctorsTable(control.getAllDoctors());
+                displayDoctorsTable(listing.get());
             }
         } while (choice != 10);
     }
@@ -8,6 +8,7 @@ import entity.Treatment;
 import utility.InputUtil;
 
 import java.util.Scanner;
+import java.util.function.Supplier;
 
 /**
  * Console UI runner for Medication module. Uses control.MedicationMaintenance for logic.
@@ -19,6 +20,8 @@ public class MedicationMaintenanceUI {
     private boolean sortAscending = true;
     private boolean sortQuantityAscending = true;
     private boolean sortIdAscending = true;
+    // The listing shown on this screen: file order, or the last sort re-applied to the current list
+    private Supplier<ADTInterface<Medication>> listing = control::getAllMedications;
         public int menu() {
         System.out.println("Medication Management");
         System.out.println("1. Add Medication");
@@ -40,7 +43,7 @@ public class MedicationMaintenanceUI {
         do {
             InputUtil.clearScreen();
             printHeader("Clinic Medication Maintenance");
-            printTable(buildRows((ADTInterface<Medication>) control.getAllMedications()));
+            printTable(buildRows(listing.get()));
             c = menu();
             switch (c) {
                 case 1 -> handleAdd();
@@ -53,30 +56,30 @@ public class MedicationMaintenanceUI {
                 }
                 case 5 -> {
                     if (sortAscending) {
-                        control.sortMedicationsByName();
+                        listing = control::sortMedicationsByName;
                         System.out.println("Medications sorted by name (ascending).");
                     } else {
-                        control.sortMedicationsByNameDesc();
+                        listing = control::sortMedicationsByNameDesc;
                         System.out.println("Medications sorted by name (descending).");
                     }
                     sortAscending = !sortAscending;
                 }
                 case 6 -> {
                     if (sortQuantityAscending) {
-                        control.sortMedicationsByQuantity();
+                        listing = control::sortMedicationsByQuantity;
                         System.out.println("Medications sorted by quantity (ascending).");
                     } else {
-                        control.sortMedicationsByQuantityDesc();
+                        listing = control::sortMedicationsByQuantityDesc;
                         System.out.println("Medications sorted by quantity (descending).");
                     }
                     sortQuantityAscending = !sortQuantityAscending;
                 }
                 case 7 -> {
                     if (sortIdAscending) {
-                        control.sortMedicationsById();
+                        listing = control::sortMedicationsById;
                         System.out.println("Medications sorted by ID (ascending).");
                     } else {
-                        control.sortMedicationsByIdDesc();
+                        listing = control::sortMedicationsByIdDesc;
                         System.out.println("Medications sorted by ID (descending).");
                     }
                     sortIdAscending = !sortIdAscending;
@@ -105,7 +105,7 @@ public class PatientMaintenanceUI {
         System.out.println("═".repeat(60));
     }
 
-    public void displayDemographicsSummary(int totalPatients, double avgAge, adt.ADTInterface<String> genderCounts, adt.ADTInterface<String> nationalityCounts, int highFreqCount) {
+    public void displayDemographicsSummary(int totalPatients, double avgAge, adt.ObjectIntMap<String> genderCounts, adt.ObjectIntMap<String> nationalityCounts, int highFreqCount) {
         System.out.println("Summary:");
         System.out.println("Total patients: " + totalPatients);
         System.out.println("Average age: " + String.format("%.1f", avgAge));
@@ -115,11 +115,7 @@ public class PatientMaintenanceUI {
         
         if (genderCounts != null) {
             for (int i = 0; i < genderCounts.size(); i++) {
-                String kv = genderCounts.get(i);
-                int idx = kv.indexOf(':');
-                String k = idx>=0?kv.substring(0,idx):kv;
-                String v = idx>=0?kv.substring(idx+1):"0";
-                System.out.println("  " + k + ": " + v);
+                System.out.println("  " + genderCounts.keyAt(i) + ": " + genderCounts.valueAt(i));
             }
         }
         System.out.println("");
@@ -127,26 +123,20 @@ public class PatientMaintenanceUI {
         System.out.println("Nationality distribution:");
         if (nationalityCounts != null) {
             for (int i = 0; i < nationalityCounts.size(); i++) {
-                String kv = nationalityCounts.get(i);
-                int idx = kv.indexOf(':');
-                String k = idx>=0?kv.substring(0,idx):kv;
-                String v = idx>=0?kv.substring(idx+1):"0";
-                System.out.println("  " + k + ": " + v);
+                System.out.println("  " + nationalityCounts.keyAt(i) + ": " + nationalityCounts.valueAt(i));
             }
         }
     }
 
-    public void displayAgeGroupTable(adt.ADTInterface<String> ageGroups, int total) {
+    public void displayAgeGroupTable(adt.ObjectIntMap<String> ageGroups, int total) {
         System.out.println("\nAge group distribution:");
         System.out.println("------------------------------------------------");
         System.out.println("Group  | Count | %");
         System.out.println("------------------------------------------------");
         if (ageGroups != null) {
             for (int i = 0; i < ageGroups.size(); i++) {
-                String kv = ageGroups.get(i);
-                int idx = kv.indexOf(':');
-                String key = idx>=0?kv.substring(0,idx):kv;
-                int val = 0; try { val = Integer.parseInt(idx>=0?kv.substring(idx+1):"0"); } catch(Exception ex) { val = 0; }
+                String key = ageGroups.keyAt(i);
+                int val = ageGroups.valueAt(i);
                 double pct = total==0?0.0:(val * 100.0 / total);
                 System.out.println(String.format("%-6s | %-5d | %4.1f%%", key, val, pct));
             }
@@ -658,6 +648,7 @@ public class PatientMaintenanceUI {
     private void handleDemographics() {
         printHeader("Clinic Patient Maintenance");
         showDemographicsHeader();
+        // Only the summary is shown, so no CSV rows are built
         PatientMaintenance.DemographicsReport r = control.generateDemographicsReport();
         displayDemographicsSummary(r.totalPatients, r.averageAge, r.genderCounts, r.nationalityCounts, r.highFrequencyPatients);
         if (r.highFrequencyList != null && !r.highFrequencyList.isEmpty()) {
@@ -2,6 +2,7 @@ package boundary;
 
 import adt.ADTInterface;
 import control.QueueMaintenance;
+import control.QueueMetrics;
 import entity.*;
 import utility.InputUtil;
 
@@ -15,7 +16,7 @@ public class QueueMaintenanceUI {
         int c;
         do {
             InputUtil.clearScreen();
-            showHeader(ctl.getQueue(), ctl.getDoctors(), ctl.getPatients());
+            showHeader(ctl.getQueue(), ctl);
             c = menu();
             switch (c) {
                 case 1 -> {
@@ -117,13 +118,18 @@ public class QueueMaintenanceUI {
                     }
                     InputUtil.pauseScreen();
                 }
-                case 11 -> {return;}
+                case 11 -> {
+                    InputUtil.clearScreen();
+                    displayMetrics(ctl.getMetrics());
+                    InputUtil.pauseScreen();
+                }
+                case 12 -> {return;}
                 default -> {
                     System.out.println("Invalid");
                     InputUtil.pauseScreen();
                 }
             }
-    } while (c != 11);
+    } while (c != 12);
     }
 
     public int menu() {
@@ -138,17 +144,16 @@ public class QueueMaintenanceUI {
     System.out.println("8. View Recent Consultations");
     System.out.println("9. Enqueue Today Booked Consultations");
     System.out.println("10. Clear Queue");
-    System.out.println("11. Back");
+    System.out.println("11. Queue Metrics Dashboard");
+    System.out.println("12. Back");
         return InputUtil.getIntInput(sc, "Choose: ");
     }
 
-    public void showHeader(ADTInterface<PatientQueueEntry> queue,
-                           ADTInterface<Doctor> doctors,
-                           ADTInterface<Patient> patients) {
+    public void showHeader(ADTInterface<PatientQueueEntry> queue, QueueMaintenance ctl) {
     // Compose the top-of-screen header: snapshot, summary and doctor availability
     printQueueSnapshot(queue);
     printQueueSummary(queue);
-    showDoctorAvailability(doctors, queue);
+    showDoctorAvailability(ctl.getDoctors(), ctl);
     }
 
     public void printQueueSnapshot(ADTInterface<PatientQueueEntry> queue) {
@@ -179,7 +184,7 @@ public class QueueMaintenanceUI {
                 waiting, called, inProg, completed, skipped);
     }
 
-    public void showDoctorAvailability(ADTInterface<Doctor> doctors, ADTInterface<PatientQueueEntry> queue) {
+    public void showDoctorAvailability(ADTInterface<Doctor> doctors, QueueMaintenance ctl) {
         // Display each doctor's current duty/consulting status and warn if none on duty
         System.out.println("\n-- Doctor Availability --");
         if (doctors == null || doctors.size() == 0) {
@@ -190,7 +195,7 @@ public class QueueMaintenanceUI {
         boolean anyOnDuty = false;
         for (int i = 0; i < doctors.size(); i++) {
             Doctor doctor = doctors.get(i);
-            String status = getDoctorStatus(doctor, queue);
+            String status = getDoctorStatus(doctor, ctl);
             String statusIcon = getStatusIcon(status);
             System.out.printf("%s Doctor %-8s (%-15s) : %s\n", 
                 statusIcon, doctor.getId(), 
@@ -214,56 +219,81 @@ public class QueueMaintenanceUI {
         else return "X";
     }
 
-    private String getDoctorStatus(Doctor doctor, ADTInterface<PatientQueueEntry> queue) {
-        // Determine if the doctor is currently consulting or has waiting patients.
-        boolean hasInProgressPatient = false;
-        int waitingForThisDoctor = 0;
-        
-        for (int i = 0; i < queue.size(); i++) {
-            PatientQueueEntry entry = queue.get(i);
-            
-            // Count IN_PROGRESS entries assigned to this doctor only
-            if (entry.getStatus() == QueueStatus.IN_PROGRESS) {
-                if (doctor.getId().equals(entry.getPreferredDoctorId())) {
-                    hasInProgressPatient = true;
-                }
-            }
-            
-            // Count patients waiting specifically for this doctor
-            if (entry.getStatus() == QueueStatus.WAITING && 
-                doctor.getId().equals(entry.getPreferredDoctorId())) {
-                waitingForThisDoctor++;
-            }
-        }
-        
-        // Check if doctor is scheduled to work now
-        java.time.LocalTime now = java.time.LocalTime.now();
-        java.time.LocalDate today = java.time.LocalDate.now();
-        int currentHour = now.getHour();
-        int dayOfWeek = today.getDayOfWeek().getValue() - 1; // 0 = Monday
-        
-        boolean isScheduledNow = (doctor.getSchedule() != null && 
-                                 doctor.getSchedule().isAvailable(dayOfWeek, currentHour));
-        
+    private String getDoctorStatus(Doctor doctor, QueueMaintenance ctl) {
+        // Duty and consulting state come from the control's doctor table, not a queue scan
         // If off duty, always show Off Duty, even if linked to an in-progress entry
-        if (!isScheduledNow) {
+        if (!ctl.isDoctorOnDuty(doctor.getId())) {
             return "Off Duty";
         }
 
         // If doctor has an in-progress patient, they're consulting
-        if (hasInProgressPatient) {
+        if (ctl.isDoctorConsultingNow(doctor.getId())) {
             return "Consulting";
         }
-        
-        if (isScheduledNow) {
-            if (waitingForThisDoctor > 0) {
-                return String.format("Available (%d waiting)", waitingForThisDoctor);
-            } else {
-                return "Available";
+
+        int waitingForThisDoctor = ctl.waitingFor(doctor.getId());
+        if (waitingForThisDoctor > 0) {
+            return String.format("Available (%d waiting)", waitingForThisDoctor);
+        }
+        return "Available";
+    }
+
+    /** Wait times and throughput since this console started (read as they stand; no queue lock) */
+    public void displayMetrics(QueueMetrics m) {
+        System.out.println("\n-- Queue Metrics (since " + m.since().withNano(0).toString().replace('T', ' ') + ") --");
+        System.out.printf("Now: WAITING=%d, IN_PROGRESS=%d, peak WAITING=%d%n", m.waiting(), m.inProgress(), m.peakWaiting());
+        System.out.printf("Seen: enqueued=%d, called=%d, completed=%d%n", m.enqueued(), m.waits().count(), m.completed());
+
+        System.out.println("\nWait (enqueued -> called) and service (called -> completed):");
+        System.out.printf("%-12s %6s %8s %8s %8s %8s %8s%n", "", "Count", "Mean", "p50", "p90", "p99", "Max");
+        printHistogram("Wait", m.waits());
+        printHistogram("Service", m.services());
+
+        ADTInterface<String> doctors = m.doctors();
+        if (doctors.size() > 0) {
+            System.out.println("\nBy doctor:");
+            for (int i = 0; i < doctors.size(); i++) {
+                String id = doctors.get(i);
+                printHistogram(id + " wait", m.waitsFor(id));
+                printHistogram(id + " svc", m.servicesFor(id));
             }
-        } else {
-            return "Off Duty";
         }
+
+        System.out.println("\nWait by priority:");
+        boolean any = false;
+        for (int p = 0; p <= QueueMetrics.MAX_PRIORITY; p++) {
+            QueueMetrics.Histogram h = m.waitsAt(p);
+            if (h.count() == 0) continue;
+            printHistogram((p == QueueMetrics.MAX_PRIORITY ? p + "+" : String.valueOf(p)), h);
+            any = true;
+        }
+        if (!any) System.out.println("(no calls yet)");
+
+        System.out.println("\nCalls per hour (this hour first):");
+        StringBuilder hours = new StringBuilder();
+        for (int h = 0; h < 8; h++) {
+            if (h > 0) hours.append("  ");
+            hours.append(h == 0 ? "now" : "-" + h + "h").append('=').append(m.callsInHour(h));
+        }
+        System.out.println(hours);
+    }
+
+    private void printHistogram(String label, QueueMetrics.Histogram h) {
+        if (h.count() == 0) {
+            System.out.printf("%-12s %6d %8s %8s %8s %8s %8s%n", label, 0, "-", "-", "-", "-", "-");
+            return;
+        }
+        System.out.printf("%-12s %6d %8s %8s %8s %8s %8s%n", label, h.count(), duration(h.mean()),
+                duration(h.percentile(50)), duration(h.percentile(90)), duration(h.percentile(99)), duration(h.max()));
+    }
+
+    // 850ms, 42s, 12m05s, 1h30m
+    private String duration(long millis) {
+        if (millis < 1000) return millis + "ms";
+        long secs = millis / 1000;
+        if (secs < 60) return secs + "s";
+        if (secs < 3600) return String.format("%dm%02ds", secs / 60, secs % 60);
+        return String.format("%dh%02dm", secs / 3600, secs % 3600 / 60);
     }
 
     /** Display patients currently IN_PROGRESS */
@@ -352,25 +382,19 @@ public class QueueMaintenanceUI {
     }
 
     /**
-     * Display a concise list of doctors currently on duty (available now).
+     * Display a concise list of doctors currently on duty (available now),
+     * as given by QueueMaintenance.getOnDutyDoctors().
      */
-    public void displayAvailableDoctors(ADTInterface<Doctor> doctors) {
+    public void displayAvailableDoctors(ADTInterface<Doctor> onDuty) {
         System.out.println("\n-- Available Doctors --");
-        if (doctors == null || doctors.size() == 0) {
-            System.out.println("(no doctors configured)");
+        if (onDuty == null || onDuty.size() == 0) {
+            System.out.println("(none on duty right now)");
             return;
         }
-        int dayOfWeek = java.time.LocalDate.now().getDayOfWeek().getValue() - 1;
-        int hour = java.time.LocalTime.now().getHour();
-        boolean any = false;
-        for (int i = 0; i < doctors.size(); i++) {
-            Doctor d = doctors.get(i);
-            if (d.getSchedule() != null && d.getSchedule().isAvailable(dayOfWeek, hour)) {
-                any = true;
-                System.out.printf("%s - %s%n", d.getId(), d.getName() == null ? "(no name)" : d.getName());
-            }
+        for (int i = 0; i < onDuty.size(); i++) {
+            Doctor d = onDuty.get(i);
+            System.out.printf("%s - %s%n", d.getId(), d.getName() == null ? "(no name)" : d.getName());
         }
-        if (!any) System.out.println("(none on duty right now)");
     }
 
     /**
@@ -439,11 +463,11 @@ public class QueueMaintenanceUI {
             return;
         }
         String id = ctl.generateNextQueueId();
-        PatientQueueEntry e = promptEnqueue(id, ctl.getPatients(), ctl.getDoctors());
+        PatientQueueEntry e = promptEnqueue(id, ctl.getPatients(), ctl.getOnDutyDoctors());
         if (e == null) return;
         try {
-            ctl.enqueue(e.getId(), e.getPatientId(), e.getPreferredDoctorId(), e.getReason(), e.getPriority());
-            System.out.println("✅ Enqueued: " + e.getId());
+            PatientQueueEntry added = ctl.enqueue(e.getId(), e.getPatientId(), e.getPreferredDoctorId(), e.getReason(), e.getPriority());
+            System.out.println("✅ Enqueued: " + added.getId());
         } catch (Exception ex) {
             System.out.println("(X) " + ex.getMessage());
             System.out.println("Available doctors: " + ctl.getOnDutyDoctorsList());
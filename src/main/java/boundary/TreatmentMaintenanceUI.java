@@ -82,7 +82,7 @@ public class TreatmentMaintenanceUI {
         "ID", "ConsultID", "Patient Name", "Type", "Name", "Status", "Cost(RM)", "Date", "Severity", "MedCnt"));
     sb.append(border);
     // Load all patients for lookup
-    ADTInterface<entity.Patient> patients = new dao.PatientDAO().retrieveFromFile();
+    ADTInterface<entity.Patient> patients = dao.Repositories.patients().all();
     for (int i=0;i<list.size();i++){
         Treatment t = list.get(i);
         int medCount = t.getMedicationIds()==null?0:t.getMedicationIds().length;
@@ -138,7 +138,7 @@ public class TreatmentMaintenanceUI {
                 Consultation chosen = control.findConsultationById(consultId);
                 if (chosen != null && chosen.getStatus() == Consultation.Status.ONGOING) {
                     // Lookup patient name
-                    ADTInterface<entity.Patient> patients = new dao.PatientDAO().retrieveFromFile();
+                    ADTInterface<entity.Patient> patients = dao.Repositories.patients().all();
                     for (int p = 0; p < patients.size(); p++) {
                         entity.Patient pat = patients.get(p);
                         if (pat.getId().equals(chosen.getPatientId())) { patientName = pat.getName(); break; }
@@ -482,10 +482,10 @@ public class TreatmentMaintenanceUI {
             int order = InputUtil.getIntInput(sc, "Choose order (1=Ascending, 2=Descending, 0=Cancel): ");
             if (order == 0) return;
             boolean asc = (order == 1);
-            control.sortTreatments(field, asc);
+            ADTInterface<Treatment> sorted = control.sortTreatments(field, asc);
             InputUtil.clearScreen();
             printHeader("Sorted Treatments");
-            printTable(rows(control.getAllTreatments()));
+            printTable(rows(sorted));
         } catch (Exception e) {
             System.out.println("An error occurred during sorting: " + e.getMessage());
         }
@@ -0,0 +1,105 @@
+package control;
+
+import adt.ADTInterface;
+import adt.CustomADT;
+import dao.ConsultationIndex;
+import entity.Doctor;
+import entity.DoctorSchedule;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Slot search on hour bitmaps.
+ *
+ * A doctor's weekly template is seven 24-bit day masks (DoctorSchedule.dayMask)
+ * and a date's bookings are one more (ConsultationIndex.bookedHours), so the free
+ * hours of a doctor on a date are template & ~booked, and a day of all candidate
+ * doctors is one OR of those words before any hour is looked at individually.
+ * Templates are read from the schedules at the start of each search, so edits
+ * to a schedule apply to the next search.
+ */
+public class AvailabilityEngine {
+    private static final int ALL_HOURS = (1 << 24) - 1;
+
+    /** Extra per-hour condition (e.g. the doctor's calendar); null for none. */
+    public interface HourCheck {
+        boolean allows(Doctor doctor, LocalDate date, int hour);
+    }
+
+    public static class FreeSlot {
+        public Doctor doctor;
+        public LocalDateTime time;
+    }
+
+    private final ADTInterface<Doctor> doctors;
+    private final ConsultationIndex index;
+
+    public AvailabilityEngine(ADTInterface<Doctor> doctors, ConsultationIndex index) {
+        this.doctors = doctors;
+        this.index = index;
+    }
+
+    /** Free hours of doctor on date as a bitmap (bit h = hour h:00). */
+    public int freeHours(Doctor doctor, LocalDate date) {
+        if (doctor == null || date == null || doctor.getSchedule() == null) return 0;
+        int day = date.getDayOfWeek().getValue() - 1; // 0 = Monday
+        return doctor.getSchedule().dayMask(day) & ~index.bookedHours(doctor.getId(), date);
+    }
+
+    /**
+     * The first count free slots at or after from, earliest first (doctors in list
+     * order within an hour), looking at most days ahead. specialization (nullable,
+     * case-insensitive) limits the doctors searched.
+     */
+    public ADTInterface<FreeSlot> nextFree(LocalDateTime from, int count, int days, String specialization, HourCheck check) {
+        CustomADT<FreeSlot> out = new CustomADT<>();
+        if (from == null || count <= 0) return out;
+
+        // Candidate doctors and their templates, read once for the whole search
+        CustomADT<Doctor> candidates = new CustomADT<>();
+        for (int i = 0; i < doctors.size(); i++) {
+            Doctor d = doctors.get(i);
+            if (d == null || d.getSchedule() == null) continue;
+            if (specialization != null && !specialization.isBlank()
+                    && !specialization.trim().equalsIgnoreCase(d.getSpecialization())) continue;
+            candidates.add(d);
+        }
+        int[][] templates = new int[candidates.size()][7];
+        for (int k = 0; k < candidates.size(); k++) {
+            DoctorSchedule s = candidates.get(k).getSchedule();
+            for (int day = 0; day < 7; day++) templates[k][day] = s.dayMask(day);
+        }
+
+        // Hours already past on the first day are not free
+        LocalDate first = from.toLocalDate();
+        int firstHour = from.getHour() + (from.getMinute() == 0 && from.getSecond() == 0 && from.getNano() == 0 ? 0 : 1);
+        int[] free = new int[candidates.size()];
+        for (int d = 0; d < days && out.size() < count; d++) {
+            LocalDate date = first.plusDays(d);
+            int day = date.getDayOfWeek().getValue() - 1;
+            int window = d == 0 ? (firstHour >= 24 ? 0 : ALL_HOURS & ~((1 << firstHour) - 1)) : ALL_HOURS;
+            int any = 0;
+            for (int k = 0; k < candidates.size(); k++) {
+                int t = templates[k][day] & window;
+                // Only look up bookings for doctors who work that day at all
+                free[k] = t == 0 ? 0 : t & ~index.bookedHours(candidates.get(k).getId(), date);
+                any |= free[k];
+            }
+            // Walk the set hours of the day, earliest first
+            while (any != 0 && out.size() < count) {
+                int h = Integer.numberOfTrailingZeros(any);
+                any &= any - 1;
+                for (int k = 0; k < candidates.size() && out.size() < count; k++) {
+                    if ((free[k] & (1 << h)) == 0) continue;
+                    Doctor doc = candidates.get(k);
+                    if (check != null && !check.allows(doc, date, h)) continue;
+                    FreeSlot slot = new FreeSlot();
+                    slot.doctor = doc;
+                    slot.time = date.atTime(h, 0);
+                    out.add(slot);
+                }
+            }
+        }
+        return out;
+    }
+}
@@ -5,6 +5,7 @@
 package control;
 
 import boundary.*;
+import dao.Persister;
 import utility.MigrationRunner;
 /**
  *
@@ -22,5 +23,6 @@ public class ClinicMaintenance {
             System.out.println("[Migration] Legacy schedule entries normalized.");
         }
         clinicMaintenance.mainUI.run();
+        Persister.flush(); // finish the background writes before exiting
     }
 }
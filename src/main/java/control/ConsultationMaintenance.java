@@ -2,9 +2,11 @@ package control;
 
 import adt.ADTInterface;
 import adt.CustomADT;
-import dao.ConsultationDAO;
-import dao.DoctorDAO;
-import dao.PatientDAO;
+import adt.IntADT;
+import dao.ConsultationIndex;
+import dao.MappedConsultationStore;
+import dao.Repositories;
+import dao.Repository;
 import entity.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -12,18 +14,22 @@ import java.time.temporal.ChronoUnit;
 import java.time.format.DateTimeFormatter;
 
 public class ConsultationMaintenance {
-    private final ConsultationDAO consultationDAO = new ConsultationDAO();
-    private final DoctorDAO doctorDAO = new DoctorDAO();
-    private final PatientDAO patientDAO = new PatientDAO();
+    private final Repository<Consultation> consultationRepo = Repositories.consultations();
+    private final Repository<Doctor> doctorRepo = Repositories.doctors();
+    private final Repository<Patient> patientRepo = Repositories.patients();
+    private final MappedConsultationStore columns = Repositories.consultationColumns();
+    private final ConsultationIndex index = Repositories.consultationIndex();
+    private final AvailabilityEngine availability;
 
     private final ADTInterface<Consultation> consultations;
     private final ADTInterface<Doctor> doctors;
     private final ADTInterface<Patient> patients;
 
     public ConsultationMaintenance() {
-        consultations = consultationDAO.load();
-        doctors = doctorDAO.retrieveFromFile();
-        patients = patientDAO.retrieveFromFile();
+        consultations = consultationRepo.all();
+        doctors = doctorRepo.all();
+        patients = patientRepo.all();
+        availability = new AvailabilityEngine(doctors, index);
     }
 
     public ADTInterface<Consultation> getAllConsultations() {
@@ -31,82 +37,39 @@ public class ConsultationMaintenance {
     }
 
     // ===== Sorting/search helpers leveraging CustomADT =====
+    // The list is shared by every screen (see Repositories), so these sort a copy and leave it in file order.
+
     /** Sort consultations by date/time ascending using stable merge sort; returns a new list. */
     public ADTInterface<Consultation> sortByDateTime() {
-        // If underlying ADT is CustomADT we can sort in-place and return it
-        if (consultations instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Consultation> list = (CustomADT<Consultation>) cadt;
-            list.mergeSort((java.util.Comparator<Consultation>) (a,b) -> {
-                java.time.LocalDateTime da = a==null?null:a.getDate();
-                java.time.LocalDateTime db = b==null?null:b.getDate();
-                if (da==null && db==null) return 0;
-                if (da==null) return -1;
-                if (db==null) return 1;
-                return da.compareTo(db);
-            });
-            return list;
-        }
-        // Fallback: return a sorted copy
-        CustomADT<Consultation> copy = new CustomADT<>();
-        for (int i=0;i<consultations.size();i++) copy.add(consultations.get(i));
-        copy.mergeSort((java.util.Comparator<Consultation>) (a,b) -> {
+        CustomADT<Consultation> copy = CustomADT.copyOf(consultations);
+        copy.parallelMergeSort((java.util.Comparator<Consultation>) (a,b) -> {
             java.time.LocalDateTime da = a==null?null:a.getDate();
             java.time.LocalDateTime db = b==null?null:b.getDate();
             if (da==null && db==null) return 0;
             if (da==null) return -1;
             if (db==null) return 1;
             return da.compareTo(db);
-        });
+        }, CustomADT.DEFAULT_PARALLEL_THRESHOLD);
         return copy;
     }
 
-    /** Sort by date/time descending (in-place when possible). */
+    /** Sort by date/time descending; returns a new list. */
     public ADTInterface<Consultation> sortByDateTimeDesc() {
-        if (consultations instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Consultation> list = (CustomADT<Consultation>) cadt;
-            list.mergeSort((java.util.Comparator<Consultation>) (a,b) -> {
-                java.time.LocalDateTime da = a==null?null:a.getDate();
-                java.time.LocalDateTime db = b==null?null:b.getDate();
-                if (da==null && db==null) return 0;
-                if (da==null) return 1;
-                if (db==null) return -1;
-                return db.compareTo(da);
-            });
-            return list;
-        }
-        CustomADT<Consultation> copy = new CustomADT<>();
-        for (int i=0;i<consultations.size();i++) copy.add(consultations.get(i));
-        copy.mergeSort((java.util.Comparator<Consultation>) (a,b) -> {
+        CustomADT<Consultation> copy = CustomADT.copyOf(consultations);
+        copy.parallelMergeSort((java.util.Comparator<Consultation>) (a,b) -> {
             java.time.LocalDateTime da = a==null?null:a.getDate();
             java.time.LocalDateTime db = b==null?null:b.getDate();
             if (da==null && db==null) return 0;
             if (da==null) return 1;
             if (db==null) return -1;
             return db.compareTo(da);
-        });
+        }, CustomADT.DEFAULT_PARALLEL_THRESHOLD);
         return copy;
     }
 
-    /** Bubble sort by status then date for demonstration (stable). */
+    /** Bubble sort by status then date for demonstration (stable); returns a new list. */
     public ADTInterface<Consultation> bubbleSortByStatusThenDate() {
-        if (consultations instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Consultation> list = (CustomADT<Consultation>) cadt;
-            list.bubbleSort((java.util.Comparator<Consultation>) (a,b) -> {
-                String sa = a==null||a.getStatus()==null?"":a.getStatus().name();
-                String sb = b==null||b.getStatus()==null?"":b.getStatus().name();
-                int cmp = sa.compareTo(sb);
-                if (cmp!=0) return cmp;
-                java.time.LocalDateTime da = a==null?null:a.getDate();
-                java.time.LocalDateTime db = b==null?null:b.getDate();
-                if (da==null && db==null) return 0;
-                if (da==null) return -1;
-                if (db==null) return 1;
-                return da.compareTo(db);
-            });
-            return list;
-        }
-        CustomADT<Consultation> copy = new CustomADT<>();
-        for (int i=0;i<consultations.size();i++) copy.add(consultations.get(i));
+        CustomADT<Consultation> copy = CustomADT.copyOf(consultations);
         copy.bubbleSort((java.util.Comparator<Consultation>) (a,b) -> {
             String sa = a==null||a.getStatus()==null?"":a.getStatus().name();
             String sb = b==null||b.getStatus()==null?"":b.getStatus().name();
@@ -122,26 +85,9 @@ public class ConsultationMaintenance {
         return copy;
     }
 
-    /** Bubble sort by status then date descending (in-place when possible). */
+    /** Bubble sort by status then date descending; returns a new list. */
     public ADTInterface<Consultation> bubbleSortByStatusThenDateDesc() {
-        if (consultations instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Consultation> list = (CustomADT<Consultation>) cadt;
-            list.bubbleSort((java.util.Comparator<Consultation>) (a,b) -> {
-                String sa = a==null||a.getStatus()==null?"":a.getStatus().name();
-                String sb = b==null||b.getStatus()==null?"":b.getStatus().name();
-                int cmp = sb.compareTo(sa); // reverse
-                if (cmp!=0) return cmp;
-                java.time.LocalDateTime da = a==null?null:a.getDate();
-                java.time.LocalDateTime db = b==null?null:b.getDate();
-                if (da==null && db==null) return 0;
-                if (da==null) return 1;
-                if (db==null) return -1;
-                return db.compareTo(da);
-            });
-            return list;
-        }
-        CustomADT<Consultation> copy = new CustomADT<>();
-        for (int i=0;i<consultations.size();i++) copy.add(consultations.get(i));
+        CustomADT<Consultation> copy = CustomADT.copyOf(consultations);
         copy.bubbleSort((java.util.Comparator<Consultation>) (a,b) -> {
             String sa = a==null||a.getStatus()==null?"":a.getStatus().name();
             String sb = b==null||b.getStatus()==null?"":b.getStatus().name();
@@ -157,23 +103,9 @@ public class ConsultationMaintenance {
         return copy;
     }
 
-    /** Selection sort by doctor then patient (not stable). */
+    /** Selection sort by doctor then patient (not stable); returns a new list. */
     public ADTInterface<Consultation> selectionSortByDoctorThenPatient() {
-        if (consultations instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Consultation> list = (CustomADT<Consultation>) cadt;
-            list.selectionSort((java.util.Comparator<Consultation>) (a,b) -> {
-                String da = a==null?"":safe(getDoctorDisplay(a.getDoctorId()));
-                String db = b==null?"":safe(getDoctorDisplay(b.getDoctorId()));
-                int cmp = da.compareTo(db);
-                if (cmp!=0) return cmp;
-                String pa = a==null?"":safe(getPatientDisplay(a.getPatientId()));
-                String pb = b==null?"":safe(getPatientDisplay(b.getPatientId()));
-                return pa.compareTo(pb);
-            });
-            return list;
-        }
-        CustomADT<Consultation> copy = new CustomADT<>();
-        for (int i=0;i<consultations.size();i++) copy.add(consultations.get(i));
+        CustomADT<Consultation> copy = CustomADT.copyOf(consultations);
         copy.selectionSort((java.util.Comparator<Consultation>) (a,b) -> {
             String da = a==null?"":safe(getDoctorDisplay(a.getDoctorId()));
             String db = b==null?"":safe(getDoctorDisplay(b.getDoctorId()));
@@ -186,23 +118,9 @@ public class ConsultationMaintenance {
         return copy;
     }
 
-    /** Selection sort by doctor then patient descending (in-place when possible). */
+    /** Selection sort by doctor then patient descending; returns a new list. */
     public ADTInterface<Consultation> selectionSortByDoctorThenPatientDesc() {
-        if (consultations instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Consultation> list = (CustomADT<Consultation>) cadt;
-            list.selectionSort((java.util.Comparator<Consultation>) (a,b) -> {
-                String da = a==null?"":safe(getDoctorDisplay(a.getDoctorId()));
-                String db = b==null?"":safe(getDoctorDisplay(b.getDoctorId()));
-                int cmp = db.compareTo(da); // reverse
-                if (cmp!=0) return cmp;
-                String pa = a==null?"":safe(getPatientDisplay(a.getPatientId()));
-                String pb = b==null?"":safe(getPatientDisplay(b.getPatientId()));
-                return pb.compareTo(pa);
-            });
-            return list;
-        }
-        CustomADT<Consultation> copy = new CustomADT<>();
-        for (int i=0;i<consultations.size();i++) copy.add(consultations.get(i));
+        CustomADT<Consultation> copy = CustomADT.copyOf(consultations);
         copy.selectionSort((java.util.Comparator<Consultation>) (a,b) -> {
             String da = a==null?"":safe(getDoctorDisplay(a.getDoctorId()));
             String db = b==null?"":safe(getDoctorDisplay(b.getDoctorId()));
@@ -215,26 +133,9 @@ public class ConsultationMaintenance {
         return copy;
     }
 
-    /** Binary search by ID on a list sorted by ID ascending. Returns index or -insertionPoint-1. */
+    /** Binary search by ID on a copy sorted by ID ascending. Returns the match or null. */
     public Consultation binarySearchByIdGet(String id) {
-        if (consultations instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Consultation> list = (CustomADT<Consultation>) cadt;
-            list.mergeSort((java.util.Comparator<Consultation>) (a,b) -> {
-                String ia = a==null?"":safe(a.getId());
-                String ib = b==null?"":safe(b.getId());
-                return ia.compareTo(ib);
-            });
-            Consultation key = new Consultation(); key.setId(id);
-            int idx = list.binarySearch(key, (java.util.Comparator<Consultation>) (a,b) -> {
-                String ia = a==null?"":safe(a.getId());
-                String ib = b==null?"":safe(b.getId());
-                return ia.compareTo(ib);
-            });
-            if (idx >= 0 && idx < list.size()) return list.get(idx);
-            return null;
-        }
-        CustomADT<Consultation> copy = new CustomADT<>();
-        for (int i=0;i<consultations.size();i++) copy.add(consultations.get(i));
+        CustomADT<Consultation> copy = CustomADT.copyOf(consultations);
         copy.mergeSort((java.util.Comparator<Consultation>) (a,b) -> {
             String ia = a==null?"":safe(a.getId());
             String ib = b==null?"":safe(b.getId());
@@ -301,7 +202,7 @@ public class ConsultationMaintenance {
         } catch (Exception ex) {
             // Non-fatal
         }
-        consultations.add(c);
+        consultationRepo.add(c);
         persist();
         return c;
     }
@@ -365,7 +266,7 @@ public class ConsultationMaintenance {
             } catch (Exception ignored) {}
         }
 
-        consultations.set(idx, c);
+        consultationRepo.update(c);
         persist();
         return true;
     }
@@ -407,7 +308,7 @@ public class ConsultationMaintenance {
                         utility.GoogleCalendarService.getInstance().removeConsultationEvent(d, c.getCalendarEventId());
                     }
                 } catch (Exception ignored) {}
-                consultations.remove(i);
+                consultationRepo.remove(c);
                 persist();
                 return true;
             }
@@ -430,6 +331,7 @@ public class ConsultationMaintenance {
             }
         } catch (Exception ignored) {}
         c.setDate(newDate);
+        consultationRepo.update(c);
         persist();
         return true;
     }
@@ -454,7 +356,7 @@ public class ConsultationMaintenance {
                 c.setCalendarEventId(evId);
             }
         } catch (Exception ignored) {}
-        consultations.add(c);
+        consultationRepo.add(c);
         persist();
         return c;
     }
@@ -490,24 +392,16 @@ public class ConsultationMaintenance {
     }
 
     private void persist() {
-        consultationDAO.save(consultations);
+        consultationRepo.save();
     }
     
     public void refreshConsultationsFromFile() {
-        ADTInterface<Consultation> fresh = consultationDAO.load();
-        consultations.clear();
-        for (int i = 0; i < fresh.size(); i++) {
-            consultations.add(fresh.get(i));
-        }
+        consultationRepo.reload();
     }
     
     private void refreshDoctorsAndPatients() {
-        doctors.clear();
-        patients.clear();
-        ADTInterface<Doctor> freshDocs = doctorDAO.retrieveFromFile();
-        ADTInterface<Patient> freshPatients = patientDAO.retrieveFromFile();
-        for(int i=0; i<freshDocs.size(); i++) doctors.add(freshDocs.get(i));
-        for(int i=0; i<freshPatients.size(); i++) patients.add(freshPatients.get(i));
+        doctorRepo.reload();
+        patientRepo.reload();
     }
 
     
@@ -532,24 +426,11 @@ public class ConsultationMaintenance {
             return false;
         }
 
-        if (useCalendar) {
-            try {
-                if (!gcal.isDutyHour(doctor, date, hour)) {
-                    return false;
-                }
-            } catch (Exception ignored) {
-                // Fallback to local if gcal fails
-            }
+        if (useCalendar && !onDuty(gcal, doctor, date, hour)) {
+            return false;
         }
 
-        LocalDateTime slotDateTime = date.atTime(hour, 0);
-        for (int i = 0; i < consultations.size(); i++) {
-            Consultation c = consultations.get(i);
-            if (c.getDoctorId().equals(doctor.getId()) && c.getDate() != null && c.getDate().equals(slotDateTime)) {
-                return false;
-            }
-        }
-        return true;
+        return !index.isBooked(doctor.getId(), date, hour);
     }
     
     public String getDoctorDisplay(String doctorId) {
@@ -574,7 +455,7 @@ public class ConsultationMaintenance {
     public int totalBooked; public int totalCapacity; public int totalConsultations;
     // Most consultation hour(s)
     public int mostConsultationCount;
-    public ADTInterface<Integer> mostConsultationHours = new CustomADT<>();
+    public IntADT mostConsultationHours = new IntADT();
     public WorkloadUtilizationReport(){ for(int h=0;h<24;h++){ hours[h]=new HourBucket(); hours[h].hour=h; } }
     }
 
@@ -594,7 +475,7 @@ public class ConsultationMaintenance {
     // Simple key-less structure for available slots per day
     public static class SlotDay {
         public LocalDate date;
-        public ADTInterface<Integer> hours;
+        public IntADT hours;
     }
 
     // ===== Reporting generators (logic only, no printing) =====
@@ -602,6 +483,42 @@ public class ConsultationMaintenance {
         WorkloadUtilizationReport r = new WorkloadUtilizationReport();
         r.start = start; r.end = end;
 
+        // Controllers persist after every change, so once that write is done a store this
+        // console synced last, of the same size, matches the list
+        if (columns == null || !consultationRepo.isSaved()
+                || !columns.scan(consultations.size(), () -> countWorkloadFromColumns(r, start, end))) {
+            countWorkloadFromList(r, start, end);
+        }
+    // r.perDoctor already filled
+
+        // Capacity by hour using doctor schedules (ignores existing bookings)
+    for (int i = 0; i < doctors.size(); i++) {
+            Doctor doc = doctors.get(i); if (doc==null || doc.getSchedule()==null) continue;
+            LocalDate cur = start;
+            while (!cur.isAfter(end)) {
+                int dayIdx = cur.getDayOfWeek().getValue() - 1;
+                for (int h=0; h<24; h++) if (doc.getSchedule().isAvailable(dayIdx, h)) { r.hours[h].capacity++; r.totalCapacity++; }
+                cur = cur.plusDays(1);
+            }
+        }
+
+        // Percent% per hour: share of bookings this hour has over all bookings in the range
+        for (int h = 0; h < 24; h++) {
+            r.hours[h].percentOfBookings = (r.totalBooked == 0) ? 0.0 : (r.hours[h].booked * 100.0) / r.totalBooked;
+            r.hours[h].percentOfConsultations = (r.totalConsultations == 0) ? 0.0 : (r.hours[h].consultations * 100.0) / r.totalConsultations;
+        }
+        // Compute most consultation hours
+        int max = 0;
+        for (int h = 0; h < 24; h++) if (r.hours[h].consultations > max) max = r.hours[h].consultations;
+        r.mostConsultationCount = max;
+        r.mostConsultationHours.clear();
+        if (max > 0) {
+            for (int h = 0; h < 24; h++) if (r.hours[h].consultations == max) r.mostConsultationHours.add(h);
+        }
+        return r;
+    }
+
+    private void countWorkloadFromList(WorkloadUtilizationReport r, LocalDate start, LocalDate end) {
         // Per doctor counts: linear scan in list
         for (int i = 0; i < consultations.size(); i++) {
             Consultation c = consultations.get(i);
@@ -633,33 +550,43 @@ public class ConsultationMaintenance {
             // keep booked for backward compatibility
             if (c.getStatus() == Consultation.Status.BOOKED) { r.hours[hour].booked++; r.totalBooked++; }
         }
-    // r.perDoctor already filled
+    }
 
-        // Capacity by hour using doctor schedules (ignores existing bookings)
-    for (int i = 0; i < doctors.size(); i++) {
-            Doctor doc = doctors.get(i); if (doc==null || doc.getSchedule()==null) continue;
-            LocalDate cur = start;
-            while (!cur.isAfter(end)) {
-                int dayIdx = cur.getDayOfWeek().getValue() - 1;
-                for (int h=0; h<24; h++) if (doc.getSchedule().isAvailable(dayIdx, h)) { r.hours[h].capacity++; r.totalCapacity++; }
-                cur = cur.plusDays(1);
+    // Same counts as countWorkloadFromList, reading only the date, doctor and
+    // status columns of the mapped store
+    private void countWorkloadFromColumns(WorkloadUtilizationReport r, LocalDate start, LocalDate end) {
+        int from = MappedConsultationStore.epochMinute(start.atStartOfDay());
+        int to = MappedConsultationStore.epochMinute(end.plusDays(1).atStartOfDay()); // exclusive
+        IntADT docNumbers = new IntADT(); // parallel to r.perDoctor
+        for (int i = 0; i < columns.size(); i++) {
+            int minute = columns.epochMinute(i);
+            if (minute == MappedConsultationStore.NO_DATE || minute < from || minute >= to) continue;
+            int docNo = columns.doctorNumber(i);
+            WorkloadUtilizationReport.DoctorSummary ds = null;
+            String unparsedId = docNo == MappedConsultationStore.UNPARSED ? columns.doctorId(i) : null;
+            for (int j = 0; j < r.perDoctor.size(); j++) {
+                if (docNumbers.get(j) != docNo) continue;
+                if (unparsedId == null || unparsedId.equals(r.perDoctor.get(j).doctorId)) { ds = r.perDoctor.get(j); break; }
             }
-        }
+            if (ds == null) {
+                ds = new WorkloadUtilizationReport.DoctorSummary();
+                ds.doctorId = unparsedId != null ? unparsedId : columns.doctorId(i);
+                Doctor doc = findDoctor(ds.doctorId);
+                ds.doctorName = (doc==null? ds.doctorId : doc.getName());
+                r.perDoctor.add(ds);
+                docNumbers.add(docNo);
+            }
+            Consultation.Status status = columns.status(i);
+            if (status == Consultation.Status.BOOKED) { ds.booked++; r.overallBooked++; }
+            else if (status == Consultation.Status.ONGOING) { ds.ongoing++; r.overallOngoing++; }
+            else if (status == Consultation.Status.TREATED) { ds.treated++; r.overallTreated++; }
+            ds.total++; r.overallTotal++;
 
-        // Percent% per hour: share of bookings this hour has over all bookings in the range
-        for (int h = 0; h < 24; h++) {
-            r.hours[h].percentOfBookings = (r.totalBooked == 0) ? 0.0 : (r.hours[h].booked * 100.0) / r.totalBooked;
-            r.hours[h].percentOfConsultations = (r.totalConsultations == 0) ? 0.0 : (r.hours[h].consultations * 100.0) / r.totalConsultations;
-        }
-        // Compute most consultation hours
-        int max = 0;
-        for (int h = 0; h < 24; h++) if (r.hours[h].consultations > max) max = r.hours[h].consultations;
-        r.mostConsultationCount = max;
-        r.mostConsultationHours.clear();
-        if (max > 0) {
-            for (int h = 0; h < 24; h++) if (r.hours[h].consultations == max) r.mostConsultationHours.add(h);
+            int hour = Math.floorMod(minute, 24 * 60) / 60;
+            r.hours[hour].consultations++;
+            r.totalConsultations++;
+            if (status == Consultation.Status.BOOKED) { r.hours[hour].booked++; r.totalBooked++; }
         }
-        return r;
     }
 
     public FollowUpNoShowReport generateFollowUpAndNoShow(LocalDate start, LocalDate end, int thresholdHours) {
@@ -735,9 +662,11 @@ public class ConsultationMaintenance {
 
         for (int d = 0; d < days; d++) {
             LocalDate date = startDate.plusDays(d);
-            ADTInterface<Integer> hours = new CustomADT<>();
-            for (int h = 0; h < 24; h++) {
-                if (isSlotAvailable(doctor, date, h, useCalendar, gcal)) {
+            IntADT hours = new IntADT(24);
+            // Schedule and bookings in one AND; only the calendar is asked hour by hour
+            for (int free = availability.freeHours(doctor, date); free != 0; free &= free - 1) {
+                int h = Integer.numberOfTrailingZeros(free);
+                if (!useCalendar || onDuty(gcal, doctor, date, h)) {
                     hours.add(h);
                 }
             }
@@ -749,4 +678,30 @@ public class ConsultationMaintenance {
         }
         return out;
     }
+
+    /**
+     * The next count free slots from now on, across all doctors or those with the
+     * given specialization (null or blank for all), looking up to days ahead.
+     */
+    public ADTInterface<AvailabilityEngine.FreeSlot> findNextFreeSlots(int count, String specialization, int days) {
+        utility.GoogleCalendarService gcal;
+        try {
+            gcal = utility.GoogleCalendarService.getInstance();
+        } catch (Exception ex) {
+            gcal = null;
+        }
+        final utility.GoogleCalendarService cal = gcal;
+        AvailabilityEngine.HourCheck check = cal == null ? null : (doc, date, h) ->
+                doc.getCalendarId() == null || doc.getCalendarId().isEmpty() || onDuty(cal, doc, date, h);
+        return availability.nextFree(LocalDateTime.now(), count, days, specialization, check);
+    }
+
+    // Calendar duty check; a failing calendar does not block local availability
+    private boolean onDuty(utility.GoogleCalendarService gcal, Doctor doctor, LocalDate date, int hour) {
+        try {
+            return gcal.isDutyHour(doctor, date, hour);
+        } catch (Exception ignored) {
+            return true;
+        }
+    }
 }
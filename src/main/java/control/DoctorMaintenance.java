@@ -7,22 +7,25 @@ package control;
 
 import adt.ADTInterface;
 import adt.CustomADT;
-import dao.ConsultationDAO;
-import dao.DoctorDAO;
+import dao.ConsultationIndex;
+import dao.Repositories;
+import dao.Repository;
 import entity.Consultation;
 import entity.Doctor;
 import entity.SlotStatus;
+import java.util.Comparator;
+import java.util.function.Function;
 
 /**
  * Control for Doctor domain (logic-only, no UI/printing).
  */
 public class DoctorMaintenance {
-    private final DoctorDAO doctorDAO = new DoctorDAO();
-    private final ConsultationDAO consultationDAO = new ConsultationDAO();
+    private final Repository<Doctor> doctorRepo = Repositories.doctors();
+    private final ConsultationIndex consultationIndex = Repositories.consultationIndex();
     private final ADTInterface<Doctor> doctorList;
 
     public DoctorMaintenance() {
-        doctorList = doctorDAO.retrieveFromFile();
+        doctorList = doctorRepo.all();
     }
 
     // Queries
@@ -51,23 +54,16 @@ public class DoctorMaintenance {
         return results;
     }
 
+    /** The doctor's consultations, earliest first. */
     public ADTInterface<Consultation> getConsultationsByDoctor(String doctorId) {
-        ADTInterface<Consultation> all = consultationDAO.load();
-        ADTInterface<Consultation> result = new CustomADT<>();
-        for (int i = 0; i < all.size(); i++) {
-            Consultation c = all.get(i);
-            if (c != null && doctorId != null && doctorId.equals(c.getDoctorId())) {
-                result.add(c);
-            }
-        }
-        return result;
+        return consultationIndex.byDoctor(doctorId);
     }
 
     // Commands
     public Doctor addDoctor(String name, String specialization, String phone, String email) {
         Doctor d = new Doctor(null, name, specialization, phone, email);
         d.setId(generateNextDoctorId());
-        doctorList.add(d);
+        doctorRepo.add(d);
         persist();
         return d;
     }
@@ -81,6 +77,7 @@ public class DoctorMaintenance {
         existing.setPhoneNumber(updated.getPhoneNumber());
         existing.setEmail(updated.getEmail());
         // schedule changes should be applied directly on existing.getSchedule()
+        doctorRepo.update(existing);
         persist();
         return true;
     }
@@ -88,7 +85,7 @@ public class DoctorMaintenance {
     public boolean deleteDoctor(String doctorId) {
         Doctor d = findDoctorById(doctorId);
         if (d == null) return false;
-        doctorList.remove(d);
+        doctorRepo.remove(d);
         reassignDoctorIds();
         persist();
         return true;
@@ -101,6 +98,7 @@ public class DoctorMaintenance {
         if (endHour > 24) endHour = 24;
         if (endHour <= startHour) return false;
         d.getSchedule().setAvailabilityRange(day, startHour, endHour, status == null ? SlotStatus.AVAILABLE : status);
+        doctorRepo.update(d);
         persist();
         return true;
     }
@@ -123,87 +121,35 @@ public class DoctorMaintenance {
             Doctor d = doctorList.get(i);
             d.setId(String.format("D%04d", i + 1));
         }
+        doctorRepo.updateAll();
     }
 
-    public void persist() { doctorDAO.saveToFile(doctorList); }
+    public void persist() { doctorRepo.save(); }
 
     // === Sorting helpers (ascending / descending) ===
-    public void sortDoctorsByName() {
-        if (doctorList instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Doctor> l = (CustomADT<Doctor>) cadt;
-            l.sort(new CustomADT.ADTComparator<Doctor>() {
-                public int compare(Doctor a, Doctor b) {
-                    if (a == null || a.getName() == null) return -1;
-                    if (b == null || b.getName() == null) return 1;
-                    return a.getName().compareToIgnoreCase(b.getName());
-                }
-            });
-        }
-    }
+    // Each returns a sorted copy; the shared doctor list keeps its file order.
+    public ADTInterface<Doctor> sortDoctorsByName() { return sortedCopy(byText(Doctor::getName)); }
 
-    public void sortDoctorsByNameDesc() {
-        if (doctorList instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Doctor> l = (CustomADT<Doctor>) cadt;
-            l.sort(new CustomADT.ADTComparator<Doctor>() {
-                public int compare(Doctor a, Doctor b) {
-                    if (a == null || a.getName() == null) return 1;
-                    if (b == null || b.getName() == null) return -1;
-                    return b.getName().compareToIgnoreCase(a.getName());
-                }
-            });
-        }
-    }
+    public ADTInterface<Doctor> sortDoctorsByNameDesc() { return sortedCopy(byText(Doctor::getName).reversed()); }
 
-    public void sortDoctorsById() {
-        if (doctorList instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Doctor> l = (CustomADT<Doctor>) cadt;
-            l.sort(new CustomADT.ADTComparator<Doctor>() {
-                public int compare(Doctor a, Doctor b) {
-                    if (a == null || a.getId() == null) return -1;
-                    if (b == null || b.getId() == null) return 1;
-                    return a.getId().compareToIgnoreCase(b.getId());
-                }
-            });
-        }
-    }
+    public ADTInterface<Doctor> sortDoctorsById() { return sortedCopy(byText(Doctor::getId)); }
 
-    public void sortDoctorsByIdDesc() {
-        if (doctorList instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Doctor> l = (CustomADT<Doctor>) cadt;
-            l.sort(new CustomADT.ADTComparator<Doctor>() {
-                public int compare(Doctor a, Doctor b) {
-                    if (a == null || a.getId() == null) return 1;
-                    if (b == null || b.getId() == null) return -1;
-                    return b.getId().compareToIgnoreCase(a.getId());
-                }
-            });
-        }
-    }
+    public ADTInterface<Doctor> sortDoctorsByIdDesc() { return sortedCopy(byText(Doctor::getId).reversed()); }
 
-    public void sortDoctorsBySpecialty() {
-        if (doctorList instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Doctor> l = (CustomADT<Doctor>) cadt;
-            l.sort(new CustomADT.ADTComparator<Doctor>() {
-                public int compare(Doctor a, Doctor b) {
-                    if (a == null || a.getSpecialization() == null) return -1;
-                    if (b == null || b.getSpecialization() == null) return 1;
-                    return a.getSpecialization().compareToIgnoreCase(b.getSpecialization());
-                }
-            });
-        }
+    public ADTInterface<Doctor> sortDoctorsBySpecialty() { return sortedCopy(byText(Doctor::getSpecialization)); }
+
+    public ADTInterface<Doctor> sortDoctorsBySpecialtyDesc() { return sortedCopy(byText(Doctor::getSpecialization).reversed()); }
+
+    private ADTInterface<Doctor> sortedCopy(Comparator<Doctor> order) {
+        CustomADT<Doctor> l = CustomADT.copyOf(doctorList);
+        l.sort(order);
+        return l;
     }
 
-    public void sortDoctorsBySpecialtyDesc() {
-        if (doctorList instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Doctor> l = (CustomADT<Doctor>) cadt;
-            l.sort(new CustomADT.ADTComparator<Doctor>() {
-                public int compare(Doctor a, Doctor b) {
-                    if (a == null || a.getSpecialization() == null) return 1;
-                    if (b == null || b.getSpecialization() == null) return -1;
-                    return b.getSpecialization().compareToIgnoreCase(a.getSpecialization());
-                }
-            });
-        }
+    // Case-insensitive, missing values (and null doctors) first. Must be a consistent
+    // order: CustomADT.sort rejects comparators that break the Comparator contract.
+    private static Comparator<Doctor> byText(Function<Doctor, String> field) {
+        return Comparator.nullsFirst(Comparator.comparing(field, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)));
     }
 
     // === Search helpers ===
@@ -222,10 +168,7 @@ public class DoctorMaintenance {
         // Ensure this in-memory list reflects latest file content
     public void refreshFromFile() {
         try {
-            ADTInterface<Doctor> loaded = doctorDAO.retrieveFromFile();
-            // Simple replace contents
-            doctorList.clear();
-            for (int i = 0; i < loaded.size(); i++) doctorList.add(loaded.get(i));
+            doctorRepo.reload();
         } catch (Exception ignored) {}
     }
 }
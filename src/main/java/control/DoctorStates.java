@@ -0,0 +1,189 @@
+package control;
+
+import adt.ADTInterface;
+import adt.CustomADT;
+import adt.ObjectIntMap;
+import dao.Repository;
+import entity.Doctor;
+import java.lang.ref.WeakReference;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-duty and consulting state of every doctor for QueueMaintenance, as two
+ * bitsets over the doctor list as it was when the table was built (bit i =
+ * doctor[i], kept here so a later reorder of the live list cannot shift them).
+ *
+ * On-duty bits come from the schedules for the current wall-clock hour. A tick on
+ * each hour boundary only marks the table stale; the next read rebuilds it on the
+ * caller's thread, as it does when the doctors were saved or reloaded (schedule
+ * edits, new doctors), so the shared doctor list is never walked from the tick
+ * thread. Consulting is a count of IN_PROGRESS entries per doctor id that
+ * QueueMaintenance updates as patients are called and completed.
+ */
+class DoctorStates {
+    // One daemon thread ticks every table; a table nobody references stops being ticked
+    private static final ScheduledExecutorService TICKER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "doctor-state-tick");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Repository<Doctor> doctorRepo;
+    private final ObjectIntMap<String> bits = new ObjectIntMap<>(); // doctor id -> bit (dense, list order)
+    private Doctor[] doctor = new Doctor[0]; // bit -> doctor, captured by rebuild()
+    private final ObjectIntMap<String> inProgress = new ObjectIntMap<>(); // doctor id -> IN_PROGRESS entries
+    private long[] onDuty = new long[0];
+    private long[] consulting = new long[0];
+    private int onDutyCount;
+    private long builtVersion = -1;
+    private int builtSize;
+    private long hourEndsAt; // epoch millis; the on-duty bits are for the hour before this
+
+    DoctorStates(Repository<Doctor> doctorRepo) {
+        this.doctorRepo = doctorRepo;
+        rebuild();
+        scheduleTick(new WeakReference<>(this), hourEndsAt);
+    }
+
+    synchronized boolean isOnDuty(String doctorId) {
+        ensureCurrent();
+        int bit = doctorId == null ? -1 : bits.getOrDefault(doctorId, -1);
+        return bit >= 0 && test(onDuty, bit);
+    }
+
+    synchronized boolean isConsulting(String doctorId) {
+        return doctorId != null && inProgress.get(doctorId) > 0;
+    }
+
+    /** On duty and not consulting. */
+    synchronized boolean isFree(String doctorId) {
+        return isOnDuty(doctorId) && !isConsulting(doctorId);
+    }
+
+    synchronized boolean anyOnDuty() {
+        ensureCurrent();
+        return onDutyCount > 0;
+    }
+
+    synchronized boolean anyFree() {
+        ensureCurrent();
+        for (int w = 0; w < onDuty.length; w++) if ((onDuty[w] & ~consulting[w]) != 0) return true;
+        return false;
+    }
+
+    /** A random on-duty doctor, chosen among the free ones when there are any; null if none on duty. */
+    synchronized Doctor randomOnDuty() {
+        ensureCurrent();
+        int free = 0;
+        for (int w = 0; w < onDuty.length; w++) free += Long.bitCount(onDuty[w] & ~consulting[w]);
+        boolean onlyFree = free > 0;
+        int n = onlyFree ? free : onDutyCount;
+        if (n == 0) return null;
+        int pick = (int) (Math.random() * n);
+        for (int w = 0; w < onDuty.length; w++) {
+            long word = onlyFree ? onDuty[w] & ~consulting[w] : onDuty[w];
+            int c = Long.bitCount(word);
+            if (pick >= c) { pick -= c; continue; }
+            for (; pick > 0; pick--) word &= word - 1;
+            return doctor[w * 64 + Long.numberOfTrailingZeros(word)];
+        }
+        return null;
+    }
+
+    /** The on-duty doctors, in list order. */
+    synchronized ADTInterface<Doctor> onDutyDoctors() {
+        ensureCurrent();
+        CustomADT<Doctor> out = new CustomADT<>();
+        for (int w = 0; w < onDuty.length; w++) {
+            for (long word = onDuty[w]; word != 0; word &= word - 1) {
+                out.add(doctor[w * 64 + Long.numberOfTrailingZeros(word)]);
+            }
+        }
+        return out;
+    }
+
+    synchronized void startedConsulting(String doctorId) {
+        if (doctorId == null) return;
+        if (inProgress.addTo(doctorId, 1) == 1) setConsulting(doctorId, true);
+    }
+
+    synchronized void stoppedConsulting(String doctorId) {
+        if (doctorId == null || inProgress.get(doctorId) <= 0) return;
+        if (inProgress.addTo(doctorId, -1) == 0) setConsulting(doctorId, false);
+    }
+
+    synchronized void clearConsulting() {
+        inProgress.clear();
+        Arrays.fill(consulting, 0L);
+    }
+
+    // Called by the tick on the hour: the next read rebuilds for the new hour
+    private synchronized void expire() {
+        hourEndsAt = 0;
+    }
+
+    // Rebuilds after the tick, doctor edits, and a late tick (e.g. after a suspend)
+    private void ensureCurrent() {
+        if (builtVersion != doctorRepo.version() || builtSize != doctorRepo.all().size()
+                || System.currentTimeMillis() >= hourEndsAt) rebuild();
+    }
+
+    private void rebuild() {
+        ADTInterface<Doctor> doctors = doctorRepo.all();
+        LocalDateTime now = LocalDateTime.now();
+        int day = now.getDayOfWeek().getValue() - 1; // 0 = Monday
+        int hour = now.getHour();
+        int words = (doctors.size() + 63) >>> 6;
+        onDuty = new long[words];
+        consulting = new long[words];
+        doctor = new Doctor[doctors.size()];
+        bits.clear();
+        onDutyCount = 0;
+        for (int i = 0; i < doctors.size(); i++) {
+            Doctor d = doctors.get(i);
+            doctor[i] = d;
+            if (d == null || d.getId() == null) continue;
+            if (!bits.containsKey(d.getId())) bits.put(d.getId(), i); // first wins, like findById
+            if (d.getSchedule() != null && d.getSchedule().isAvailable(day, hour)) {
+                onDuty[i >>> 6] |= 1L << i;
+                onDutyCount++;
+            }
+            if (inProgress.get(d.getId()) > 0) consulting[i >>> 6] |= 1L << i;
+        }
+        builtVersion = doctorRepo.version();
+        builtSize = doctors.size();
+        hourEndsAt = nextHour(now);
+    }
+
+    private static long nextHour(LocalDateTime now) {
+        return now.truncatedTo(ChronoUnit.HOURS).plusHours(1)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void setConsulting(String doctorId, boolean on) {
+        int bit = bits.getOrDefault(doctorId, -1);
+        if (bit < 0) return; // not in the doctor list; still counted in inProgress
+        if (on) consulting[bit >>> 6] |= 1L << bit;
+        else consulting[bit >>> 6] &= ~(1L << bit);
+    }
+
+    private static boolean test(long[] set, int bit) {
+        return (set[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private static void scheduleTick(WeakReference<DoctorStates> ref, long at) {
+        long delay = Math.max(0, at - System.currentTimeMillis());
+        TICKER.schedule(() -> {
+            DoctorStates states = ref.get();
+            if (states == null) return;
+            states.expire();
+            scheduleTick(ref, nextHour(LocalDateTime.now()));
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -1,12 +1,12 @@
 package control;
 
 import java.util.Comparator;
+import java.util.function.Function;
 
 import adt.ADTInterface;
 import adt.CustomADT;
-import dao.ConsultationDAO;
-import dao.MedicationDAO;
-import dao.TreatmentDAO;
+import dao.Repositories;
+import dao.Repository;
 import entity.Consultation;
 import entity.Medication;
 import entity.Treatment;
@@ -15,11 +15,13 @@ import entity.Treatment;
  * Logic-only Medication maintenance. UI concerns live in boundary.MedicationMaintenanceUI.
  */
 public class MedicationMaintenance {
-    private final MedicationDAO dao = new MedicationDAO();
+    private final Repository<Medication> repo = Repositories.medications();
+    private final Repository<Treatment> treatmentRepo = Repositories.treatments();
+    private final Repository<Consultation> consultationRepo = Repositories.consultations();
     private ADTInterface<Medication> list = new CustomADT<>();
 
     public MedicationMaintenance() {
-        list = dao.load();
+        list = repo.all();
     }
 
     // Queries
@@ -28,25 +30,14 @@ public class MedicationMaintenance {
     }
 
     public Medication findById(String id) {
-        if (id == null) return null;
-        if (list instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Medication> l = (CustomADT<Medication>) cadt;
-            int idx = l.findIndex(new CustomADT.ADTPredicate<Medication>() {
-                public boolean test(Medication m) {
-                    return m.getId() != null && m.getId().equals(id);
-                }
-            });
-            return idx >= 0 ? l.get(idx) : null;
-        }
-        for (int i = 0; i < list.size(); i++) if (id.equals(list.get(i).getId())) return list.get(i);
-        return null;
+        return repo.findById(id);
     }
 
     // Commands
     public Medication addMedication(Medication m) {
         if (m == null) return null;
         if (m.getId() == null || m.getId().isBlank()) m.setId(generateNextId());
-        list.add(m);
+        repo.add(m);
         persist();
         return m;
     }
@@ -56,7 +47,7 @@ public class MedicationMaintenance {
         for (int i = 0; i < list.size(); i++) {
             Medication cur = list.get(i);
             if (updated.getId().equals(cur.getId())) {
-                list.set(i, updated);
+                repo.update(updated);
                 persist();
                 return true;
             }
@@ -72,7 +63,7 @@ public class MedicationMaintenance {
                 public boolean test(Medication m) { return m.getId() != null && m.getId().equals(id); }
             });
             if (idx >= 0) {
-                l.remove(idx);
+                repo.remove(l.get(idx));
                 persist();
                 return true;
             }
@@ -80,7 +71,7 @@ public class MedicationMaintenance {
         }
         for (int i = 0; i < list.size(); i++) {
             if (id.equals(list.get(i).getId())) {
-                list.remove(i);
+                repo.remove(list.get(i));
                 persist();
                 return true;
             }
@@ -89,8 +80,7 @@ public class MedicationMaintenance {
     }
 
     public CustomADT<Treatment> getPendingMedicationTreatments() {
-        TreatmentDAO tdao = new TreatmentDAO();
-        ADTInterface<Treatment> treatments = tdao.load();
+        ADTInterface<Treatment> treatments = treatmentRepo.all();
         CustomADT<Treatment> pending = new CustomADT<>();
         for (int i = 0; i < treatments.size(); i++) {
             Treatment t = treatments.get(i);
@@ -104,14 +94,7 @@ public class MedicationMaintenance {
 
     public boolean dispenseTreatment(String treatmentId) {
         if (treatmentId == null || treatmentId.isBlank()) return false;
-        // Load treatments
-        TreatmentDAO tdao = new TreatmentDAO();
-        ADTInterface<Treatment> treatments = tdao.load();
-        int tIdx = -1; Treatment tr = null;
-        for (int i = 0; i < treatments.size(); i++) {
-            Treatment t = treatments.get(i);
-            if (t != null && treatmentId.equals(t.getId())) { tIdx = i; tr = t; break; }
-        }
+        Treatment tr = treatmentRepo.findById(treatmentId);
     if (tr == null || tr.getType() != Treatment.Type.MEDICATION) return false;
     // Enforce payment first: only dispense when treatment has been paid (COMPLETED)
     if (tr.getStatus() != Treatment.TreatmentStatus.COMPLETED) return false;
@@ -130,21 +113,16 @@ public class MedicationMaintenance {
 
     // Mark treatment dispensed and save
     tr.setStatus(Treatment.TreatmentStatus.DISPENSED);
-        treatments.set(tIdx, tr);
-        tdao.save(treatments);
+        treatmentRepo.update(tr);
+        treatmentRepo.save();
 
         // Update linked consultation status to TREATED
         if (tr.getConsultationId() != null && !tr.getConsultationId().isBlank()) {
-            ConsultationDAO cdao = new ConsultationDAO();
-            ADTInterface<Consultation> consultations = cdao.load();
-            for (int i = 0; i < consultations.size(); i++) {
-                Consultation c = consultations.get(i);
-                if (c != null && tr.getConsultationId().equals(c.getId())) {
-                    c.setStatus(Consultation.Status.TREATED);
-                    consultations.set(i, c);
-                    cdao.save(consultations);
-                    break;
-                }
+            Consultation c = consultationRepo.findById(tr.getConsultationId());
+            if (c != null) {
+                c.setStatus(Consultation.Status.TREATED);
+                consultationRepo.update(c);
+                consultationRepo.save();
             }
         }
         return true;
@@ -162,13 +140,12 @@ public class MedicationMaintenance {
         return String.format("M%04d", max + 1);
     }
 
-    private void persist() { dao.save(list); }
+    private void persist() { repo.save(); }
 
     // Report: how many of each medication has been dispensed (sold)
     public CustomADT<DispensedCount> getMedicationDispensedCounts() {
         CustomADT<DispensedCount> dispensedCounts = new CustomADT<>();
-        TreatmentDAO tdao = new TreatmentDAO();
-        ADTInterface<Treatment> treatments = tdao.load();
+        ADTInterface<Treatment> treatments = treatmentRepo.all();
         for (int i = 0; i < treatments.size(); i++) {
             Treatment t = treatments.get(i);
             if (t != null && t.getType() == Treatment.Type.MEDICATION && t.getStatus() == Treatment.TreatmentStatus.DISPENSED) {
@@ -235,86 +212,62 @@ public class MedicationMaintenance {
         return out;
     }
 
+    // Sorts return a copy; the shared medication list keeps its file order.
+
     // Sort medications by quantity (ascending)
-    public void sortMedicationsByQuantity() {
-        if (list instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked")
-            CustomADT<Medication> l = (CustomADT<Medication>) cadt;
-            l.sort(new Comparator<Medication>() {
-                @Override
-                public int compare(Medication m1, Medication m2) {
-                    Integer q1 = m1 == null || m1.getQuantity() == null ? 0 : m1.getQuantity();
-                    Integer q2 = m2 == null || m2.getQuantity() == null ? 0 : m2.getQuantity();
-                    return q1.compareTo(q2);
-                }
-            });
-        }
+    public ADTInterface<Medication> sortMedicationsByQuantity() {
+        CustomADT<Medication> l = CustomADT.copyOf(list);
+        l.sort(new Comparator<Medication>() {
+            @Override
+            public int compare(Medication m1, Medication m2) {
+                Integer q1 = m1 == null || m1.getQuantity() == null ? 0 : m1.getQuantity();
+                Integer q2 = m2 == null || m2.getQuantity() == null ? 0 : m2.getQuantity();
+                return q1.compareTo(q2);
+            }
+        });
+        return l;
     }
 
     // Sort medications by quantity (descending)
-    public void sortMedicationsByQuantityDesc() {
-        if (list instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked")
-            CustomADT<Medication> l = (CustomADT<Medication>) cadt;
-            l.sort((CustomADT.ADTComparator<Medication>) (m1, m2) -> {
-                Integer q1 = m1 == null || m1.getQuantity() == null ? 0 : m1.getQuantity();
-                Integer q2 = m2 == null || m2.getQuantity() == null ? 0 : m2.getQuantity();
-                return q2.compareTo(q1);
-            });
-        }
+    public ADTInterface<Medication> sortMedicationsByQuantityDesc() {
+        CustomADT<Medication> l = CustomADT.copyOf(list);
+        l.sort((CustomADT.ADTComparator<Medication>) (m1, m2) -> {
+            Integer q1 = m1 == null || m1.getQuantity() == null ? 0 : m1.getQuantity();
+            Integer q2 = m2 == null || m2.getQuantity() == null ? 0 : m2.getQuantity();
+            return q2.compareTo(q1);
+        });
+        return l;
     }
     // Sort medications by ID (ascending)
-    public void sortMedicationsById() {
-        if (list instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked")
-            CustomADT<Medication> l = (CustomADT<Medication>) cadt;
-            l.sort((CustomADT.ADTComparator<Medication>) (m1, m2) -> {
-                if (m1 == null || m1.getId() == null) return -1;
-                if (m2 == null || m2.getId() == null) return 1;
-                return m1.getId().compareToIgnoreCase(m2.getId());
-            });
-        }
+    public ADTInterface<Medication> sortMedicationsById() {
+        CustomADT<Medication> l = CustomADT.copyOf(list);
+        l.sort(byText(Medication::getId));
+        return l;
     }
 
     // Sort medications by ID (descending)
-    public void sortMedicationsByIdDesc() {
-        if (list instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked")
-            CustomADT<Medication> l = (CustomADT<Medication>) cadt;
-            l.sort((CustomADT.ADTComparator<Medication>) (m1, m2) -> {
-                if (m1 == null || m1.getId() == null) return 1;
-                if (m2 == null || m2.getId() == null) return -1;
-                return m2.getId().compareToIgnoreCase(m1.getId());
-            });
-        }
+    public ADTInterface<Medication> sortMedicationsByIdDesc() {
+        CustomADT<Medication> l = CustomADT.copyOf(list);
+        l.sort(byText(Medication::getId).reversed());
+        return l;
     }
     // Sort medications by name (descending)
-    public void sortMedicationsByNameDesc() {
-        if (list instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked")
-            CustomADT<Medication> l = (CustomADT<Medication>) cadt;
-            l.sort((CustomADT.ADTComparator<Medication>) (m1, m2) -> {
-                if (m1 == null || m1.getName() == null) return 1;
-                if (m2 == null || m2.getName() == null) return -1;
-                return m2.getName().compareToIgnoreCase(m1.getName());
-            });
-        }
+    public ADTInterface<Medication> sortMedicationsByNameDesc() {
+        CustomADT<Medication> l = CustomADT.copyOf(list);
+        l.sort(byText(Medication::getName).reversed());
+        return l;
     }
 
     // Sort medications by name (ascending)
-    public void sortMedicationsByName() {
-        if (list instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked")
-            CustomADT<Medication> l = (CustomADT<Medication>) cadt;
-            l.sort(new Comparator<Medication>() {
-                @Override
-                public int compare(Medication m1, Medication m2) {
-                    if (m1 == null || m1.getName() == null) return -1;
-                    if (m2 == null || m2.getName() == null) return 1;
-                    return m1.getName().compareToIgnoreCase(m2.getName());
-                }
-            });
-        }
+    public ADTInterface<Medication> sortMedicationsByName() {
+        CustomADT<Medication> l = CustomADT.copyOf(list);
+        l.sort(byText(Medication::getName));
+        return l;
+    }
+
+    // Ignores case; a medication without the field sorts first (both directions stay a total order)
+    private static Comparator<Medication> byText(Function<Medication, String> field) {
+        return Comparator.nullsFirst(Comparator.comparing(field, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)));
     }
 
     // Helper class for dispensed count
@@ -7,39 +7,42 @@ package control;
 
 import adt.ADTInterface;
 import adt.CustomADT;
-import dao.ConsultationDAO;
-import dao.DoctorDAO;
-import dao.MedicationDAO;
-import dao.PatientDAO;
-import dao.TreatmentDAO;
+import adt.LongADT;
+import adt.ObjectIntMap;
+import dao.ConsultationIndex;
+import dao.Repositories;
+import dao.Repository;
 import entity.Consultation;
 import entity.Doctor;
 import entity.Medication;
 import entity.Patient;
 import entity.Treatment;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * PatientMaintenance: business logic and data coordination only.
  * UI lives in boundary.PatientMaintenanceUI.
  */
 public class PatientMaintenance {
-    private final ADTInterface<Patient> patientList = new CustomADT<>();
-    private final PatientDAO patientDAO = new PatientDAO();
-    private final ConsultationDAO consultationDAO = new ConsultationDAO();
-    private final TreatmentDAO treatmentDAO = new TreatmentDAO();
-    private final MedicationDAO medicationDAO = new MedicationDAO();
-    private final DoctorDAO doctorDAO = new DoctorDAO();
+    private final Repository<Patient> patientRepo = Repositories.patients();
+    private final Repository<Consultation> consultationRepo = Repositories.consultations();
+    private final ConsultationIndex consultationIndex = Repositories.consultationIndex();
+    private final Repository<Treatment> treatmentRepo = Repositories.treatments();
+    private final Repository<Medication> medicationRepo = Repositories.medications();
+    private final Repository<Doctor> doctorRepo = Repositories.doctors();
     private final dao.QueueDAO queueDAO = new dao.QueueDAO();
-
-    public PatientMaintenance() {
-        ADTInterface<Patient> loaded = patientDAO.retrieveFromFile();
-        for (int i = 0; i < loaded.size(); i++) patientList.add(loaded.get(i));
-    }
+    private final ADTInterface<Patient> patientList = patientRepo.all();
 
     // Queries
     public ADTInterface<Patient> getAllPatients() {
-    // Do not refresh from file on every call — return the in-memory list so
-    // in-place sorts (mutations) are visible to the UI, matching Medication style.
+    // Do not refresh from file on every call — return the shared in-memory list
+    // (sorts return copies, so it stays in file order).
     return patientList;
     }
 
@@ -63,74 +66,64 @@ public class PatientMaintenance {
         if (query == null) return results;
         String lowerQuery = query.toLowerCase();
 
-        // Try binary search for exact ID match
-        if (patientList instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Patient> list = (CustomADT<Patient>) cadt;
-            // Sort by ID for binary search
-            list.mergeSort(new CustomADT.ADTComparator<Patient>() {
-                public int compare(Patient a, Patient b) {
-                    String ia = a == null || a.getId() == null ? "" : a.getId();
-                    String ib = b == null || b.getId() == null ? "" : b.getId();
-                    return ia.compareToIgnoreCase(ib);
-                }
-            });
-            Patient probe = new Patient(query, null, null, null, null, null, null);
-            int idx = list.binarySearch(probe, new CustomADT.ADTComparator<Patient>() {
-                public int compare(Patient a, Patient b) {
-                    String ia = a == null || a.getId() == null ? "" : a.getId();
-                    String ib = b == null || b.getId() == null ? "" : b.getId();
-                    return ia.compareToIgnoreCase(ib);
-                }
-            });
-            if (idx >= 0) {
-                results.add(list.get(idx));
-                return results;
+        // Try binary search for exact ID match, on a copy so the shared list keeps its file order
+        CustomADT<Patient> list = CustomADT.copyOf(patientList);
+        // Sort by ID for binary search
+        list.mergeSort(new CustomADT.ADTComparator<Patient>() {
+            public int compare(Patient a, Patient b) {
+                String ia = a == null || a.getId() == null ? "" : a.getId();
+                String ib = b == null || b.getId() == null ? "" : b.getId();
+                return ia.compareToIgnoreCase(ib);
             }
-            // If not found by ID, try binary search for exact name match
-            list.mergeSort(new CustomADT.ADTComparator<Patient>() {
-                public int compare(Patient a, Patient b) {
-                    String na = a == null || a.getName() == null ? "" : a.getName();
-                    String nb = b == null || b.getName() == null ? "" : b.getName();
-                    return na.compareToIgnoreCase(nb);
-                }
-            });
-            Patient nameProbe = new Patient(null, query, null, null, null, null, null);
-            int nameIdx = list.binarySearch(nameProbe, new CustomADT.ADTComparator<Patient>() {
-                public int compare(Patient a, Patient b) {
-                    String na = a == null || a.getName() == null ? "" : a.getName();
-                    String nb = b == null || b.getName() == null ? "" : b.getName();
-                    return na.compareToIgnoreCase(nb);
-                }
-            });
-            if (nameIdx >= 0) {
-                results.add(list.get(nameIdx));
-                return results;
+        });
+        Patient probe = new Patient(query, null, null, null, null, null, null);
+        int idx = list.binarySearch(probe, new CustomADT.ADTComparator<Patient>() {
+            public int compare(Patient a, Patient b) {
+                String ia = a == null || a.getId() == null ? "" : a.getId();
+                String ib = b == null || b.getId() == null ? "" : b.getId();
+                return ia.compareToIgnoreCase(ib);
             }
-            // Fallback: linear search for partial name matches
-            for (int i = 0; i < list.size(); i++) {
-                Patient patient = list.get(i);
-                if (patient.getName() != null && patient.getName().toLowerCase().contains(lowerQuery)) {
-                    results.add(patient);
-                }
+        });
+        if (idx >= 0) {
+            results.add(list.get(idx));
+            return results;
+        }
+        // If not found by ID, try binary search for exact name match
+        list.mergeSort(new CustomADT.ADTComparator<Patient>() {
+            public int compare(Patient a, Patient b) {
+                String na = a == null || a.getName() == null ? "" : a.getName();
+                String nb = b == null || b.getName() == null ? "" : b.getName();
+                return na.compareToIgnoreCase(nb);
+            }
+        });
+        Patient nameProbe = new Patient(null, query, null, null, null, null, null);
+        int nameIdx = list.binarySearch(nameProbe, new CustomADT.ADTComparator<Patient>() {
+            public int compare(Patient a, Patient b) {
+                String na = a == null || a.getName() == null ? "" : a.getName();
+                String nb = b == null || b.getName() == null ? "" : b.getName();
+                return na.compareToIgnoreCase(nb);
             }
+        });
+        if (nameIdx >= 0) {
+            results.add(list.get(nameIdx));
             return results;
         }
- 
+        // Fallback: linear search for partial name matches
+        for (int i = 0; i < list.size(); i++) {
+            Patient patient = list.get(i);
+            if (patient.getName() != null && patient.getName().toLowerCase().contains(lowerQuery)) {
+                results.add(patient);
+            }
+        }
         return results;
     }
 
     public ADTInterface<Consultation> getConsultationsByPatient(String patientId) {
-        ADTInterface<Consultation> all = consultationDAO.load();
-        ADTInterface<Consultation> filtered = new CustomADT<>();
-        for (int i = 0; i < all.size(); i++) {
-            Consultation c = all.get(i);
-            if (c.getPatientId() != null && c.getPatientId().equals(patientId)) filtered.add(c);
-        }
-        return filtered;
+        return consultationIndex.byPatient(patientId);
     }
 
     public ADTInterface<Treatment> getTreatmentsByConsultation(String consultationId) {
-        ADTInterface<Treatment> all = treatmentDAO.load();
+        ADTInterface<Treatment> all = treatmentRepo.all();
         ADTInterface<Treatment> filtered = new CustomADT<>();
         for (int i = 0; i < all.size(); i++) {
             Treatment t = all.get(i);
@@ -139,27 +132,21 @@ public class PatientMaintenance {
         return filtered;
     }
 
-    public ADTInterface<Medication> getAllMedications() { return medicationDAO.load(); }
-    public ADTInterface<Doctor> getAllDoctors() { return doctorDAO.retrieveFromFile(); }
+    public ADTInterface<Medication> getAllMedications() { return medicationRepo.all(); }
+    public ADTInterface<Doctor> getAllDoctors() { return doctorRepo.all(); }
 
     public int countConsultationsForPatient(String patientId) {
-        ADTInterface<Consultation> all = consultationDAO.load();
-        int count = 0;
-        for (int i = 0; i < all.size(); i++) if (patientId.equals(all.get(i).getPatientId())) count++;
-        return count;
+        return consultationIndex.countForPatient(patientId);
     }
 
     public int countTreatmentsForPatient(String patientId) {
-        ADTInterface<Consultation> allConsults = consultationDAO.load();
-        ADTInterface<Treatment> allTreats = treatmentDAO.load();
+        ADTInterface<Treatment> allTreats = treatmentRepo.all();
         int count = 0;
         for (int i = 0; i < allTreats.size(); i++) {
             Treatment t = allTreats.get(i);
             if (t.getConsultationId() == null) continue;
-            for (int j = 0; j < allConsults.size(); j++) {
-                Consultation c = allConsults.get(j);
-                if (patientId.equals(c.getPatientId()) && t.getConsultationId().equals(c.getId())) { count++; break; }
-            }
+            Consultation c = consultationRepo.findById(t.getConsultationId());
+            if (c != null && patientId.equals(c.getPatientId())) count++;
         }
         return count;
     }
@@ -187,7 +174,7 @@ public class PatientMaintenance {
     public Patient addPatient(String name, String gender, String phone, String email, String dob, String nationality) {
         Patient newPatient = new Patient(null, name, gender, phone, email, dob, nationality);
         newPatient.setId(generateNextPatientId());
-        patientList.add(newPatient);
+        patientRepo.add(newPatient);
         persist();
         return newPatient;
     }
@@ -196,7 +183,7 @@ public class PatientMaintenance {
         if (updated == null || updated.getId() == null) return false;
         for (int i = 0; i < patientList.size(); i++) {
             if (updated.getId().equals(patientList.get(i).getId())) {
-                patientList.set(i, updated);
+                patientRepo.update(updated);
                 persist();
                 return true;
             }
@@ -207,7 +194,7 @@ public class PatientMaintenance {
     public boolean deletePatient(String id) {
         Patient p = findPatientById(id);
         if (p == null) return false;
-        patientList.remove(p);
+        patientRepo.remove(p);
         reassignPatientIds();
         persist();
         return true;
@@ -217,95 +204,149 @@ public class PatientMaintenance {
     public static class DemographicsReport {
         public int totalPatients;
         public double averageAge;
-        public ADTInterface<String> genderCounts;
-        public ADTInterface<String> nationalityCounts;
-        public ADTInterface<String> ageGroupCounts;
+        // key -> count, in first-seen order (age groups in fixed band order)
+        public ObjectIntMap<String> genderCounts;
+        public ObjectIntMap<String> nationalityCounts;
+        public ObjectIntMap<String> ageGroupCounts;
         public int highFrequencyPatients;
         public ADTInterface<String> highFrequencyList; // entries formatted as "ID|Name|Visits"
-        public String csv;
+        public String csv; // only from generateDemographicsReportWithCsv(); the other forms stream it or skip it
     }
 
+    /** Build the summary figures only; no CSV rows are produced and r.csv stays null. */
     public DemographicsReport generateDemographicsReport() {
+        try {
+            return buildDemographicsReport(null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // nothing is written, so nothing can fail
+        }
+    }
+
+    /**
+     * Build the report with the whole CSV in r.csv. Holds every row on the heap;
+     * prefer a Writer or OutputStream for large patient lists.
+     */
+    public DemographicsReport generateDemographicsReportWithCsv() {
+        StringWriter csv = new StringWriter();
+        DemographicsReport r;
+        try {
+            r = buildDemographicsReport(csv);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // a StringWriter does not fail
+        }
+        r.csv = csv.toString();
+        return r;
+    }
+
+    /** Build the report, streaming the CSV as UTF-8 to out (flushed, not closed). */
+    public DemographicsReport generateDemographicsReport(OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        DemographicsReport r = generateDemographicsReport(w);
+        w.flush();
+        return r;
+    }
+
+    /**
+     * Build the report, writing CSV rows to out as they are produced so the whole
+     * file never sits on the heap. r.csv is left null. out is not flushed or closed.
+     */
+    public DemographicsReport generateDemographicsReport(Writer out) throws IOException {
+        if (out == null) throw new IllegalArgumentException("out is required");
+        return buildDemographicsReport(out);
+    }
+
+    // out == null: summary only, CSV rows are skipped
+    private DemographicsReport buildDemographicsReport(Writer out) throws IOException {
         DemographicsReport r = new DemographicsReport();
         r.totalPatients = patientList.size();
         double ageSum = 0.0;
-        ADTInterface<String> genderCounts = new CustomADT<>();
-        ADTInterface<String> nationalityCounts = new CustomADT<>();
-        ADTInterface<String> ageGroups = new CustomADT<>();
-        ageGroups.add("0-17:0");
-        ageGroups.add("18-35:0");
-        ageGroups.add("36-50:0");
-        ageGroups.add("51-65:0");
-        ageGroups.add("66+:0");
-
-    StringBuilder csv = new StringBuilder();
-    csv.append("id,name,dateOfBirth,age,gender,phone,email,nationality,visitCount,lastVisitDate,chronicFlag\n");
-
-    ADTInterface<Consultation> allConsults = consultationDAO.load();
+        ObjectIntMap<String> genderCounts = new ObjectIntMap<>();
+        ObjectIntMap<String> nationalityCounts = new ObjectIntMap<>();
+        ObjectIntMap<String> ageGroups = new ObjectIntMap<>();
+        ageGroups.put("0-17", 0);
+        ageGroups.put("18-35", 0);
+        ageGroups.put("36-50", 0);
+        ageGroups.put("51-65", 0);
+        ageGroups.put("66+", 0);
+
+    if (out != null) out.write("id,name,dateOfBirth,age,gender,phone,email,nationality,visitCount,lastVisitDate,chronicFlag\n");
+    StringBuilder row = new StringBuilder(128); // reused for every row
+
+    ADTInterface<Consultation> allConsults = consultationRepo.all();
     int highFreq = 0;
     ADTInterface<String> highList = new CustomADT<>();
 
+        // One pass over consultations: visit count and latest visit per patient,
+        // aligned by insertion index (epoch day, NO_VISIT when no dated visit)
+        ObjectIntMap<String> visitsByPatient = new ObjectIntMap<>(allConsults.size());
+        LongADT lastVisitDays = new LongADT();
+        for (int j = 0; j < allConsults.size(); j++) {
+            Consultation c = allConsults.get(j);
+            String pid = c.getPatientId();
+            if (pid == null) continue;
+            int slot = visitsByPatient.indexOf(pid);
+            if (slot < 0) {
+                visitsByPatient.put(pid, 1);
+                lastVisitDays.add(NO_VISIT);
+                slot = visitsByPatient.size() - 1;
+            } else {
+                visitsByPatient.increment(pid);
+            }
+            if (c.getDate() != null) {
+                try {
+                    java.time.LocalDate d = c.getDate().toLocalDate();
+                    if (d != null && d.toEpochDay() > lastVisitDays.get(slot)) lastVisitDays.set(slot, d.toEpochDay());
+                } catch(Exception ignored) {}
+            }
+        }
+
         for (int i = 0; i < patientList.size(); i++) {
             Patient p = patientList.get(i);
             String ageStr = p.calculateAge(p.getDateOfBirth());
             int age = 0; try { age = Integer.parseInt(ageStr); } catch(Exception ignored) {}
             ageSum += age;
 
-            incrementCount(genderCounts, safe(p.getGender()));
-            incrementCount(nationalityCounts, safe(p.getNationality()));
-
-            if (age <= 17) incrementCount(ageGroups, "0-17");
-            else if (age <= 35) incrementCount(ageGroups, "18-35");
-            else if (age <= 50) incrementCount(ageGroups, "36-50");
-            else if (age <= 65) incrementCount(ageGroups, "51-65");
-            else incrementCount(ageGroups, "66+");
-
-            int visitCount = 0; java.time.LocalDate lastVisit = null;
-            for (int j = 0; j < allConsults.size(); j++) {
-                Consultation c = allConsults.get(j);
-                if (p.getId().equals(c.getPatientId())) {
-                    visitCount++;
-                    if (c.getDate() != null) {
-                        try {
-                            java.time.LocalDate d = c.getDate().toLocalDate();
-                            if (d != null && (lastVisit == null || d.isAfter(lastVisit))) lastVisit = d;
-                        } catch(Exception ignored) {}
-                    }
-                }
-            }
+            genderCounts.increment(safe(p.getGender()));
+            nationalityCounts.increment(safe(p.getNationality()));
+
+            if (age <= 17) ageGroups.increment("0-17");
+            else if (age <= 35) ageGroups.increment("18-35");
+            else if (age <= 50) ageGroups.increment("36-50");
+            else if (age <= 65) ageGroups.increment("51-65");
+            else ageGroups.increment("66+");
+
+            int slot = visitsByPatient.indexOf(p.getId());
+            int visitCount = slot >= 0 ? visitsByPatient.valueAt(slot) : 0;
+            long lastDay = slot >= 0 ? lastVisitDays.get(slot) : NO_VISIT;
+            java.time.LocalDate lastVisit = lastDay == NO_VISIT ? null : java.time.LocalDate.ofEpochDay(lastDay);
             boolean chronic = visitCount >= 5;
             if (visitCount >= 5) {
                 highFreq++;
                 highList.add(p.getId()+"|"+escapeCsv(p.getName())+"|"+visitCount);
             }
+            if (out == null) continue;
             String lastVisitStr = lastVisit==null?"":lastVisit.toString();
-            csv.append(String.format("%s,%s,%s,%d,%s,%s,%s,%s,%d,%s,%b\n",
-                p.getId(), escapeCsv(p.getName()), p.getDateOfBirth(), age, safe(p.getGender()), safe(p.getPhoneNumber()), safe(p.getEmail()), safe(p.getNationality()), visitCount, lastVisitStr, chronic));
+            row.setLength(0);
+            row.append(p.getId()).append(',').append(escapeCsv(p.getName())).append(',')
+               .append(p.getDateOfBirth()).append(',').append(age).append(',')
+               .append(safe(p.getGender())).append(',').append(safe(p.getPhoneNumber())).append(',')
+               .append(safe(p.getEmail())).append(',').append(safe(p.getNationality())).append(',')
+               .append(visitCount).append(',').append(lastVisitStr).append(',').append(chronic).append('\n');
+            out.append(row);
         }
 
         r.averageAge = r.totalPatients==0?0.0:ageSum / r.totalPatients;
         r.highFrequencyPatients = highFreq;
         r.highFrequencyList = highList;
-        r.genderCounts = genderCounts; r.nationalityCounts = nationalityCounts; r.ageGroupCounts = ageGroups; r.csv = csv.toString();
+        r.genderCounts = genderCounts; r.nationalityCounts = nationalityCounts; r.ageGroupCounts = ageGroups;
         return r;
     }
 
+    private static final long NO_VISIT = Long.MIN_VALUE;
+
     private String safe(String s) { return s==null?"":s; }
     private static String escapeCsv(String s) { if (s==null) return ""; return s.contains(",")?('"'+s.replace("\"","\"\"")+'"'):s; }
 
-    // increment a 'key:count' stored as strings in ADTInterface
-    private void incrementCount(ADTInterface<String> list, String key) {
-        if (key == null) key = "";
-        for (int i = 0; i < list.size(); i++) {
-            String kv = list.get(i);
-            int idx = kv.indexOf(':');
-            String k = idx>=0?kv.substring(0,idx):kv;
-            int v = 0; try { v = Integer.parseInt(idx>=0?kv.substring(idx+1):"0"); } catch(Exception ex) { v = 0; }
-            if (k.equals(key)) { list.set(i, k + ":" + (v+1)); return; }
-        }
-        list.add(key + ":1");
-    }
-
     private String generateNextPatientId() {
         int maxId = 0;
         for (int i = 0; i < patientList.size(); i++) {
@@ -324,36 +365,23 @@ public class PatientMaintenance {
         if (tempList instanceof CustomADT<?> cadt) {
             @SuppressWarnings("unchecked") CustomADT<Patient> list = (CustomADT<Patient>) cadt;
             list.sort(new CustomADT.ADTComparator<Patient>(){
-                public int compare(Patient a, Patient b){
-                    try { int n1=Integer.parseInt(a.getId().substring(1)); int n2=Integer.parseInt(b.getId().substring(1)); return Integer.compare(n1,n2);}catch(Exception e){return 0;}
-                }
+                public int compare(Patient a, Patient b){ return Integer.compare(idNumber(a), idNumber(b)); }
             });
         }
         for (int i = 0; i < tempList.size(); i++) { tempList.get(i).setId(String.format("P%04d", i + 1)); patientList.set(i, tempList.get(i)); }
+        patientRepo.updateAll();
+    }
+
+    // Numeric part of a "P0001" id; ids that don't parse go last, in their current order
+    private static int idNumber(Patient p) {
+        try { return Integer.parseInt(p.getId().substring(1)); } catch (Exception e) { return Integer.MAX_VALUE; }
     }
 
     /**
-     * Return patients sorted by ID using CustomADT.mergeSort when available.
+     * Return a copy of the patients sorted by ID using CustomADT.mergeSort.
      */
     public ADTInterface<Patient> getPatientsSortedById() {
-        // In-place sort of the internal list by ID when using CustomADT
-        if (patientList instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Patient> list = (CustomADT<Patient>) cadt;
-            list.mergeSort(new CustomADT.ADTComparator<Patient>(){
-                public int compare(Patient a, Patient b) {
-                    if (a == null && b == null) return 0;
-                    if (a == null) return -1;
-                    if (b == null) return 1;
-                    String ia = a.getId() == null ? "" : a.getId();
-                    String ib = b.getId() == null ? "" : b.getId();
-                    return ia.compareToIgnoreCase(ib);
-                }
-            });
-            return list;
-        }
-        // Fallback: return a sorted copy if underlying ADT doesn't support in-place sort
-        CustomADT<Patient> out = new CustomADT<>();
-        for (int i = 0; i < patientList.size(); i++) out.add(patientList.get(i));
+        CustomADT<Patient> out = CustomADT.copyOf(patientList);
         out.mergeSort(new CustomADT.ADTComparator<Patient>(){
             public int compare(Patient a, Patient b) {
                 if (a == null && b == null) return 0;
@@ -368,26 +396,10 @@ public class PatientMaintenance {
     }
 
     /**
-     * Return patients sorted by name using CustomADT.mergeSort when available.
+     * Return a copy of the patients sorted by name using CustomADT.mergeSort.
      */
     public ADTInterface<Patient> getPatientsSortedByName() {
-        // In-place sort by name
-        if (patientList instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Patient> list = (CustomADT<Patient>) cadt;
-            list.mergeSort(new CustomADT.ADTComparator<Patient>(){
-                public int compare(Patient a, Patient b) {
-                    if (a == null && b == null) return 0;
-                    if (a == null) return -1;
-                    if (b == null) return 1;
-                    String na = a.getName() == null ? "" : a.getName();
-                    String nb = b.getName() == null ? "" : b.getName();
-                    return na.compareToIgnoreCase(nb);
-                }
-            });
-            return list;
-        }
-        CustomADT<Patient> out = new CustomADT<>();
-        for (int i = 0; i < patientList.size(); i++) out.add(patientList.get(i));
+        CustomADT<Patient> out = CustomADT.copyOf(patientList);
         out.mergeSort(new CustomADT.ADTComparator<Patient>(){
             public int compare(Patient a, Patient b) {
                 if (a == null && b == null) return 0;
@@ -407,35 +419,8 @@ public class PatientMaintenance {
      */
     public Patient binarySearchPatientById(String patientId) {
         if (patientId == null) return null;
-        // Ensure the internal list is sorted by ID in-place if possible
-        if (patientList instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Patient> list = (CustomADT<Patient>) cadt;
-            list.mergeSort(new CustomADT.ADTComparator<Patient>(){
-                public int compare(Patient a, Patient b) {
-                    if (a == null && b == null) return 0;
-                    if (a == null) return -1;
-                    if (b == null) return 1;
-                    String ia = a.getId() == null ? "" : a.getId();
-                    String ib = b.getId() == null ? "" : b.getId();
-                    return ia.compareToIgnoreCase(ib);
-                }
-            });
-            Patient probe = new Patient(patientId, null, null, null, null, null, null);
-            int idx = list.binarySearch(probe, new CustomADT.ADTComparator<Patient>(){
-                public int compare(Patient a, Patient b) {
-                    if (a == null && b == null) return 0;
-                    if (a == null) return -1;
-                    if (b == null) return 1;
-                    String ia = a.getId() == null ? "" : a.getId();
-                    String ib = b.getId() == null ? "" : b.getId();
-                    return ia.compareToIgnoreCase(ib);
-                }
-            });
-            return idx >= 0 ? list.get(idx) : null;
-        }
-        // Fallback to using a temporary sorted copy
-        CustomADT<Patient> out = new CustomADT<>();
-        for (int i = 0; i < patientList.size(); i++) out.add(patientList.get(i));
+        // Search a sorted copy; the shared list keeps its file order
+        CustomADT<Patient> out = CustomADT.copyOf(patientList);
         out.mergeSort(new CustomADT.ADTComparator<Patient>(){
             public int compare(Patient a, Patient b) {
                 if (a == null && b == null) return 0;
@@ -465,56 +450,9 @@ public class PatientMaintenance {
      * Returns a new sorted ADT; does not mutate the internal patientList.
      */
     public ADTInterface<Patient> getPatientsSortedBy(String field, boolean ascending) {
-        // In-place generic sort (mutates patientList) when using CustomADT
         final String ffield = field == null ? "id" : field.toLowerCase();
         final boolean asc = ascending;
-        if (patientList instanceof CustomADT<?> cadt) {
-            @SuppressWarnings("unchecked") CustomADT<Patient> list = (CustomADT<Patient>) cadt;
-            list.mergeSort(new CustomADT.ADTComparator<Patient>(){
-                public int compare(Patient a, Patient b) {
-                    int res = 0;
-                    switch(ffield) {
-                        case "name": {
-                            String na = a==null||a.getName()==null?"":a.getName();
-                            String nb = b==null||b.getName()==null?"":b.getName();
-                            res = na.compareToIgnoreCase(nb);
-                            break;
-                        }
-                        case "age": {
-                            int ia = 0, ib = 0;
-                            try { ia = Integer.parseInt(a.calculateAge(a.getDateOfBirth())); } catch(Exception ignored) {}
-                            try { ib = Integer.parseInt(b.calculateAge(b.getDateOfBirth())); } catch(Exception ignored) {}
-                            res = Integer.compare(ia, ib);
-                            break;
-                        }
-                        case "gender": {
-                            String ga = a==null||a.getGender()==null?"":a.getGender();
-                            String gb = b==null||b.getGender()==null?"":b.getGender();
-                            res = ga.compareToIgnoreCase(gb);
-                            break;
-                        }
-                        case "nationality": {
-                            String na = a==null||a.getNationality()==null?"":a.getNationality();
-                            String nb = b==null||b.getNationality()==null?"":b.getNationality();
-                            res = na.compareToIgnoreCase(nb);
-                            break;
-                        }
-                        case "id":
-                        default: {
-                            String ia = a==null||a.getId()==null?"":a.getId();
-                            String ib = b==null||b.getId()==null?"":b.getId();
-                            res = ia.compareToIgnoreCase(ib);
-                            break;
-                        }
-                    }
-                    return asc ? res : -res;
-                }
-            });
-            return list;
-        }
-        // Fallback: return a sorted copy
-        CustomADT<Patient> out = new CustomADT<>();
-        for (int i = 0; i < patientList.size(); i++) out.add(patientList.get(i));
+        CustomADT<Patient> out = CustomADT.copyOf(patientList);
         out.mergeSort(new CustomADT.ADTComparator<Patient>(){
             public int compare(Patient a, Patient b) {
                 int res = 0;
@@ -558,15 +496,12 @@ public class PatientMaintenance {
         return out;
     }
 
-    private void persist() { patientDAO.saveToFile(patientList); }
+    private void persist() { patientRepo.save(); }
 
     // Ensure this in-memory list reflects latest file content
     public void refreshFromFile() {
         try {
-            ADTInterface<Patient> loaded = patientDAO.retrieveFromFile();
-            // Simple replace contents
-            patientList.clear();
-            for (int i = 0; i < loaded.size(); i++) patientList.add(loaded.get(i));
+            patientRepo.reload();
         } catch (Exception ignored) {}
     }
 
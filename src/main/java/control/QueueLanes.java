@@ -0,0 +1,122 @@
+package control;
+
+import adt.CustomADT;
+import adt.IndexedPriorityQueue;
+import adt.ObjectIntMap;
+import entity.PatientQueueEntry;
+import java.util.function.Predicate;
+
+/**
+ * Dispatch structure for QueueMaintenance: the WAITING entries split into one
+ * priority lane per preferred doctor plus an ANY lane.
+ *
+ * Each lane is ordered like the waiting part of the main queue (priority, then
+ * arrival), so the next servable patient is the best of at most a few lane
+ * heads: the doctor's own lane and ANY for a specific doctor, or ANY and the
+ * lanes of free on-duty doctors for an ANY call. No call walks the queue.
+ * QueueMaintenance keeps this in step with its main queue on every change.
+ */
+class QueueLanes {
+    // An entry in a lane, with the arrival number that breaks priority ties across lanes
+    private static final class Ticket {
+        final PatientQueueEntry entry;
+        final long arrival;
+
+        Ticket(PatientQueueEntry entry, long arrival) {
+            this.entry = entry;
+            this.arrival = arrival;
+        }
+    }
+
+    private static final java.util.Comparator<Ticket> LANE_ORDER = (a, b) -> {
+        int byPriority = Integer.compare(b.entry.getPriority(), a.entry.getPriority());
+        return byPriority != 0 ? byPriority : Long.compare(a.arrival, b.arrival);
+    };
+
+    private final IndexedPriorityQueue<Ticket> anyLane = newLane();
+    private final ObjectIntMap<String> laneSlots = new ObjectIntMap<>();
+    private final CustomADT<IndexedPriorityQueue<Ticket>> doctorLanes = new CustomADT<>();
+    private final CustomADT<String> laneDoctors = new CustomADT<>(); // doctor id of each lane
+    private long nextArrival;
+
+    /** Add a WAITING entry behind everything already waiting with the same priority. */
+    void waiting(PatientQueueEntry e) {
+        lane(e.getPreferredDoctorId(), true).offer(new Ticket(e, nextArrival++));
+    }
+
+    /** Drop a WAITING entry (called, removed); call before changing its preferred doctor. */
+    void leave(PatientQueueEntry e) {
+        IndexedPriorityQueue<Ticket> lane = lane(e.getPreferredDoctorId(), false);
+        if (lane != null) lane.remove(e.getId());
+    }
+
+    /**
+     * Restore lane order after a WAITING entry's priority changed. raised = it
+     * goes behind everything already waiting at its new priority (a new arrival).
+     */
+    void priorityChanged(PatientQueueEntry e, boolean raised) {
+        IndexedPriorityQueue<Ticket> lane = lane(e.getPreferredDoctorId(), false);
+        if (lane == null) return;
+        if (raised) {
+            lane.remove(e.getId());
+            lane.offer(new Ticket(e, nextArrival++));
+        } else {
+            lane.update(e.getId());
+        }
+    }
+
+    /** Number of WAITING entries that asked for this doctor. */
+    int waitingFor(String doctorId) {
+        IndexedPriorityQueue<Ticket> lane = doctorId == null ? null : lane(doctorId, false);
+        return lane == null ? 0 : lane.size();
+    }
+
+    /**
+     * The WAITING entry callNext(doctorId) serves: the first in serving order whose
+     * doctor is free (on duty and not consulting). For doctorId null, ANY entries
+     * are always servable and preferred-doctor entries need their doctor to be free.
+     */
+    PatientQueueEntry next(String doctorId, Predicate<String> free) {
+        Ticket best;
+        if (doctorId != null) {
+            if (!free.test(doctorId)) return null;
+            IndexedPriorityQueue<Ticket> own = lane(doctorId, false);
+            best = better(own == null ? null : own.peek(), anyLane.peek());
+        } else {
+            best = anyLane.peek();
+            for (int i = 0; i < doctorLanes.size(); i++) {
+                Ticket head = doctorLanes.get(i).peek();
+                if (head == null || (best != null && LANE_ORDER.compare(best, head) <= 0)) continue;
+                String doctor = laneDoctors.get(i);
+                if (free.test(doctor)) best = head;
+            }
+        }
+        return best == null ? null : best.entry;
+    }
+
+    void clear() {
+        anyLane.clear();
+        for (int i = 0; i < doctorLanes.size(); i++) doctorLanes.get(i).clear();
+    }
+
+    private static Ticket better(Ticket a, Ticket b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return LANE_ORDER.compare(a, b) <= 0 ? a : b;
+    }
+
+    private IndexedPriorityQueue<Ticket> lane(String doctorId, boolean create) {
+        if (doctorId == null) return anyLane;
+        int slot = laneSlots.getOrDefault(doctorId, -1);
+        if (slot >= 0) return doctorLanes.get(slot);
+        if (!create) return null;
+        laneSlots.put(doctorId, doctorLanes.size());
+        doctorLanes.add(newLane());
+        laneDoctors.add(doctorId);
+        return doctorLanes.get(doctorLanes.size() - 1);
+    }
+
+    private static IndexedPriorityQueue<Ticket> newLane() {
+        return new IndexedPriorityQueue<>(LANE_ORDER, t -> t.entry.getId());
+    }
+}
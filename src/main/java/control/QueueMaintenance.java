@@ -6,286 +6,261 @@
 package control;
 
 import adt.ADTInterface;
+import adt.CustomADT;
+import adt.IndexedPriorityQueue;
 import dao.*;
 import entity.*;
 
-import java.time.LocalDate;
-import java.time.LocalTime;
-
 /** Queue control: business logic only (no I/O). */
 public class QueueMaintenance {
     private final QueueDAO queueDAO = new QueueDAO();
-    private final ConsultationDAO consultationDAO = new ConsultationDAO();
-    private final DoctorDAO doctorDAO = new DoctorDAO();
-    private final PatientDAO patientDAO = new PatientDAO();
+    private final Repository<Consultation> consultationRepo = Repositories.consultations();
+    private final ConsultationIndex consultationIndex = Repositories.consultationIndex();
+    private final Repository<Doctor> doctorRepo = Repositories.doctors();
+    private final Repository<Patient> patientRepo = Repositories.patients();
 
-    private final ADTInterface<PatientQueueEntry> queue;
+    /**
+     * Serving order: entries already called (IN_PROGRESS) first, in the order they
+     * were called; then WAITING entries by priority (highest first). Ties fall back
+     * to the heap's sequence number, i.e. FIFO.
+     */
+    private static final java.util.Comparator<PatientQueueEntry> QUEUE_ORDER = (a, b) -> {
+        boolean wa = a.getStatus() == QueueStatus.WAITING;
+        boolean wb = b.getStatus() == QueueStatus.WAITING;
+        if (wa != wb) return wa ? 1 : -1;
+        if (!wa) return 0;
+        return Integer.compare(b.getPriority(), a.getPriority());
+    };
+
+    private final IndexedPriorityQueue<PatientQueueEntry> queue =
+            new IndexedPriorityQueue<>(QUEUE_ORDER, PatientQueueEntry::getId);
+    // Waiting entries by preferred doctor, kept in step with queue
+    private final QueueLanes lanes = new QueueLanes();
+    // On duty this hour / consulting, per doctor; kept in step with queue
+    private final DoctorStates states = new DoctorStates(doctorRepo);
+    // Wait times and throughput, fed by every event QueueDAO folds in
+    private final QueueMetrics metrics = new QueueMetrics();
     private final ADTInterface<Consultation> consultations;
     private final ADTInterface<Doctor> doctors;
     private final ADTInterface<Patient> patients;
 
+    // Queue changes since the last persist(), appended to the queue event log by it
+    private final CustomADT<QueueEvent> events = new CustomADT<>();
+
+    // Collections changed since the last persist(); only these are written back.
+    // Doctors and patients are read-only here, so they have no flag.
+    private static final int DIRTY_QUEUE = 1;
+    private static final int DIRTY_CONSULTATIONS = 2;
+    private int dirty;
+
+    // Queue generation (see QueueDAO.lock) that queue was loaded or last written at
+    private volatile long generation;
+    // Copies of the queue's entries in serving order as of the last change; replaced,
+    // never modified, so read without locking
+    private volatile ADTInterface<PatientQueueEntry> snapshot;
+
     public QueueMaintenance() {
-        queue = queueDAO.load();
-        consultations = consultationDAO.load();
-        doctors = doctorDAO.retrieveFromFile();
-        patients = patientDAO.retrieveFromFile();
+        queueDAO.onApplied(metrics::observe);
+        generation = queueDAO.generation(); // before loading: a write in between only means a spare reload
+        fill(queueDAO.load());
+        consultations = consultationRepo.all();
+        doctors = doctorRepo.all();
+        patients = patientRepo.all();
     }
 
     // Data accessors for UI layer
-    public ADTInterface<PatientQueueEntry> getQueue() { return queue; }
+    /**
+     * Snapshot of the queue in serving order, including changes made by other
+     * consoles. Read without the queue lock; the entries are copies, so editing
+     * them does not change the queue.
+     */
+    public ADTInterface<PatientQueueEntry> getQueue() {
+        long current = queueDAO.generation();
+        if (current != generation) reload(current);
+        return snapshot;
+    }
     public ADTInterface<Consultation> getConsultations() { return consultations; }
     public ADTInterface<Doctor> getDoctors() { return doctors; }
     public ADTInterface<Patient> getPatients() { return patients; }
+    /** Live wait-time and throughput figures; reading them never waits for a queue change. */
+    public QueueMetrics getMetrics() { return metrics; }
 
     // Core actions
-    public String generateNextQueueId() { return nextQueueId(); }
+    public String generateNextQueueId() { return change(this::nextQueueId); }
 
     public PatientQueueEntry enqueue(String id, String patientId, String preferredDoctorId, String reason, int priority) {
-        if (!anyDoctorOnDuty()) {
-            throw new IllegalStateException("No doctors are currently on duty");
-        }
-        if (findPatient(patientId) == null) throw new IllegalArgumentException("Patient not found");
-        if (preferredDoctorId != null) {
-            if (findDoctor(preferredDoctorId) == null) throw new IllegalArgumentException("Doctor not found");
-            if (!isDoctorOnDuty(preferredDoctorId)) {
-                throw new IllegalStateException("Preferred doctor is currently off duty");
+        return change(() -> {
+            if (!anyDoctorOnDuty()) {
+                throw new IllegalStateException("No doctors are currently on duty");
             }
-        }
-        PatientQueueEntry e = new PatientQueueEntry(id, patientId, preferredDoctorId, reason, priority);
-        queue.enqueue(e);
-        persist();
-        return e;
+            if (findPatient(patientId) == null) throw new IllegalArgumentException("Patient not found");
+            if (preferredDoctorId != null) {
+                if (findDoctor(preferredDoctorId) == null) throw new IllegalArgumentException("Doctor not found");
+                if (!isDoctorOnDuty(preferredDoctorId)) {
+                    throw new IllegalStateException("Preferred doctor is currently off duty");
+                }
+            }
+            // Another console may have taken the id since it was generated
+            String free = queue.contains(id) ? nextQueueId() : id;
+            PatientQueueEntry e = new PatientQueueEntry(free, patientId, preferredDoctorId, reason, priority);
+            queue.offer(e);
+            track(e);
+            record(QueueEvent.Type.ENQUEUED, e);
+            return e;
+        });
     }
 
     public boolean remove(String id) {
-        for (int i = 0; i < queue.size(); i++) {
-            if (queue.get(i).getId().equals(id)) {
-                queue.remove(i);
-                persist();
-                return true;
-            }
-        }
-        return false;
+        return change(() -> {
+            PatientQueueEntry e = queue.remove(id);
+            if (e == null) return false;
+            untrack(e);
+            record(QueueEvent.Type.REMOVED, e);
+            return true;
+        });
     }
 
     public PatientQueueEntry callNext(String doctorId) {
-        int idx = findNextWaitingIndex(doctorId);
-        if (idx < 0) return null;
-        PatientQueueEntry e = queue.get(idx);
-        // If ANY, assign a concrete on-duty doctor (prefer a free one)
-        if (doctorId == null) {
-            // Only auto-assign when the entry has no preferred doctor yet (ANY)
-            if (e.getPreferredDoctorId() == null) {
-                String assigned = pickRandomOnDutyDoctorPreferFree();
-                if (assigned != null) e.setPreferredDoctorId(assigned);
-            }
-        } else {
-            // Ensure entry is assigned to the requested doctor (must be on duty)
-            if (!isDoctorOnDuty(doctorId)) {
-                throw new IllegalStateException("Requested doctor is off duty");
-            }
-            e.setPreferredDoctorId(doctorId);
-        }
-        e.setStatus(QueueStatus.IN_PROGRESS); // start when called
-        e.incrementCallAttempts();
-        // If this queue entry links to a BOOKED consultation, mark it as ONGOING now
-        if (e.getLinkedConsultationId() != null) {
-            for (int i = 0; i < consultations.size(); i++) {
-                Consultation c = consultations.get(i);
-                if (c.getId().equals(e.getLinkedConsultationId())) {
-                    c.setStatus(Consultation.Status.ONGOING);
-                    consultationDAO.save(consultations);
-                    break;
+        return change(() -> {
+            PatientQueueEntry e = lanes.next(doctorId, states::isFree);
+            if (e == null) return null;
+            lanes.leave(e); // while its preferred doctor still names its lane
+            // If ANY, assign a concrete on-duty doctor (prefer a free one)
+            if (doctorId == null) {
+                // Only auto-assign when the entry has no preferred doctor yet (ANY)
+                if (e.getPreferredDoctorId() == null) {
+                    String assigned = pickRandomOnDutyDoctorPreferFree();
+                    if (assigned != null) e.setPreferredDoctorId(assigned);
                 }
+            } else {
+                // Ensure entry is assigned to the requested doctor (must be on duty)
+                if (!isDoctorOnDuty(doctorId)) {
+                    throw new IllegalStateException("Requested doctor is off duty");
+                }
+                e.setPreferredDoctorId(doctorId);
             }
-        }
-        repositionAfterCalled(idx);
-        persist();
-        return e;
+            e.setStatus(QueueStatus.IN_PROGRESS); // start when called
+            e.setCalledAt(java.time.LocalDateTime.now());
+            states.startedConsulting(e.getPreferredDoctorId());
+            e.incrementCallAttempts();
+            // If this queue entry links to a BOOKED consultation, mark it as ONGOING now
+            if (e.getLinkedConsultationId() != null) consultationRepo.reload(); // pick up other consoles' saves
+            Consultation linked = consultationRepo.findById(e.getLinkedConsultationId());
+            if (linked != null) {
+                linked.setStatus(Consultation.Status.ONGOING);
+                consultationRepo.update(linked);
+                dirty |= DIRTY_CONSULTATIONS; // saved once when the change ends
+            }
+            // Move behind the other in-progress entries (same as the old reposition step)
+            queue.requeue(e.getId());
+            record(QueueEvent.Type.CALLED, e);
+            return e;
+        });
     }
 
     /** Pick a random on-duty doctor, preferring those not currently consulting */
     private String pickRandomOnDutyDoctorPreferFree() {
-        LocalDate today = LocalDate.now();
-        int currentHour = LocalTime.now().getHour();
-        int dow = today.getDayOfWeek().getValue() - 1;
-
-        // First collect free on-duty doctors
-        adt.CustomADT<String> free = new adt.CustomADT<>();
-        adt.CustomADT<String> allOnDuty = new adt.CustomADT<>();
-        for (int i = 0; i < doctors.size(); i++) {
-            Doctor d = doctors.get(i);
-            boolean onDuty = d.getSchedule() != null && d.getSchedule().isAvailable(dow, currentHour);
-            if (!onDuty) continue;
-            allOnDuty.add(d.getId());
-
-            boolean consulting = false;
-            for (int j = 0; j < queue.size(); j++) {
-                PatientQueueEntry e = queue.get(j);
-                if (e.getStatus() == QueueStatus.IN_PROGRESS && d.getId().equals(e.getPreferredDoctorId())) {
-                    consulting = true; break;
-                }
-            }
-            if (!consulting) free.add(d.getId());
-        }
-        if (!free.isEmpty()) {
-            int r = (int)(Math.random() * free.size());
-            return free.get(r);
-        }
-        if (!allOnDuty.isEmpty()) {
-            int r = (int)(Math.random() * allOnDuty.size());
-            return allOnDuty.get(r);
-        }
-        return null;
+        Doctor d = states.randomOnDuty();
+        return d == null ? null : d.getId();
     }
 
     // Domain-specific queue helpers (kept out of the generic ADT)
-    private int findNextWaitingIndex(String doctorId) {
-        // First pass: if doctorId provided, pick the first waiting entry we can serve for that doctor
-        if (doctorId != null) {
-            for (int i = 0; i < queue.size(); i++) {
-                PatientQueueEntry e = queue.get(i);
-                if (e.getStatus() != QueueStatus.WAITING) continue;
-                if (canServe(e, doctorId)) return i;
-            }
-            return -1;
-        }
-        // ANY doctor: pick the first waiting entry that is servable now
-        for (int i = 0; i < queue.size(); i++) {
-            PatientQueueEntry e = queue.get(i);
-            if (e.getStatus() != QueueStatus.WAITING) continue;
-            if (canServe(e, null)) return i;
-        }
-        return -1;
-    }
 
-    /** A patient can be served only if their target doctor is on duty and not currently consulting. */
-    private boolean canServe(PatientQueueEntry e, String doctorId) {
-        // If the patient has a preferred doctor, only serve when that doctor is not consulting
-        if (e.getPreferredDoctorId() != null) {
-            // If doctorId is provided and doesn't match preference, skip this patient for this call
-            if (doctorId != null && !doctorId.equals(e.getPreferredDoctorId())) return false;
-            String pref = e.getPreferredDoctorId();
-            return isDoctorOnDuty(pref) && !isDoctorConsulting(pref);
-        }
-        // No preferred doctor (ANY)
-        if (doctorId != null) {
-            // Only serve if the requested doctor is on duty and not consulting
-            return isDoctorOnDuty(doctorId) && !isDoctorConsulting(doctorId);
-        }
-        // ANY call and ANY preference; OK
-        return true;
+    // Register an entry just added to queue with the lanes (WAITING) or the consulting counts
+    private void track(PatientQueueEntry e) {
+        if (e.getStatus() == QueueStatus.WAITING) lanes.waiting(e);
+        else if (e.getStatus() == QueueStatus.IN_PROGRESS) states.startedConsulting(e.getPreferredDoctorId());
     }
 
-    private boolean isDoctorConsulting(String doctorId) {
-        if (doctorId == null) return false;
-        for (int i = 0; i < queue.size(); i++) {
-            PatientQueueEntry e = queue.get(i);
-            if (e.getStatus() == QueueStatus.IN_PROGRESS && doctorId.equals(e.getPreferredDoctorId())) {
-                return true;
-            }
-        }
-        return false;
+    // Undo track() for an entry just removed from queue
+    private void untrack(PatientQueueEntry e) {
+        if (e.getStatus() == QueueStatus.WAITING) lanes.leave(e);
+        else if (e.getStatus() == QueueStatus.IN_PROGRESS) states.stoppedConsulting(e.getPreferredDoctorId());
     }
 
     /** Public helper for UI: is this doctor currently consulting someone? */
     public boolean isDoctorConsultingNow(String doctorId) {
-        return isDoctorConsulting(doctorId);
+        return states.isConsulting(doctorId);
+    }
+
+    /** Public helper for UI: how many waiting patients asked for this doctor? */
+    public synchronized int waitingFor(String doctorId) {
+        return lanes.waitingFor(doctorId);
     }
 
     /**
      * Are there any doctors on duty who are not currently consulting?
      */
     public boolean anyOnDutyDoctorFree() {
-        LocalDate today = LocalDate.now();
-        int currentHour = LocalTime.now().getHour();
-        int dow = today.getDayOfWeek().getValue() - 1;
-        for (int i = 0; i < doctors.size(); i++) {
-            Doctor d = doctors.get(i);
-            boolean onDuty = d.getSchedule() != null && d.getSchedule().isAvailable(dow, currentHour);
-            if (!onDuty) continue;
-            if (!isDoctorConsulting(d.getId())) return true;
-        }
-        return false;
-    }
-
-    private void repositionAfterCalled(int index) {
-        if (index < 0 || index >= queue.size()) return;
-        int target = 0;
-        // Find last IN_PROGRESS index + 1
-        for (int i = 0; i < queue.size(); i++) {
-            if (queue.get(i).getStatus() == QueueStatus.IN_PROGRESS) target = i + 1; else break;
-        }
-        if (index < target) return; // already within in-progress block
-        PatientQueueEntry temp = queue.remove(index);
-        queue.add(target, temp);
+        return states.anyFree();
     }
 
     public Consultation complete(String queueId) {
-        PatientQueueEntry e = queue.findEntry(queueId);
-        if (e == null) throw new IllegalArgumentException("Queue entry not found");
-        if (e.getStatus() != QueueStatus.IN_PROGRESS) throw new IllegalStateException("Patient is not in progress");
-
-        int hour = java.time.LocalTime.now().getHour();
-        java.time.LocalDate date = java.time.LocalDate.now();
-        // Use the doctor assigned when the patient was called (now stored in preferredDoctorId)
-    String doctorId = e.getPreferredDoctorId();
-        if (doctorId == null || doctorId.trim().isEmpty()) {
-            // Fallback: pick an available doctor at this time
-            doctorId = pickDoctorForEntry(e, date, hour);
-            if (doctorId == null) {
-                doctorId = "UNASSIGNED"; // create consultation without doctor assignment
-            }
-        }
-
-        java.time.LocalDateTime dt = date.atTime(hour, 0);
-        Consultation c = new Consultation(nextConsultationId(), e.getPatientId(), doctorId, dt, e.getReason(), "Queue", Consultation.Status.ONGOING);
-        if (!"UNASSIGNED".equals(doctorId)) {
-            try {
-                Doctor d = findDoctor(doctorId);
-                if (d != null && d.getCalendarId() != null && !d.getCalendarId().isEmpty()) {
-                    String evId = utility.GoogleCalendarService.getInstance().addConsultationEvent(d, dt, 60, "Consultation - " + e.getPatientId(), e.getReason());
-                    c.setCalendarEventId(evId);
+        return change(() -> {
+            PatientQueueEntry e = queue.get(queueId);
+            if (e == null) throw new IllegalArgumentException("Queue entry not found");
+            if (e.getStatus() != QueueStatus.IN_PROGRESS) throw new IllegalStateException("Patient is not in progress");
+
+            int hour = java.time.LocalTime.now().getHour();
+            java.time.LocalDate date = java.time.LocalDate.now();
+            // Use the doctor assigned when the patient was called (now stored in preferredDoctorId)
+        String doctorId = e.getPreferredDoctorId();
+            if (doctorId == null || doctorId.trim().isEmpty()) {
+                // Fallback: pick an available doctor at this time
+                doctorId = pickDoctorForEntry(e, date, hour);
+                if (doctorId == null) {
+                    doctorId = "UNASSIGNED"; // create consultation without doctor assignment
                 }
-            } catch (Exception ignored) {}
-        }
-        consultations.add(c);
-        consultationDAO.save(consultations);
+            }
 
-        int queueIndex = queue.indexOf(queueId);
-        if (queueIndex >= 0) {
-            queue.remove(queueIndex);
-        }
-        persist();
-        return c;
+            consultationRepo.reload(); // number after the consultations other consoles added
+            java.time.LocalDateTime dt = date.atTime(hour, 0);
+            Consultation c = new Consultation(nextConsultationId(), e.getPatientId(), doctorId, dt, e.getReason(), "Queue", Consultation.Status.ONGOING);
+            if (!"UNASSIGNED".equals(doctorId)) {
+                try {
+                    Doctor d = findDoctor(doctorId);
+                    if (d != null && d.getCalendarId() != null && !d.getCalendarId().isEmpty()) {
+                        String evId = utility.GoogleCalendarService.getInstance().addConsultationEvent(d, dt, 60, "Consultation - " + e.getPatientId(), e.getReason());
+                        c.setCalendarEventId(evId);
+                    }
+                } catch (Exception ignored) {}
+            }
+            consultationRepo.add(c);
+            queue.remove(queueId);
+            untrack(e);
+            record(QueueEvent.Type.COMPLETED, e).setConsultationId(c.getId());
+            dirty |= DIRTY_CONSULTATIONS;
+            return c;
+        });
     }
 
     // showInProgressEntries moved to UI
 
     public int bump(String id, int delta) {
-        PatientQueueEntry e = queue.findEntry(id);
-        if (e == null) throw new IllegalArgumentException("Queue entry not found");
-        e.setPriority(e.getPriority() + delta);
-        int idx = queue.indexOf(id);
-        queue.bubbleUp(idx);
-        persist();
-        return e.getPriority();
+        return change(() -> {
+            PatientQueueEntry e = queue.get(id);
+            if (e == null) throw new IllegalArgumentException("Queue entry not found");
+            e.setPriority(e.getPriority() + delta);
+            // A raised entry goes behind those already at its new priority, as the old
+            // bubbleUp left it; a lowered one keeps its place among its new peers
+            boolean raised = delta > 0 && e.getStatus() == QueueStatus.WAITING;
+            if (raised) queue.requeue(id); else queue.update(id);
+            if (e.getStatus() == QueueStatus.WAITING) lanes.priorityChanged(e, raised);
+            record(QueueEvent.Type.BUMPED, e);
+            return e.getPriority();
+        });
     }
 
-    private Doctor findDoctor(String id){ for (int i=0;i<doctors.size();i++) if (doctors.get(i).getId().equals(id)) return doctors.get(i); return null; }
-    private Patient findPatient(String id){ for (int i=0;i<patients.size();i++) if (patients.get(i).getId().equals(id)) return patients.get(i); return null; }
+    private Doctor findDoctor(String id){ return doctorRepo.findById(id); }
+    private Patient findPatient(String id){ return patientRepo.findById(id); }
 
     private boolean doctorFree(String doctorId, java.time.LocalDate date, int hour) {
         Doctor d = findDoctor(doctorId);
         if (d==null) return false;
         int dayIdx = date.getDayOfWeek().getValue()-1;
         if (!d.getSchedule().isAvailable(dayIdx,hour)) return false;
-        for (int i=0;i<consultations.size();i++) {
-            Consultation c = consultations.get(i);
         // consider a consultation booked at the same date+hour
-        if (c.getDoctorId().equals(doctorId) && c.getDate().equals(date.atTime(hour,0))) return false;
-        }
-        return true;
+        return !consultationIndex.isBooked(doctorId, date, hour);
     }
 
     private String pickDoctorForEntry(PatientQueueEntry e, java.time.LocalDate date, int hour) {
@@ -296,7 +271,7 @@ public class QueueMaintenance {
     }
 
     private String nextQueueId(){
-        int max=0; for (int i=0;i<queue.size();i++){ String id=queue.get(i).getId(); if (id!=null && id.startsWith("Q")) { try{ int n=Integer.parseInt(id.substring(1)); if (n>max) max=n; } catch(Exception ignored){} } }
+        int max=0; CustomADT.ADTIterator<PatientQueueEntry> it=queue.iterator(); while (it.hasNext()){ String id=it.next().getId(); if (id!=null && id.startsWith("Q")) { try{ int n=Integer.parseInt(id.substring(1)); if (n>max) max=n; } catch(Exception ignored){} } }
         return String.format("Q%04d", max+1);
     }
 
@@ -305,11 +280,108 @@ public class QueueMaintenance {
         return String.format("C%04d", max+1);
     }
 
-    private void persist(){
-        queueDAO.save(queue);
-        consultationDAO.save(consultations);
-        doctorDAO.saveToFile(doctors);
-        patientDAO.saveToFile(patients);
+    /**
+     * Run op as one change to the queue shared by all consoles: under the queue
+     * lock, on the queue as last written by any of them, with everything op
+     * marked dirty written before the lock is released.
+     */
+    private synchronized <R> R change(java.util.function.Supplier<R> op) {
+        long current = queueDAO.lock();
+        boolean wrote = false;
+        try {
+            if (current < 0 || current != generation) {
+                fill(queueDAO.load()); // replays only what the other consoles appended
+                generation = current;
+            }
+            R result;
+            try {
+                result = op.get();
+            } catch (RuntimeException | Error e) {
+                // Nothing of a failed change is written: drop its events and undo its queue edits
+                events.clear();
+                dirty = 0;
+                fill(queueDAO.load());
+                throw e;
+            }
+            wrote = persist();
+            return result;
+        } finally {
+            queueDAO.unlock(wrote);
+            if (wrote) generation = current + 1;
+        }
+    }
+
+    // Catch up with other consoles' changes for a reader, without the queue lock
+    // (QueueDAO reads only complete events). current was read before loading, so a
+    // change in between only means a spare reload.
+    private synchronized void reload(long current) {
+        if (current == generation) return;
+        fill(queueDAO.load());
+        generation = current;
+    }
+
+    // Replace the queue with a freshly loaded one
+    private void fill(ADTInterface<PatientQueueEntry> saved) {
+        queue.clear();
+        lanes.clear();
+        states.clearConsulting();
+        // File order is the previous serving order; offering in that order keeps ties stable
+        for (int i = 0; i < saved.size(); i++) {
+            PatientQueueEntry e = saved.get(i);
+            if (e.getId() != null && !queue.contains(e.getId())) {
+                queue.offer(e);
+                track(e);
+            }
+        }
+        publish();
+    }
+
+    // Replace snapshot with the current queue and update the queue-length gauges
+    private void publish() {
+        ADTInterface<PatientQueueEntry> sorted = queue.toSortedADT();
+        CustomADT<PatientQueueEntry> s = new CustomADT<>();
+        s.ensureCapacity(sorted.size());
+        for (int i = 0; i < sorted.size(); i++) s.add(sorted.get(i).copy());
+        int inProgress = 0; // serving order puts them first
+        while (inProgress < s.size() && s.get(inProgress).getStatus() == QueueStatus.IN_PROGRESS) inProgress++;
+        snapshot = s;
+        metrics.gauge(s.size() - inProgress, inProgress);
+    }
+
+    // Note a change to the queue (e null for CLEARED); persist() appends it to the log
+    private QueueEvent record(QueueEvent.Type type, PatientQueueEntry e) {
+        QueueEvent ev = new QueueEvent(type, e == null ? null : e.getId());
+        if (e != null) {
+            ev.setPatientId(e.getPatientId());
+            ev.setDoctorId(e.getPreferredDoctorId());
+            ev.setPriority(e.getPriority());
+            ev.setLinkedConsultationId(e.getLinkedConsultationId());
+            if (type == QueueEvent.Type.ENQUEUED) {
+                ev.setReason(e.getReason());
+                ev.setAt(e.getEnqueuedAt());
+            } else if (type == QueueEvent.Type.CALLED) {
+                ev.setAt(e.getCalledAt());
+            }
+        }
+        events.add(ev);
+        dirty |= DIRTY_QUEUE;
+        return ev;
+    }
+
+    // Write what changed; true if the queue log was appended to. Events that could
+    // not be appended are dropped and the queue reloaded, so it matches the log.
+    private boolean persist(){
+        boolean queueWritten = false;
+        if ((dirty & DIRTY_QUEUE) != 0) {
+            queueWritten = queueDAO.append(events);
+            events.clear();
+            if (queueWritten) publish(); else fill(queueDAO.load());
+        }
+        if ((dirty & DIRTY_CONSULTATIONS) != 0) consultationRepo.save();
+        // Other consoles reload these files under the queue lock; they must be written before it is released
+        if ((dirty & ~DIRTY_QUEUE) != 0) Persister.awaitWrites();
+        dirty = 0;
+        return queueWritten;
     }
 
     // Booked consultations helpers
@@ -326,88 +398,74 @@ public class QueueMaintenance {
     }
 
     public PatientQueueEntry enqueueFromBooking(String queueId, String consultationId) {
-        // Find the consultation
-        Consultation c = null;
-        for (int i = 0; i < consultations.size(); i++) {
-            if (consultations.get(i).getId().equals(consultationId)) { c = consultations.get(i); break; }
-        }
-        if (c == null) throw new IllegalArgumentException("Consultation not found");
-        if (!anyDoctorOnDuty()) throw new IllegalStateException("No doctors are currently on duty");
-        if (findPatient(c.getPatientId()) == null) throw new IllegalArgumentException("Patient not found");
-
-        // Preferred doctor comes from the booking; if UNASSIGNED or null, keep as ANY
-        String pref = c.getDoctorId();
-        if (pref != null && "UNASSIGNED".equals(pref)) pref = null;
-
-        PatientQueueEntry e = new PatientQueueEntry(queueId, c.getPatientId(), pref, c.getReason(), 10);
-        e.setLinkedConsultationId(c.getId());
-        queue.enqueue(e);
-        persist();
-        return e;
+        return change(() -> {
+            // Find the consultation
+            consultationRepo.reload();
+            Consultation c = consultationRepo.findById(consultationId);
+            if (c == null) throw new IllegalArgumentException("Consultation not found");
+            if (!anyDoctorOnDuty()) throw new IllegalStateException("No doctors are currently on duty");
+            if (findPatient(c.getPatientId()) == null) throw new IllegalArgumentException("Patient not found");
+
+            // Preferred doctor comes from the booking; if UNASSIGNED or null, keep as ANY
+            String pref = c.getDoctorId();
+            if (pref != null && "UNASSIGNED".equals(pref)) pref = null;
+
+            String free = queue.contains(queueId) ? nextQueueId() : queueId;
+            PatientQueueEntry e = new PatientQueueEntry(free, c.getPatientId(), pref, c.getReason(), 10);
+            e.setLinkedConsultationId(c.getId());
+            queue.offer(e);
+            track(e);
+            record(QueueEvent.Type.ENQUEUED, e);
+            return e;
+        });
     }
 
     /**
      * Check if any doctor is currently on duty
      */
     public boolean anyDoctorOnDuty() {
-        LocalDate today = LocalDate.now();
-        int currentHour = LocalTime.now().getHour();
-        int dayOfWeek = today.getDayOfWeek().getValue() - 1; // 0 = Monday
-        
-        for (int i = 0; i < doctors.size(); i++) {
-            Doctor doctor = doctors.get(i);
-            if (doctor.getSchedule() != null && 
-                doctor.getSchedule().isAvailable(dayOfWeek, currentHour)) {
-                return true;
-            }
-        }
-        return false;
+        return states.anyOnDuty();
     }
 
     /**
      * Check if a specific doctor is currently on duty
      */
     public boolean isDoctorOnDuty(String doctorId) {
-        Doctor doctor = findDoctor(doctorId);
-        if (doctor == null) return false;
-        
-        LocalDate today = LocalDate.now();
-        int currentHour = LocalTime.now().getHour();
-        int dayOfWeek = today.getDayOfWeek().getValue() - 1; // 0 = Monday
-        
-        return doctor.getSchedule() != null && 
-               doctor.getSchedule().isAvailable(dayOfWeek, currentHour);
+        return states.isOnDuty(doctorId);
     }
 
     /**
      * Get a comma-separated list of doctors currently on duty
      */
     public String getOnDutyDoctorsList() {
-        LocalDate today = LocalDate.now();
-        int currentHour = LocalTime.now().getHour();
-        int dayOfWeek = today.getDayOfWeek().getValue() - 1; // 0 = Monday
-        
+        ADTInterface<Doctor> onDuty = states.onDutyDoctors();
         StringBuilder onDutyDoctors = new StringBuilder();
-        for (int i = 0; i < doctors.size(); i++) {
-            Doctor doctor = doctors.get(i);
-            if (doctor.getSchedule() != null && 
-                doctor.getSchedule().isAvailable(dayOfWeek, currentHour)) {
-                if (onDutyDoctors.length() > 0) {
-                    onDutyDoctors.append(", ");
-                }
-                onDutyDoctors.append(doctor.getId());
-                if (doctor.getName() != null) {
-                    onDutyDoctors.append(" (").append(doctor.getName()).append(")");
-                }
+        for (int i = 0; i < onDuty.size(); i++) {
+            Doctor doctor = onDuty.get(i);
+            if (onDutyDoctors.length() > 0) {
+                onDutyDoctors.append(", ");
+            }
+            onDutyDoctors.append(doctor.getId());
+            if (doctor.getName() != null) {
+                onDutyDoctors.append(" (").append(doctor.getName()).append(")");
             }
         }
         return onDutyDoctors.length() > 0 ? onDutyDoctors.toString() : "None";
     }
 
+    /** The doctors on duty this hour, in list order. */
+    public ADTInterface<Doctor> getOnDutyDoctors() {
+        return states.onDutyDoctors();
+    }
+
     public boolean clearQueueAll() {
-        if (queue.size() == 0) return false;
-        while (queue.size() > 0) queue.remove(0);
-        persist();
-        return true;
+        return change(() -> {
+            if (queue.isEmpty()) return false;
+            queue.clear();
+            lanes.clear();
+            states.clearConsulting();
+            record(QueueEvent.Type.CLEARED, null);
+            return true;
+        });
     }
 }
@@ -0,0 +1,199 @@
+package control;
+
+import adt.ADTInterface;
+import adt.CustomADT;
+import entity.PatientQueueEntry;
+import entity.QueueEvent;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Wait-time and throughput figures for the queue, fed from the queue events
+ * (see QueueDAO), so calls made at other consoles count as well.
+ *
+ *   wait    = ENQUEUED -> CALLED, per doctor and per priority
+ *   service = CALLED -> COMPLETED, per doctor
+ *   calls per hour for the last 24 hours, and waiting / in-progress gauges
+ *
+ * Recording is a handful of atomic increments (no locks), and the getters read
+ * the counters as they are, so the dashboard never holds up a queue change.
+ * The figures start with the events this console has seen: its own, and those
+ * of other consoles it replayed, including the log tail read at start-up.
+ */
+public class QueueMetrics {
+    /**
+     * Log-linear histogram of millisecond values, HdrHistogram-style: exact below
+     * 64 ms, then 32 buckets per power of two, so a percentile is within about 3%.
+     */
+    public static class Histogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB = 1 << SUB_BITS;              // buckets per power of two
+        private static final int LINEAR = SUB * 2;                 // values below this have their own bucket
+        private static final int BUCKETS = LINEAR + (63 - (SUB_BITS + 1)) * SUB;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long millis) {
+            long v = Math.max(0, millis);
+            counts.incrementAndGet(bucket(v));
+            count.incrementAndGet();
+            sum.addAndGet(v);
+            long m;
+            while (v > (m = max.get()) && !max.compareAndSet(m, v)) { }
+        }
+
+        public long count() { return count.get(); }
+
+        public long max() { return max.get(); }
+
+        public long mean() {
+            long n = count.get();
+            return n == 0 ? 0 : sum.get() / n;
+        }
+
+        /** Smallest recorded value (to bucket precision) that p percent of the values do not exceed; 0 if empty. */
+        public long percentile(double p) {
+            long n = count.get();
+            if (n == 0) return 0;
+            long target = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= target) return Math.min(upper(i), max.get());
+            }
+            return max.get();
+        }
+
+        static int bucket(long v) {
+            if (v < LINEAR) return (int) v;
+            int e = 63 - Long.numberOfLeadingZeros(v);              // >= SUB_BITS + 1
+            int top = (int) (v >>> (e - SUB_BITS));                 // SUB..2*SUB-1
+            return LINEAR + (e - SUB_BITS - 1) * SUB + (top - SUB);
+        }
+
+        static long upper(int bucket) {
+            if (bucket < LINEAR) return bucket;
+            int e = (bucket - LINEAR) / SUB + SUB_BITS + 1;
+            long top = (bucket - LINEAR) % SUB + SUB;
+            return ((top + 1) << (e - SUB_BITS)) - 1;
+        }
+    }
+
+    /** Priorities at or above this share the last priority histogram. */
+    public static final int MAX_PRIORITY = 10;
+    private static final int HOURS = 24;
+
+    private final LocalDateTime since = LocalDateTime.now();
+    private final Histogram waits = new Histogram();
+    private final Histogram services = new Histogram();
+    private final ConcurrentHashMap<String, Histogram> waitsByDoctor = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> servicesByDoctor = new ConcurrentHashMap<>();
+    private final Histogram[] waitsByPriority = new Histogram[MAX_PRIORITY + 1];
+    // Ring of the last HOURS hours: slot = epoch hour % HOURS, stamped with the epoch hour it counts
+    private final AtomicLongArray hourStamps = new AtomicLongArray(HOURS);
+    private final AtomicLongArray hourCalls = new AtomicLongArray(HOURS);
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private volatile int waiting;
+    private volatile int inProgress;
+    private volatile int peakWaiting;
+
+    QueueMetrics() {
+        for (int p = 0; p <= MAX_PRIORITY; p++) waitsByPriority[p] = new Histogram();
+        for (int h = 0; h < HOURS; h++) hourStamps.set(h, -1);
+    }
+
+    /** Count an event; entry is the queue entry as it was just before it (null if it was not queued). */
+    void observe(QueueEvent e, PatientQueueEntry entry) {
+        switch (e.getType()) {
+            case ENQUEUED -> enqueued.incrementAndGet();
+            case CALLED -> {
+                if (entry != null && entry.getEnqueuedAt() != null && e.getAt() != null) {
+                    long wait = millis(entry.getEnqueuedAt(), e.getAt());
+                    waits.record(wait);
+                    if (e.getDoctorId() != null) of(waitsByDoctor, e.getDoctorId()).record(wait);
+                    waitsByPriority[Math.max(0, Math.min(MAX_PRIORITY, entry.getPriority()))].record(wait);
+                }
+                if (e.getAt() != null) countCall(epochHour(e.getAt()));
+            }
+            case COMPLETED -> {
+                completed.incrementAndGet();
+                if (entry != null && entry.getCalledAt() != null && e.getAt() != null) {
+                    long service = millis(entry.getCalledAt(), e.getAt());
+                    services.record(service);
+                    if (e.getDoctorId() != null) of(servicesByDoctor, e.getDoctorId()).record(service);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    /** Set the queue-length gauges (QueueMaintenance, after each change). */
+    void gauge(int waiting, int inProgress) {
+        this.waiting = waiting;
+        this.inProgress = inProgress;
+        if (waiting > peakWaiting) peakWaiting = waiting;
+    }
+
+    public LocalDateTime since() { return since; }
+    public Histogram waits() { return waits; }
+    public Histogram services() { return services; }
+    public Histogram waitsAt(int priority) { return waitsByPriority[Math.max(0, Math.min(MAX_PRIORITY, priority))]; }
+
+    /** Wait histogram of a doctor's calls; empty if none seen. */
+    public Histogram waitsFor(String doctorId) { return waitsByDoctor.getOrDefault(doctorId, new Histogram()); }
+
+    public Histogram servicesFor(String doctorId) { return servicesByDoctor.getOrDefault(doctorId, new Histogram()); }
+
+    /** Doctors with at least one call seen, sorted by id. */
+    public ADTInterface<String> doctors() {
+        CustomADT<String> out = new CustomADT<>();
+        for (String id : waitsByDoctor.keySet()) out.add(id);
+        for (String id : servicesByDoctor.keySet()) if (!waitsByDoctor.containsKey(id)) out.add(id);
+        out.sortComparable();
+        return out;
+    }
+
+    /** Calls in the hour starting hoursAgo hours before the current one (0 = this hour), up to 23. */
+    public long callsInHour(int hoursAgo) {
+        if (hoursAgo < 0 || hoursAgo >= HOURS) return 0;
+        long hour = epochHour(LocalDateTime.now()) - hoursAgo;
+        int slot = (int) Math.floorMod(hour, (long) HOURS);
+        return hourStamps.get(slot) == hour ? hourCalls.get(slot) : 0;
+    }
+
+    public long enqueued() { return enqueued.get(); }
+    public long completed() { return completed.get(); }
+    public int waiting() { return waiting; }
+    public int inProgress() { return inProgress; }
+    public int peakWaiting() { return peakWaiting; }
+
+    private void countCall(long hour) {
+        if (hour <= epochHour(LocalDateTime.now()) - HOURS) return; // replayed from more than a day ago
+        int slot = (int) Math.floorMod(hour, (long) HOURS);
+        long stamp = hourStamps.get(slot);
+        if (stamp < hour && hourStamps.compareAndSet(slot, stamp, hour)) hourCalls.set(slot, 0);
+        // Slot taken by a later hour: this call is older than the ring (a late replay)
+        if (hourStamps.get(slot) == hour) hourCalls.incrementAndGet(slot);
+    }
+
+    private static Histogram of(ConcurrentHashMap<String, Histogram> map, String key) {
+        Histogram h = map.get(key);
+        return h != null ? h : map.computeIfAbsent(key, k -> new Histogram());
+    }
+
+    private static long millis(LocalDateTime from, LocalDateTime to) {
+        return Duration.between(from, to).toMillis();
+    }
+
+    private static long epochHour(LocalDateTime t) {
+        return t.atZone(ZoneId.systemDefault()).toEpochSecond() / 3600;
+    }
+}
@@ -2,11 +2,10 @@ package control;
 
 import adt.ADTInterface;
 import adt.CustomADT;
-import dao.ConsultationDAO;
-import dao.DoctorDAO;
-import dao.MedicationDAO;
-import dao.PatientDAO;
-import dao.TreatmentDAO;
+import adt.DoubleADT;
+import adt.ObjectIntMap;
+import dao.Repositories;
+import dao.Repository;
 import entity.Consultation;
 import entity.Medication;
 import entity.Patient;
@@ -19,81 +18,59 @@ import java.time.LocalDate;
 public class TreatmentMaintenance {
     // Report: Treatments per Doctor
     public String getTreatmentsPerDoctorReport() {
-        CustomADT<String> doctorList = new CustomADT<>();
-        CustomADT<Integer> doctorCountList = new CustomADT<>();
+        ObjectIntMap<String> doctorCounts = new ObjectIntMap<>();
         for (int i = 0; i < treatments.size(); i++) {
             Treatment t = treatments.get(i);
             Consultation c = findConsultationById(t.getConsultationId());
-            if (c != null && c.getDoctorId() != null) {
-                String docId = c.getDoctorId();
-                int idx = -1;
-                for (int j = 0; j < doctorList.size(); j++) {
-                    if (doctorList.get(j).equals(docId)) { idx = j; break; }
-                }
-                if (idx == -1) { doctorList.add(docId); doctorCountList.add(1); }
-                else doctorCountList.set(idx, doctorCountList.get(idx) + 1);
-            }
+            if (c != null && c.getDoctorId() != null) doctorCounts.increment(c.getDoctorId());
         }
         StringBuilder sb = new StringBuilder();
         sb.append("Treatments per Doctor:\n");
-        for (int i = 0; i < doctorList.size(); i++) {
-            sb.append("  Doctor ").append(doctorList.get(i)).append(": ").append(doctorCountList.get(i)).append("\n");
+        for (int i = 0; i < doctorCounts.size(); i++) {
+            sb.append("  Doctor ").append(doctorCounts.keyAt(i)).append(": ").append(doctorCounts.valueAt(i)).append("\n");
         }
         return sb.toString();
     }
 
     // Report: Treatments per Patient
     public String getTreatmentsPerPatientReport() {
-        CustomADT<String> patientList = new CustomADT<>();
-        CustomADT<Integer> patientCountList = new CustomADT<>();
+        ObjectIntMap<String> patientCounts = new ObjectIntMap<>();
         for (int i = 0; i < treatments.size(); i++) {
             Treatment t = treatments.get(i);
             Consultation c = findConsultationById(t.getConsultationId());
-            if (c != null && c.getPatientId() != null) {
-                String patId = c.getPatientId();
-                int idx = -1;
-                for (int j = 0; j < patientList.size(); j++) {
-                    if (patientList.get(j).equals(patId)) { idx = j; break; }
-                }
-                if (idx == -1) { patientList.add(patId); patientCountList.add(1); }
-                else patientCountList.set(idx, patientCountList.get(idx) + 1);
-            }
+            if (c != null && c.getPatientId() != null) patientCounts.increment(c.getPatientId());
         }
         StringBuilder sb = new StringBuilder();
         sb.append("Treatments per Patient:\n");
-        for (int i = 0; i < patientList.size(); i++) {
-            sb.append("  Patient ").append(patientList.get(i)).append(": ").append(patientCountList.get(i)).append("\n");
+        for (int i = 0; i < patientCounts.size(); i++) {
+            sb.append("  Patient ").append(patientCounts.keyAt(i)).append(": ").append(patientCounts.valueAt(i)).append("\n");
         }
         return sb.toString();
     }
 
     // Report: Cost per Type
     public String getCostPerTypeReport() {
-        CustomADT<Treatment.Type> typeList = new CustomADT<>();
-        CustomADT<Double> typeCostList = new CustomADT<>();
-        CustomADT<Integer> typeCountList = new CustomADT<>();
+        // Counts keyed by type; costs kept in a DoubleADT aligned with the map's insertion order
+        ObjectIntMap<Treatment.Type> typeCounts = new ObjectIntMap<>();
+        DoubleADT typeCosts = new DoubleADT();
         for (int i = 0; i < treatments.size(); i++) {
             Treatment t = treatments.get(i);
             if (t.getType() != null && t.getCost() != null) {
-                int idx = -1;
-                for (int j = 0; j < typeList.size(); j++) {
-                    if (typeList.get(j).equals(t.getType())) { idx = j; break; }
-                }
+                int idx = typeCounts.indexOf(t.getType());
                 if (idx == -1) {
-                    typeList.add(t.getType());
-                    typeCostList.add(t.getCost());
-                    typeCountList.add(1);
+                    typeCounts.put(t.getType(), 1);
+                    typeCosts.add(t.getCost());
                 } else {
-                    typeCostList.set(idx, typeCostList.get(idx) + t.getCost());
-                    typeCountList.set(idx, typeCountList.get(idx) + 1);
+                    typeCounts.addTo(t.getType(), 1);
+                    typeCosts.addAt(idx, t.getCost());
                 }
             }
         }
         StringBuilder sb = new StringBuilder();
         sb.append("Cost per Treatment Type:\n");
-        for (int i = 0; i < typeList.size(); i++) {
-            double avg = typeCountList.get(i) == 0 ? 0.0 : typeCostList.get(i) / typeCountList.get(i);
-            sb.append("  ").append(typeList.get(i)).append(": Total=").append(String.format("%.2f", typeCostList.get(i))).append(", Avg=").append(String.format("%.2f", avg)).append("\n");
+        for (int i = 0; i < typeCounts.size(); i++) {
+            double avg = typeCounts.valueAt(i) == 0 ? 0.0 : typeCosts.get(i) / typeCounts.valueAt(i);
+            sb.append("  ").append(typeCounts.keyAt(i)).append(": Total=").append(String.format("%.2f", typeCosts.get(i))).append(", Avg=").append(String.format("%.2f", avg)).append("\n");
         }
         return sb.toString();
     }
@@ -169,35 +146,21 @@ public class TreatmentMaintenance {
     public String getSummaryReport(CustomADT<Treatment> list) {
         int total = list.size();
         double totalCost = 0;
-        CustomADT<Treatment.Type> typeList = new CustomADT<>();
-        CustomADT<Integer> typeCountList = new CustomADT<>();
-        CustomADT<Treatment.TreatmentStatus> statusList = new CustomADT<>();
-        CustomADT<Integer> statusCountList = new CustomADT<>();
+        ObjectIntMap<Treatment.Type> typeCounts = new ObjectIntMap<>();
+        ObjectIntMap<Treatment.TreatmentStatus> statusCounts = new ObjectIntMap<>();
         for (int i = 0; i < list.size(); i++) {
             Treatment t = list.get(i);
             totalCost += t.getCost() != null ? t.getCost() : 0;
-            // Type
-            int typeIdx = -1;
-            for (int j = 0; j < typeList.size(); j++) {
-                if (typeList.get(j).equals(t.getType())) { typeIdx = j; break; }
-            }
-            if (typeIdx == -1) { typeList.add(t.getType()); typeCountList.add(1); }
-            else typeCountList.set(typeIdx, typeCountList.get(typeIdx) + 1);
-            // Status
-            int statusIdx = -1;
-            for (int j = 0; j < statusList.size(); j++) {
-                if (statusList.get(j).equals(t.getStatus())) { statusIdx = j; break; }
-            }
-            if (statusIdx == -1) { statusList.add(t.getStatus()); statusCountList.add(1); }
-            else statusCountList.set(statusIdx, statusCountList.get(statusIdx) + 1);
+            typeCounts.increment(t.getType());
+            statusCounts.increment(t.getStatus());
         }
         StringBuilder sb = new StringBuilder();
         sb.append("Total Treatments: ").append(total).append("\n");
         sb.append("Average Cost: ").append(total == 0 ? 0 : String.format("%.2f", totalCost / total)).append("\n");
         sb.append("Type Breakdown:\n");
-        for (int i = 0; i < typeList.size(); i++) sb.append("  ").append(typeList.get(i)).append(": ").append(typeCountList.get(i)).append("\n");
+        for (int i = 0; i < typeCounts.size(); i++) sb.append("  ").append(typeCounts.keyAt(i)).append(": ").append(typeCounts.valueAt(i)).append("\n");
         sb.append("Status Breakdown:\n");
-        for (int i = 0; i < statusList.size(); i++) sb.append("  ").append(statusList.get(i)).append(": ").append(statusCountList.get(i)).append("\n");
+        for (int i = 0; i < statusCounts.size(); i++) sb.append("  ").append(statusCounts.keyAt(i)).append(": ").append(statusCounts.valueAt(i)).append("\n");
         return sb.toString();
     }
 
@@ -244,25 +207,25 @@ public class TreatmentMaintenance {
         }
         return count == 0 ? 0 : total / count;
     }
-    private final TreatmentDAO tdao = new TreatmentDAO();
-    private final ConsultationDAO cdao = new ConsultationDAO();
-    private final MedicationDAO mdao = new MedicationDAO();
-    private final PatientDAO pdao = new PatientDAO();
-    private final DoctorDAO ddao = new DoctorDAO();
+    private final Repository<Treatment> treatmentRepo = Repositories.treatments();
+    private final Repository<Consultation> consultationRepo = Repositories.consultations();
+    private final Repository<Medication> medicationRepo = Repositories.medications();
+    private final Repository<Patient> patientRepo = Repositories.patients();
+    private final Repository<entity.Doctor> doctorRepo = Repositories.doctors();
 
     private ADTInterface<Treatment> treatments = new CustomADT<>();
 
     public TreatmentMaintenance(){
-        treatments = tdao.load();
+        treatments = treatmentRepo.all();
     }
 
     // Queries
     public ADTInterface<Treatment> getAllTreatments(){ return treatments; }
-    public ADTInterface<Consultation> getAllConsultations(){ return cdao.load(); }
-    public ADTInterface<Medication> getAllMedications(){ return mdao.load(); }
+    public ADTInterface<Consultation> getAllConsultations(){ return consultationRepo.all(); }
+    public ADTInterface<Medication> getAllMedications(){ return medicationRepo.all(); }
 
     public CustomADT<Consultation> getOngoingConsultations(){
-        ADTInterface<Consultation> cons = cdao.load();
+        ADTInterface<Consultation> cons = consultationRepo.all();
         CustomADT<Consultation> ongoing = new CustomADT<>();
         for (int i=0;i<cons.size();i++){
             Consultation c = cons.get(i);
@@ -271,33 +234,16 @@ public class TreatmentMaintenance {
         return ongoing;
     }
 
-    public Treatment findTreatmentById(String id){
-        if (id==null) return null;
-        if (treatments instanceof CustomADT<?> cadt){
-            @SuppressWarnings("unchecked") CustomADT<Treatment> list=(CustomADT<Treatment>) cadt;
-            int idx = list.findIndex(new CustomADT.ADTPredicate<Treatment>(){ public boolean test(Treatment t){ return t.getId()!=null && t.getId().equals(id);} });
-            return idx>=0? list.get(idx): null;
-        }
-        for (int i=0;i<treatments.size();i++) if (id.equals(treatments.get(i).getId())) return treatments.get(i);
-        return null;
-    }
+    public Treatment findTreatmentById(String id){ return treatmentRepo.findById(id); }
 
-    public Consultation findConsultationById(String id){
-        ADTInterface<Consultation> cons = cdao.load();
-        for (int i=0;i<cons.size();i++) if (id!=null && id.equals(cons.get(i).getId())) return cons.get(i);
-        return null;
-    }
-    public Medication findMedicationById(String id){
-        ADTInterface<Medication> meds = mdao.load();
-        for (int i=0;i<meds.size();i++) if (id!=null && id.equals(meds.get(i).getId())) return meds.get(i);
-        return null;
-    }
+    public Consultation findConsultationById(String id){ return consultationRepo.findById(id); }
+    public Medication findMedicationById(String id){ return medicationRepo.findById(id); }
 
     // Commands
     public Treatment addTreatment(Treatment tr){
         if (tr==null) return null;
         if (tr.getId()==null || tr.getId().isBlank()) tr.setId(generateNextId());
-        treatments.add(tr);
+        treatmentRepo.add(tr);
         persist();
         return tr;
     }
@@ -305,7 +251,7 @@ public class TreatmentMaintenance {
         if (tr==null || tr.getId()==null) return false;
         for (int i=0;i<treatments.size();i++){
             if (tr.getId().equals(treatments.get(i).getId())){
-                treatments.set(i, tr);
+                treatmentRepo.update(tr);
                 persist();
                 return true;
             }
@@ -317,10 +263,10 @@ public class TreatmentMaintenance {
         if (treatments instanceof CustomADT<?> cadt){
             @SuppressWarnings("unchecked") CustomADT<Treatment> list=(CustomADT<Treatment>) cadt;
             int idx = list.findIndex(new CustomADT.ADTPredicate<Treatment>(){ public boolean test(Treatment t){ return t.getId()!=null && t.getId().equals(id);} });
-            if (idx>=0){ list.remove(idx); persist(); return true; }
+            if (idx>=0){ treatmentRepo.remove(list.get(idx)); persist(); return true; }
             return false;
         }
-        for (int i=0;i<treatments.size();i++) if (id.equals(treatments.get(i).getId())){ treatments.remove(i); persist(); return true; }
+        for (int i=0;i<treatments.size();i++) if (id.equals(treatments.get(i).getId())){ treatmentRepo.remove(treatments.get(i)); persist(); return true; }
         return false;
     }
 
@@ -336,14 +282,12 @@ public class TreatmentMaintenance {
     }
     public CustomADT<Treatment> searchByPatient(String q){
         String s=q==null?"":q.toLowerCase();
-    // uses cdao in loop via findConsultationById
-        ADTInterface<entity.Patient> patients = pdao.retrieveFromFile();
         CustomADT<Treatment> results = new CustomADT<>();
         for (int i=0;i<treatments.size();i++){
             Treatment t = treatments.get(i);
             Consultation c = findConsultationById(t.getConsultationId());
             if (c==null) continue;
-            entity.Patient p = findPatientById(patients, c.getPatientId());
+            entity.Patient p = patientRepo.findById(c.getPatientId());
             String pid = c.getPatientId()==null?"":c.getPatientId();
             String pname = p==null?"":p.getName()==null?"":p.getName();
             if (pid.toLowerCase().contains(s) || pname.toLowerCase().contains(s)) results.add(t);
@@ -352,14 +296,12 @@ public class TreatmentMaintenance {
     }
     public CustomADT<Treatment> searchByDoctor(String q){
         String s=q==null?"":q.toLowerCase();
-    // uses cdao in loop via findConsultationById
-        ADTInterface<entity.Doctor> doctors = ddao.retrieveFromFile();
         CustomADT<Treatment> results = new CustomADT<>();
         for (int i=0;i<treatments.size();i++){
             Treatment t = treatments.get(i);
             Consultation c = findConsultationById(t.getConsultationId());
             if (c==null) continue;
-            entity.Doctor d = findDoctorById(doctors, c.getDoctorId());
+            entity.Doctor d = doctorRepo.findById(c.getDoctorId());
             String did = c.getDoctorId()==null?"":c.getDoctorId();
             String dname = d==null?"":d.getName()==null?"":d.getName();
             if (did.toLowerCase().contains(s) || dname.toLowerCase().contains(s)) results.add(t);
@@ -367,10 +309,9 @@ public class TreatmentMaintenance {
         return results;
     }
 
-    // Sort
-    public void sortTreatments(int field, boolean asc){
-        if (!(treatments instanceof CustomADT<?> cadt)) return;
-        @SuppressWarnings("unchecked") CustomADT<Treatment> list=(CustomADT<Treatment>) cadt;
+    // Sort: returns a sorted copy; the shared treatment list keeps its file order
+    public ADTInterface<Treatment> sortTreatments(int field, boolean asc){
+        CustomADT<Treatment> list=CustomADT.copyOf(treatments);
         CustomADT.ADTComparator<Treatment> cmp;
         switch (field){
             case 1 -> cmp = (a,b) -> {
@@ -389,6 +330,7 @@ public class TreatmentMaintenance {
         }
         list.sort(cmp);
         if (!asc) reverse(list);
+        return list;
     }
 
     // Helpers
@@ -396,23 +338,12 @@ public class TreatmentMaintenance {
         int max=0; for (int i=0;i<treatments.size();i++){String id=treatments.get(i).getId(); if(id!=null&&id.startsWith("T"))try{int n=Integer.parseInt(id.substring(1)); if(n>max)max=n;}catch(Exception ignored){}}
         return String.format("T%04d", max+1);
     }
-    private void persist(){ tdao.save(treatments); }
+    private void persist(){ treatmentRepo.save(); }
     private String safe(String s){ return s==null?"":s; }
     private void reverse(CustomADT<Treatment> list){ int n=list.size(); for (int i=0;i<n/2;i++) list.swap(i, n-1-i); }
 
-    private entity.Patient findPatientById(ADTInterface<entity.Patient> list, String id){
-        if (id==null) return null; for (int i=0;i<list.size();i++) if (id.equals(list.get(i).getId())) return list.get(i); return null;
-    }
-    private entity.Doctor findDoctorById(ADTInterface<entity.Doctor> list, String id){
-        if (id==null) return null; for (int i=0;i<list.size();i++) if (id.equals(list.get(i).getId())) return list.get(i); return null;
-    }
-
     public void refreshTreatmentFromFile() {
-        ADTInterface<Treatment> fresh = tdao.load();
-        treatments.clear();
-        for (int i = 0; i < fresh.size(); i++) {
-            treatments.add(fresh.get(i));
-        }
+        treatmentRepo.reload();
     }
 
     /**
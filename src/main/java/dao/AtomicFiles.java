@@ -0,0 +1,175 @@
+package dao;
+
+import adt.ObjectMap;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crash-safe file writes for the DAOs.
+ *
+ * replace() writes the new content to a temp file beside the target, forces it,
+ * and renames it over the target with ATOMIC_MOVE, so the target is always the
+ * complete old or the complete new file, never a truncated mix. append() adds to
+ * a file in place; it is used for journals, whose torn tails JournaledStore drops.
+ *
+ * The fsyncs that only make a finished write durable (the directory entry after a
+ * rename, appended journal data) are group-committed: a background committer runs
+ * them clinic.fsync.window ms (default 50) after the first pending one, once per
+ * file however many saves touched it in between. A process crash loses nothing;
+ * an OS crash or power cut loses at most the last window of saves, and never
+ * leaves a half-written snapshot. -Dclinic.fsync.window=0 forces every write
+ * before returning instead. sync() commits everything pending now; it also runs
+ * at JVM shutdown.
+ */
+final class AtomicFiles {
+    /** Writes the whole new content of a file. */
+    interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /** A deferred durability step, e.g. forcing a file. */
+    interface Commit {
+        void commit() throws IOException;
+    }
+
+    private static final long WINDOW_MS = Long.getLong("clinic.fsync.window", 50L);
+
+    private static final Object LOCK = new Object();
+    private static final ObjectMap<Object, Commit> pending = new ObjectMap<>();
+    private static boolean scheduled;
+    private static ScheduledExecutorService committer;
+
+    static {
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread(AtomicFiles::sync, "fsync-shutdown"));
+        } catch (IllegalStateException e) {
+            // first used by a shutdown hook (Persister's); that hook syncs itself
+        }
+    }
+
+    private AtomicFiles() {}
+
+    /** Replace target's content atomically (temp file, force, ATOMIC_MOVE). */
+    static void replace(File target, Body body) throws IOException {
+        Path path = target.toPath().toAbsolutePath();
+        // One temp name per thread, so concurrent writers of the same file never share one
+        Path tmp = path.resolveSibling(path.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16);
+                body.writeTo(new KeepOpen(out)); // Jackson closes what it writes to; the channel must stay open
+                out.flush();
+                ch.force(false); // data must be on disk before the rename makes it the live file
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        forceLater(path.getParent());
+    }
+
+    /** Append bytes to target (created if missing); forced by the next group commit. */
+    static void append(File target, byte[] bytes) throws IOException {
+        Path path = target.toPath().toAbsolutePath();
+        boolean created = !Files.exists(path);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) ch.write(buf);
+        }
+        forceLater(path);
+        if (created) forceLater(path.getParent());
+    }
+
+    /** Force a file or directory in the next group commit. */
+    static void forceLater(Path path) {
+        commitLater(path, () -> force(path));
+    }
+
+    /**
+     * Run commit in the next group commit. A later request with the same key before
+     * then replaces the earlier one, so repeated saves of one file cost one fsync.
+     */
+    static void commitLater(Object key, Commit commit) {
+        if (WINDOW_MS <= 0) {
+            run(commit);
+            return;
+        }
+        synchronized (LOCK) {
+            pending.put(key, commit);
+            if (scheduled) return;
+            scheduled = true;
+            if (committer == null) {
+                committer = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "fsync-committer");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            committer.schedule(AtomicFiles::sync, WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Commit everything pending now. */
+    static void sync() {
+        Commit[] batch;
+        synchronized (LOCK) {
+            batch = new Commit[pending.size()];
+            for (int i = 0; i < batch.length; i++) batch[i] = pending.valueAt(i);
+            pending.clear();
+            scheduled = false;
+        }
+        for (Commit c : batch) run(c);
+    }
+
+    private static void run(Commit c) {
+        try {
+            c.commit();
+        } catch (IOException e) {
+            System.out.println("Error syncing data to disk: " + e.getMessage());
+        }
+    }
+
+    private static void force(Path path) throws IOException {
+        boolean dir = Files.isDirectory(path);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (NoSuchFileException e) {
+            // replaced or deleted since; whatever replaced it was committed on its own
+        } catch (IOException e) {
+            if (!dir) throw e; // some platforms cannot open or force a directory; nothing more to do there
+        }
+    }
+
+    // Passes writes through but turns close() into flush()
+    private static final class KeepOpen extends FilterOutputStream {
+        KeepOpen(OutputStream out) { super(out); }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException { out.write(b, off, len); }
+
+        @Override
+        public void close() throws IOException { out.flush(); }
+    }
+}
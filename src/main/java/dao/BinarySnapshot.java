@@ -0,0 +1,434 @@
+package dao;
+
+import adt.ADTInterface;
+import adt.CustomADT;
+import adt.ObjectIntMap;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary snapshot codec for the entity files (a hand-rolled take on Smile).
+ *
+ *   file   := "CLNB" version:u8 layout:u8 count:varint record*
+ *
+ * Layout TOKENS works for any entity: each element is serialized with the DAO's
+ * ObjectMapper into Jackson tokens and every token is written as a one-byte tag
+ * plus payload, so the file holds exactly what the JSON would. Layout RECORDS is
+ * used when the DAO supplies a RecordCodec: fields are written in a fixed order
+ * with no names and no databind on either side, which is what makes the large
+ * files fast to load.
+ *
+ * Field names and short string values are interned in per-file tables and written
+ * once; repeats are varint back-references. Integers are zigzag varints, floating
+ * point numbers are 8-byte doubles. The count header lets the reader presize.
+ */
+final class BinarySnapshot {
+    private static final byte[] MAGIC = { 'C', 'L', 'N', 'B' };
+    private static final int VERSION = 1;
+    private static final int LAYOUT_TOKENS = 0;
+    private static final int LAYOUT_RECORDS = 1;
+
+    private static final int START_OBJECT = 1;
+    private static final int END_OBJECT = 2;
+    private static final int START_ARRAY = 3;
+    private static final int END_ARRAY = 4;
+    private static final int NAME_NEW = 5;
+    private static final int NAME_REF = 6;
+    private static final int STRING_NEW = 7;    // interned
+    private static final int STRING_REF = 8;
+    private static final int STRING_RAW = 9;    // too long (or table full) to intern
+    private static final int INT = 10;
+    private static final int DOUBLE = 11;
+    private static final int TRUE = 12;
+    private static final int FALSE = 13;
+    private static final int NULL = 14;
+    private static final int BIG_INT = 15;      // decimal text
+    private static final int NAME_RAW = 16;     // names table full
+
+    // Both sides apply the same rule, so the tables never need to be stored
+    private static final int MAX_INTERNED_LENGTH = 32;
+    private static final int MAX_INTERNED = 1 << 14;
+
+    private BinarySnapshot() {}
+
+    /**
+     * Hand-written field-by-field encoding of one entity type. read() must consume
+     * exactly what write() produced, in the same order. Changing a codec makes
+     * existing .bin files unreadable: export them to JSON first (SnapshotExport),
+     * switch the file back to JSON, then convert again.
+     */
+    interface RecordCodec<T> {
+        void write(Out out, T e) throws IOException;
+
+        T read(In in) throws IOException;
+    }
+
+    /** True if the file starts with the binary snapshot magic. */
+    static boolean isBinary(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] head = new byte[MAGIC.length];
+            return in.read(head) == head.length && java.util.Arrays.equals(head, MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Replace file atomically (see AtomicFiles). codec may be null (generic token layout). */
+    static <T> void write(ObjectMapper mapper, File file, ADTInterface<T> list, RecordCodec<T> codec) throws IOException {
+        AtomicFiles.replace(file, out -> write(mapper, out, list, codec));
+    }
+
+    static <T> void write(ObjectMapper mapper, OutputStream os, ADTInterface<T> list, RecordCodec<T> codec) throws IOException {
+        DataOutputStream out = os instanceof DataOutputStream d ? d : new DataOutputStream(os);
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(codec == null ? LAYOUT_TOKENS : LAYOUT_RECORDS);
+        writeVarLong(out, list.size());
+        if (codec != null) {
+            Out rec = new Out(out, true);
+            for (int i = 0; i < list.size(); i++) {
+                T e = list.get(i);
+                rec.bool(e != null);
+                if (e != null) codec.write(rec, e);
+            }
+            out.flush();
+            return;
+        }
+        Encoder enc = new Encoder(out);
+        for (int i = 0; i < list.size(); i++) {
+            T e = list.get(i);
+            if (e == null) { out.writeByte(NULL); continue; }
+            TokenBuffer tb = new TokenBuffer(mapper, false);
+            mapper.writeValue(tb, e);
+            try (JsonParser p = tb.asParser()) {
+                JsonToken t;
+                while ((t = p.nextToken()) != null) enc.token(t, p);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Append the file's elements to into (presized from the header). Clears what it
+     * added on error. codec is needed only for files written with one.
+     */
+    static <T> void read(ObjectMapper mapper, File file, Class<T> type, ADTInterface<T> into, RecordCodec<T> codec) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            read(mapper, in, type, into, codec);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> void read(ObjectMapper mapper, InputStream is, Class<T> type, ADTInterface<T> into, RecordCodec<T> codec) throws IOException {
+        int before = into.size();
+        try {
+            DataInputStream in = new DataInputStream(is);
+            byte[] head = new byte[MAGIC.length];
+            in.readFully(head);
+            if (!java.util.Arrays.equals(head, MAGIC)) throw new IOException("Not a binary snapshot");
+            int version = in.readUnsignedByte();
+            if (version != VERSION) throw new IOException("Unsupported binary snapshot version " + version);
+            int layout = in.readUnsignedByte();
+            if (layout != LAYOUT_TOKENS && layout != LAYOUT_RECORDS) throw new IOException("Unknown binary snapshot layout " + layout);
+            if (layout == LAYOUT_RECORDS && codec == null) throw new IOException("No record codec for " + type.getSimpleName());
+            long count = readVarLong(in);
+            if (count < 0 || count > Integer.MAX_VALUE - 8) throw new IOException("Bad record count " + count);
+            if (into instanceof CustomADT<?>) ((CustomADT<T>) into).ensureCapacity(before + (int) count);
+
+            if (layout == LAYOUT_RECORDS) {
+                In rec = new In(in);
+                for (long i = 0; i < count; i++) into.add(rec.bool() ? codec.read(rec) : null);
+                return;
+            }
+            ObjectReader reader = mapper.readerFor(type);
+            Decoder dec = new Decoder(in);
+            for (long i = 0; i < count; i++) {
+                TokenBuffer tb = new TokenBuffer(mapper, false);
+                if (!dec.value(tb)) { into.add(null); continue; }
+                try (JsonParser p = tb.asParser()) {
+                    into.add(reader.readValue(p));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            while (into.size() > before) into.remove(into.size() - 1);
+            throw e;
+        }
+    }
+
+    // ===== Encoding =====
+
+    private static final class Encoder {
+        private final DataOutputStream out;
+        private final ObjectIntMap<String> names = new ObjectIntMap<>();
+        private final ObjectIntMap<String> strings = new ObjectIntMap<>();
+
+        Encoder(DataOutputStream out) { this.out = out; }
+
+        void token(JsonToken t, JsonParser p) throws IOException {
+            switch (t) {
+                case START_OBJECT -> out.writeByte(START_OBJECT);
+                case END_OBJECT -> out.writeByte(END_OBJECT);
+                case START_ARRAY -> out.writeByte(START_ARRAY);
+                case END_ARRAY -> out.writeByte(END_ARRAY);
+                case FIELD_NAME -> interned(p.getCurrentName(), names, NAME_NEW, NAME_REF, NAME_RAW, true);
+                case VALUE_STRING -> interned(p.getText(), strings, STRING_NEW, STRING_REF, STRING_RAW, false);
+                case VALUE_NUMBER_INT -> {
+                    if (p.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                        out.writeByte(BIG_INT);
+                        writeUtf(out, p.getBigIntegerValue().toString());
+                    } else {
+                        out.writeByte(INT);
+                        long v = p.getLongValue();
+                        writeVarLong(out, (v << 1) ^ (v >> 63));
+                    }
+                }
+                case VALUE_NUMBER_FLOAT -> { out.writeByte(DOUBLE); out.writeDouble(p.getDoubleValue()); }
+                case VALUE_TRUE -> out.writeByte(TRUE);
+                case VALUE_FALSE -> out.writeByte(FALSE);
+                case VALUE_NULL -> out.writeByte(NULL);
+                default -> throw new IOException("Cannot encode token " + t);
+            }
+        }
+
+        private void interned(String s, ObjectIntMap<String> table,
+                              int newTag, int refTag, int rawTag, boolean name) throws IOException {
+            int ref = table.getOrDefault(s, -1);
+            if (ref >= 0) {
+                out.writeByte(refTag);
+                writeVarLong(out, ref);
+                return;
+            }
+            if (internable(s, table.size(), name)) {
+                table.put(s, table.size());
+                out.writeByte(newTag);
+            } else {
+                out.writeByte(rawTag);
+            }
+            writeUtf(out, s);
+        }
+    }
+
+    // ===== Decoding =====
+
+    private static final class Decoder {
+        private final DataInputStream in;
+        private final CustomADT<String> names = new CustomADT<>();
+        private final CustomADT<String> strings = new CustomADT<>();
+
+        Decoder(DataInputStream in) { this.in = in; }
+
+        /** Copy one complete value into tb. Returns false for a top-level null. */
+        boolean value(TokenBuffer tb) throws IOException {
+            int depth = 0;
+            do {
+                int tag = in.read();
+                if (tag < 0) throw new EOFException("Truncated binary snapshot");
+                if (depth == 0 && tag == NULL) return false;
+                switch (tag) {
+                    case START_OBJECT -> { tb.writeStartObject(); depth++; }
+                    case END_OBJECT -> { tb.writeEndObject(); depth--; }
+                    case START_ARRAY -> { tb.writeStartArray(); depth++; }
+                    case END_ARRAY -> { tb.writeEndArray(); depth--; }
+                    case NAME_NEW -> { String s = readUtf(in); if (internable(s, names.size(), true)) names.add(s); tb.writeFieldName(s); }
+                    case NAME_REF -> tb.writeFieldName(lookup(names));
+                    case STRING_NEW -> { String s = readUtf(in); if (internable(s, strings.size(), false)) strings.add(s); tb.writeString(s); }
+                    case STRING_REF -> tb.writeString(lookup(strings));
+                    case NAME_RAW -> tb.writeFieldName(readUtf(in));
+                    case STRING_RAW -> tb.writeString(readUtf(in));
+                    case INT -> {
+                        long z = readVarLong(in);
+                        long v = (z >>> 1) ^ -(z & 1);
+                        if (v == (int) v) tb.writeNumber((int) v); else tb.writeNumber(v);
+                    }
+                    case DOUBLE -> tb.writeNumber(in.readDouble());
+                    case TRUE -> tb.writeBoolean(true);
+                    case FALSE -> tb.writeBoolean(false);
+                    case NULL -> tb.writeNull();
+                    case BIG_INT -> tb.writeNumber(new java.math.BigInteger(readUtf(in)));
+                    default -> throw new IOException("Bad tag " + tag + " in binary snapshot");
+                }
+            } while (depth > 0);
+            return true;
+        }
+
+        private String lookup(CustomADT<String> table) throws IOException {
+            long idx = readVarLong(in);
+            if (idx < 0 || idx >= table.size()) throw new IOException("Bad back-reference " + idx);
+            return table.get((int) idx);
+        }
+    }
+
+    // ===== Record codec streams =====
+
+    /** Field writer handed to a RecordCodec. */
+    static final class Out {
+        private final DataOutputStream out;
+        private final ObjectIntMap<String> strings;
+
+        /** intern=false writes every string in full (used for position-independent fingerprints). */
+        Out(DataOutputStream out, boolean intern) {
+            this.out = out;
+            this.strings = intern ? new ObjectIntMap<>() : null;
+        }
+
+        // 0 = null, (index << 1) | 1 = earlier string, (byteLength + 1) << 1 = literal follows
+        void string(String s) throws IOException {
+            if (s == null) { out.writeByte(0); return; }
+            if (strings != null) {
+                int ref = strings.getOrDefault(s, -1);
+                if (ref >= 0) { writeVarLong(out, ((long) ref << 1) | 1); return; }
+                if (internable(s, strings.size(), false)) strings.put(s, strings.size());
+            }
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, ((long) b.length + 1) << 1);
+            out.write(b);
+        }
+
+        void strings(String[] a) throws IOException {
+            writeVarLong(out, a == null ? 0 : a.length + 1L);
+            if (a != null) for (String s : a) string(s);
+        }
+
+        /** Enum constants are written by name, so reordering an enum does not break old files. */
+        void enumName(Enum<?> e) throws IOException { string(e == null ? null : e.name()); }
+
+        void bool(boolean b) throws IOException { out.writeBoolean(b); }
+
+        void varLong(long v) throws IOException { writeVarLong(out, (v << 1) ^ (v >> 63)); }
+
+        void number(Double d) throws IOException {
+            out.writeBoolean(d != null);
+            if (d != null) out.writeDouble(d);
+        }
+
+        void number(Integer n) throws IOException {
+            out.writeBoolean(n != null);
+            if (n != null) varLong(n);
+        }
+
+        void date(java.time.LocalDate d) throws IOException {
+            out.writeBoolean(d != null);
+            if (d != null) varLong(d.toEpochDay());
+        }
+
+        void dateTime(java.time.LocalDateTime t) throws IOException {
+            out.writeBoolean(t != null);
+            if (t != null) {
+                varLong(t.toEpochSecond(java.time.ZoneOffset.UTC));
+                writeVarLong(out, t.getNano());
+            }
+        }
+    }
+
+    /** Field reader handed to a RecordCodec; mirrors Out. */
+    static final class In {
+        private final DataInputStream in;
+        private final CustomADT<String> strings = new CustomADT<>();
+
+        In(DataInputStream in) { this.in = in; }
+
+        String string() throws IOException {
+            long h = readVarLong(in);
+            if (h == 0) return null;
+            if ((h & 1) != 0) {
+                long idx = h >>> 1;
+                if (idx >= strings.size()) throw new IOException("Bad back-reference " + idx);
+                return strings.get((int) idx);
+            }
+            long len = (h >>> 1) - 1;
+            if (len > Integer.MAX_VALUE) throw new IOException("Bad string length " + len);
+            byte[] b = new byte[(int) len];
+            in.readFully(b);
+            String s = new String(b, StandardCharsets.UTF_8);
+            if (internable(s, strings.size(), false)) strings.add(s);
+            return s;
+        }
+
+        String[] strings() throws IOException {
+            long n = readVarLong(in);
+            if (n == 0) return null;
+            if (n - 1 > Integer.MAX_VALUE - 8) throw new IOException("Bad array length " + (n - 1));
+            String[] a = new String[(int) (n - 1)];
+            for (int i = 0; i < a.length; i++) a[i] = string();
+            return a;
+        }
+
+        <E extends Enum<E>> E enumName(Class<E> type) throws IOException {
+            String name = string();
+            return name == null ? null : Enum.valueOf(type, name);
+        }
+
+        boolean bool() throws IOException { return in.readBoolean(); }
+
+        long varLong() throws IOException {
+            long z = readVarLong(in);
+            return (z >>> 1) ^ -(z & 1);
+        }
+
+        Double doubleOrNull() throws IOException { return in.readBoolean() ? in.readDouble() : null; }
+
+        Integer intOrNull() throws IOException { return in.readBoolean() ? (int) varLong() : null; }
+
+        java.time.LocalDate date() throws IOException {
+            return in.readBoolean() ? java.time.LocalDate.ofEpochDay(varLong()) : null;
+        }
+
+        java.time.LocalDateTime dateTime() throws IOException {
+            if (!in.readBoolean()) return null;
+            long seconds = varLong();
+            return java.time.LocalDateTime.ofEpochSecond(seconds, (int) readVarLong(in), java.time.ZoneOffset.UTC);
+        }
+    }
+
+    // ===== Primitives =====
+
+    private static boolean internable(String s, int tableSize, boolean name) {
+        if (tableSize >= MAX_INTERNED) return false;
+        return name || s.length() <= MAX_INTERNED_LENGTH;
+    }
+
+    private static void writeUtf(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, b.length);
+        out.write(b);
+    }
+
+    private static String readUtf(DataInputStream in) throws IOException {
+        long len = readVarLong(in);
+        if (len < 0 || len > Integer.MAX_VALUE) throw new IOException("Bad string length " + len);
+        byte[] b = new byte[(int) len];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,86 @@
+package dao;
+
+import adt.ADTInterface;
+import adt.ObjectMap;
+import adt.ObjectSet;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * A save as handed to the Persister, already serialized to JSON on the thread
+ * that saved, so the background writer never reads the live entities that
+ * thread keeps changing. Either
+ *
+ *   full:  every element, in list order (ids/values), or
+ *   delta: the ids removed and the elements put since the previous save; the
+ *          removals apply first, then the puts, an id not yet in the list
+ *          being appended (the order Repository.add()/remove() leave behind).
+ */
+final class ChangeSet {
+    /** Serializes one element the way its DAO writes it. */
+    interface Encoder<T> {
+        byte[] encode(T element) throws IOException;
+    }
+
+    final String[] ids;     // full: id of each element, in list order, null where it has none
+    final byte[][] values;  // full: JSON of each element
+    final ObjectMap<String, byte[]> puts;  // delta: id -> JSON, in the order they were put
+    final ObjectSet<String> removed;       // delta
+
+    private ChangeSet(String[] ids, byte[][] values, ObjectMap<String, byte[]> puts, ObjectSet<String> removed) {
+        this.ids = ids;
+        this.values = values;
+        this.puts = puts;
+        this.removed = removed;
+    }
+
+    /** The whole list, serialized now. */
+    static <T> ChangeSet of(ADTInterface<T> list, Function<? super T, String> idOf, Encoder<? super T> encoder)
+            throws IOException {
+        int n = list.size();
+        String[] ids = new String[n];
+        byte[][] values = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            T e = list.get(i);
+            ids[i] = e == null ? null : idOf.apply(e);
+            values[i] = encoder.encode(e);
+        }
+        return new ChangeSet(ids, values, null, null);
+    }
+
+    /** An empty delta; fill it with put() and remove(). */
+    static ChangeSet delta() {
+        return new ChangeSet(null, null, new ObjectMap<>(), new ObjectSet<>());
+    }
+
+    boolean isFull() {
+        return ids != null;
+    }
+
+    /** Elements in a full change set, puts in a delta. */
+    int size() {
+        return isFull() ? ids.length : puts.size();
+    }
+
+    /** True if every element of a full change set has an id of its own. */
+    boolean keyed() {
+        ObjectSet<String> seen = new ObjectSet<>(ids.length);
+        for (String id : ids) if (id == null || !seen.add(id)) return false;
+        return true;
+    }
+
+    void put(String id, byte[] json) {
+        puts.put(id, json);
+    }
+
+    void remove(String id) {
+        puts.remove(id);
+        removed.add(id);
+    }
+
+    /** Fold a later delta into this one, as if both had been applied in turn. */
+    void addAll(ChangeSet later) {
+        for (int i = 0; i < later.removed.size(); i++) remove(later.removed.get(i));
+        for (int i = 0; i < later.puts.size(); i++) put(later.puts.keyAt(i), later.puts.valueAt(i));
+    }
+}
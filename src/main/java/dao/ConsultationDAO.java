@@ -10,6 +10,40 @@ import java.io.*;
 public class ConsultationDAO {
     private static final String FILE = "consultations.json";
     private final ObjectMapper mapper;
+    private final JournaledStore<Consultation> store;
+    private final FileCache cache;
+    private MappedConsultationStore columns; // optional mapped mirror, see mirrorTo()
+
+    // Field layout of consultations.bin (see BinarySnapshot.RecordCodec)
+    private static final BinarySnapshot.RecordCodec<Consultation> CODEC = new BinarySnapshot.RecordCodec<>() {
+        @Override
+        public void write(BinarySnapshot.Out out, Consultation c) throws IOException {
+            out.string(c.getId());
+            out.string(c.getPatientId());
+            out.string(c.getDoctorId());
+            out.dateTime(c.getDate());
+            out.string(c.getReason());
+            out.string(c.getNotes());
+            out.enumName(c.getStatus());
+            out.string(c.getCalendarEventId());
+            out.string(c.getFollowUpOfId());
+        }
+
+        @Override
+        public Consultation read(BinarySnapshot.In in) throws IOException {
+            Consultation c = new Consultation();
+            c.setId(in.string());
+            c.setPatientId(in.string());
+            c.setDoctorId(in.string());
+            c.setDate(in.dateTime());
+            c.setReason(in.string());
+            c.setNotes(in.string());
+            c.setStatus(in.enumName(Consultation.Status.class));
+            c.setCalendarEventId(in.string());
+            c.setFollowUpOfId(in.string());
+            return c;
+        }
+    };
 
     public ConsultationDAO() {
         mapper = new ObjectMapper();
@@ -19,51 +53,109 @@ public class ConsultationDAO {
     mapper.registerModule(jtm);
     // Prefer ISO-8601 strings for dates instead of numeric arrays
     mapper.disable(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        store = new JournaledStore<>(FILE, Consultation.class, Consultation::getId, mapper, CODEC);
+        cache = new FileCache(store.snapshotPath(), store.journalPath());
+    }
+
+    /**
+     * Keep columns in step with every load and save from now on. When the files are
+     * unchanged since the mirror was last synced, load() reads the mirror instead of
+     * parsing them.
+     */
+    void mirrorTo(MappedConsultationStore columns) {
+        this.columns = columns;
+    }
+
+    MappedConsultationStore columns() {
+        return columns;
     }
 
     public ADTInterface<Consultation> load() {
-        ADTInterface<Consultation> list = new CustomADT<>();
-        File f = new File(FILE);
-        boolean migrated = false;
-        if (f.exists() && f.length() > 0) {
+        ADTInterface<Consultation> unchanged = cache.isCurrent() ? store.copy() : null;
+        if (unchanged != null) return unchanged;
+        cache.loading();
+        long[] stamp = cache.loadingStamp();
+        // stamp is mtime/size per file; a mirror of missing files (e.g. before a format switch) is not trusted
+        if (columns != null && stamp != null && (stamp[1] > 0 || stamp[3] > 0)) {
             try {
-                Consultation[] arr = mapper.readValue(f, Consultation[].class);
-                for (Consultation c : arr) list.add(c);
-            } catch (IOException ex) {
-                try {
-                    com.fasterxml.jackson.databind.JsonNode root = mapper.readTree(f);
-                    if (root.isArray()) {
-                        if (root.size() > 1 && root.get(1).isArray()) {
-                            com.fasterxml.jackson.databind.JsonNode entries = root.get(1);
-                            for (com.fasterxml.jackson.databind.JsonNode pair : entries) {
-                                if (pair.isArray() && pair.size() > 1 && pair.get(1).isObject()) {
-                                    Consultation c = mapper.treeToValue(pair.get(1), Consultation.class);
-                                    list.add(c);
-                                }
-                            }
-                            migrated = true;
-                        } else {
-                            Consultation[] arr = mapper.treeToValue(root, Consultation[].class);
-                            for (Consultation c : arr) list.add(c);
-                            migrated = true;
-                        }
-                    }
-                } catch (IOException ex2) {
-                    System.out.println("Error loading consultations: " + ex2.getMessage());
+                ADTInterface<Consultation> list = columns.readAll(stamp);
+                if (list != null) {
+                    store.adopt(list, stamp);
+                    cache.loaded();
+                    columns.markSynced();
+                    return list;
                 }
+            } catch (IOException e) {
+                System.out.println("Error loading consultations: " + e.getMessage());
             }
         }
-        if (migrated && list.size() > 0) save(list);
+        ADTInterface<Consultation> list = new CustomADT<>();
+        try {
+            store.read(list);
+        } catch (IOException ex) {
+            System.out.println("Error loading consultations: " + ex.getMessage());
+        }
+        try {
+            // A legacy or converted file is rewritten by replay()
+            if (store.replay(list)) cache.saved(); else cache.loaded();
+        } catch (IOException e) {
+            cache.invalidate();
+            System.out.println("Error loading consultations: " + e.getMessage());
+        }
+        syncColumns(list);
         return list;
     }
 
+    /** Write the current consultations as a plain JSON array (e.g. to inspect a binary snapshot). */
+    public void exportJson(String path) throws IOException {
+        store.export(load(), SnapshotFormat.JSON, new File(path));
+    }
+
+    /** True when the file is unchanged since this DAO last loaded or saved it (a stat per file). */
+    public boolean isUnchanged() {
+        return cache.isCurrent();
+    }
+
     public void save(ADTInterface<Consultation> list) {
         try {
-            Consultation[] arr = new Consultation[list.size()];
-            for (int i=0;i<list.size();i++) arr[i]=list.get(i);
-            mapper.writerWithDefaultPrettyPrinter().writeValue(new File(FILE), arr);
+            save(ChangeSet.of(list, Consultation::getId, store::encode));
         } catch (IOException e) {
             System.out.println("Error saving consultations: " + e.getMessage());
         }
     }
+
+    /** Write a list serialized by the caller (Repository.save()). */
+    void save(ChangeSet changes) {
+        long[] before = cache.cachedStamp(); // the state a delta was made against
+        boolean current = false; // the files hold just what changes made of that state
+        try {
+            current = store.save(changes);
+            if (current) cache.saved(); else cache.invalidate();
+        } catch (IOException e) {
+            cache.invalidate();
+            System.out.println("Error saving consultations: " + e.getMessage());
+        }
+        if (columns == null) return;
+        try {
+            if (current && !changes.isFull() && columns.apply(before, changes.removed, store.decode(changes), cache.cachedStamp())) return;
+            // A whole list, a mirror that had fallen behind, or files another console had written to as well
+            ADTInterface<Consultation> list = changes.isFull() && current ? store.decode(changes) : store.copy();
+            if (list != null) syncColumns(list);
+        } catch (IOException e) {
+            System.out.println("Error updating consultation store: " + e.getMessage());
+        }
+    }
+
+    byte[] encode(Consultation c) throws IOException {
+        return store.encode(c);
+    }
+
+    private void syncColumns(ADTInterface<Consultation> list) {
+        if (columns == null) return;
+        try {
+            columns.sync(list, cache.cachedStamp());
+        } catch (IOException e) {
+            System.out.println("Error updating consultation store: " + e.getMessage());
+        }
+    }
 }
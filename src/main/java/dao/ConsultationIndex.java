@@ -0,0 +1,252 @@
+package dao;
+
+import adt.ADTInterface;
+import adt.CustomADT;
+import adt.LongIntMap;
+import adt.ObjectIntMap;
+import adt.ObjectMap;
+import entity.Consultation;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Secondary indexes over the shared consultation list (see Repositories):
+ *
+ *   doctor id  -> that doctor's consultations, sorted by date
+ *   patient id -> that patient's consultations, in list order
+ *   (doctor, day)  -> bitmap of booked hours (bit h = hour h:00), counting only
+ *                     consultations dated exactly on the hour
+ *
+ * so a slot check is one hash probe plus a bit test, a day's bookings are one
+ * int (see AvailabilityEngine), and a per-doctor or per-patient lookup costs
+ * the size of the answer, not a scan of every consultation.
+ *
+ * The indexes are derived data. Consultations reported through the
+ * repository's add(), update() and remove() are moved in place, a few hash
+ * probes and binary searches each (see Repository.ChangeListener). The indexes
+ * are rebuilt, in one pass, on the first query after a reload, updateAll(), or a
+ * save of edits that were not reported, or if the list size no longer matches.
+ */
+public final class ConsultationIndex {
+    private static final int NONE = -1;
+
+    // What a consultation was indexed under; its fields may have been edited since
+    private static final class Entry {
+        final long seq;          // position in list order
+        final LocalDateTime date;
+        final int doctor;        // slot, or NONE
+        final int patient;       // slot, or NONE
+
+        Entry(long seq, LocalDateTime date, int doctor, int patient) {
+            this.seq = seq;
+            this.date = date;
+            this.doctor = doctor;
+            this.patient = patient;
+        }
+    }
+
+    private final Repository<Consultation> repository;
+    private boolean stale = true;
+    private int builtSize; // list size the indexes account for
+    private long nextSeq;
+
+    private final ObjectMap<Consultation, Entry> entries = ObjectMap.byIdentity(); // by identity: fields change
+    private final ObjectIntMap<String> doctorSlots = new ObjectIntMap<>();
+    private final CustomADT<CustomADT<Consultation>> byDoctor = new CustomADT<>();
+    private final ObjectIntMap<String> patientSlots = new ObjectIntMap<>();
+    private final CustomADT<CustomADT<Consultation>> byPatient = new CustomADT<>();
+    private final LongIntMap bookedHours = new LongIntMap();
+    private final LongIntMap hourCounts = new LongIntMap(); // (doctor, day, hour) -> consultations on it
+
+    // Orders by the indexed date (undated first), then list order
+    private final Comparator<Consultation> byDate = (a, b) -> {
+        Entry x = entries.get(a), y = entries.get(b);
+        if (x.date == null || y.date == null) {
+            if (x.date != y.date) return x.date == null ? -1 : 1;
+        } else {
+            int c = x.date.compareTo(y.date);
+            if (c != 0) return c;
+        }
+        return Long.compare(x.seq, y.seq);
+    };
+    private final Comparator<Consultation> inListOrder = (a, b) -> Long.compare(entries.get(a).seq, entries.get(b).seq);
+
+    ConsultationIndex(Repository<Consultation> repository) {
+        this.repository = repository;
+        repository.addListener(new Repository.ChangeListener<Consultation>() {
+            @Override
+            public void changed(Repository<Consultation> r) { invalidate(); }
+
+            @Override
+            public void added(Consultation c) { onAdded(c); }
+
+            @Override
+            public void updated(Consultation before, Consultation after) { onUpdated(before, after); }
+
+            @Override
+            public void removed(Consultation c) { onRemoved(c); }
+        });
+    }
+
+    /** True if the doctor has a consultation (of any status) at hour:00 on date. */
+    public boolean isBooked(String doctorId, LocalDate date, int hour) {
+        return hour >= 0 && hour < 24 && (bookedHours(doctorId, date) & (1 << hour)) != 0;
+    }
+
+    /** The doctor's booked hours on date as a bitmap: bit h set when hour h:00 is taken. */
+    public synchronized int bookedHours(String doctorId, LocalDate date) {
+        if (doctorId == null || date == null) return 0;
+        refresh();
+        int slot = doctorSlots.getOrDefault(doctorId, NONE);
+        return slot == NONE ? 0 : bookedHours.get(dayKey(slot, date.toEpochDay()));
+    }
+
+    /** The doctor's consultations, earliest first (undated ones lead). */
+    public synchronized ADTInterface<Consultation> byDoctor(String doctorId) {
+        refresh();
+        return copy(byDoctor, doctorSlots.getOrDefault(doctorId, NONE));
+    }
+
+    /** The patient's consultations, in list order. */
+    public synchronized ADTInterface<Consultation> byPatient(String patientId) {
+        refresh();
+        return copy(byPatient, patientSlots.getOrDefault(patientId, NONE));
+    }
+
+    public synchronized int countForPatient(String patientId) {
+        refresh();
+        int slot = patientSlots.getOrDefault(patientId, NONE);
+        return slot == NONE ? 0 : byPatient.get(slot).size();
+    }
+
+    private synchronized void invalidate() {
+        stale = true;
+    }
+
+    private synchronized void onAdded(Consultation c) {
+        builtSize++;
+        if (stale || c == null) return;
+        Entry e = index(c, nextSeq++);
+        if (e.doctor != NONE) insert(byDoctor.get(e.doctor), c, byDate);
+        if (e.patient != NONE) insert(byPatient.get(e.patient), c, inListOrder);
+    }
+
+    private synchronized void onUpdated(Consultation before, Consultation after) {
+        if (stale) return;
+        Entry old = entries.get(before);
+        if (old == null || !unindex(before, old)) { stale = true; return; }
+        Entry e = index(after, old.seq); // keeps its place in the list
+        if (e.doctor != NONE) insert(byDoctor.get(e.doctor), after, byDate);
+        if (e.patient != NONE) insert(byPatient.get(e.patient), after, inListOrder);
+    }
+
+    private synchronized void onRemoved(Consultation c) {
+        builtSize--;
+        if (stale || c == null) return;
+        Entry old = entries.get(c);
+        if (old == null || !unindex(c, old)) stale = true;
+    }
+
+    private void refresh() {
+        ADTInterface<Consultation> all = repository.all();
+        if (!stale && builtSize == all.size()) return;
+        stale = false;
+        entries.clear();
+        doctorSlots.clear();
+        byDoctor.clear();
+        patientSlots.clear();
+        byPatient.clear();
+        bookedHours.clear();
+        hourCounts.clear();
+        for (int i = 0; i < all.size(); i++) {
+            Consultation c = all.get(i);
+            if (c == null) continue;
+            Entry e = index(c, i);
+            if (e.doctor != NONE) byDoctor.get(e.doctor).add(c);
+            if (e.patient != NONE) byPatient.get(e.patient).add(c);
+        }
+        for (int i = 0; i < byDoctor.size(); i++) byDoctor.get(i).sort(byDate);
+        builtSize = all.size();
+        nextSeq = all.size();
+    }
+
+    // Record c and count its booked hour; the caller puts it in the doctor/patient lists
+    private Entry index(Consultation c, long seq) {
+        int doctor = c.getDoctorId() == null ? NONE : slotOf(doctorSlots, byDoctor, c.getDoctorId());
+        int patient = c.getPatientId() == null ? NONE : slotOf(patientSlots, byPatient, c.getPatientId());
+        Entry e = new Entry(seq, c.getDate(), doctor, patient);
+        entries.put(c, e);
+        if (bookedHour(e)) {
+            long key = hourKey(e);
+            int n = hourCounts.get(key);
+            hourCounts.put(key, n + 1);
+            if (n == 0) bookedHours.orInto(dayKey(e.doctor, e.date.toLocalDate().toEpochDay()), 1 << e.date.getHour());
+        }
+        return e;
+    }
+
+    // Take c out as it was indexed; false if it was not where its entry says
+    private boolean unindex(Consultation c, Entry e) {
+        boolean found = e.doctor == NONE || remove(byDoctor.get(e.doctor), c, byDate);
+        if (e.patient != NONE && !remove(byPatient.get(e.patient), c, inListOrder)) found = false;
+        if (bookedHour(e)) {
+            long key = hourKey(e);
+            int n = hourCounts.get(key) - 1;
+            hourCounts.put(key, n);
+            if (n == 0) {
+                long day = dayKey(e.doctor, e.date.toLocalDate().toEpochDay());
+                bookedHours.put(day, bookedHours.get(day) & ~(1 << e.date.getHour()));
+            }
+        }
+        entries.remove(c);
+        return found;
+    }
+
+    // Slots are whole hours; a 10:30 booking does not take the 10:00 slot
+    private static boolean bookedHour(Entry e) {
+        LocalDateTime d = e.date;
+        return e.doctor != NONE && d != null && d.getMinute() == 0 && d.getSecond() == 0 && d.getNano() == 0;
+    }
+
+    private static void insert(CustomADT<Consultation> list, Consultation c, Comparator<Consultation> order) {
+        int at = list.binarySearch(c, order);
+        list.add(at < 0 ? -at - 1 : at, c);
+    }
+
+    private static boolean remove(CustomADT<Consultation> list, Consultation c, Comparator<Consultation> order) {
+        int at = list.binarySearch(c, order);
+        if (at < 0 || list.get(at) != c) return false;
+        list.remove(at);
+        return true;
+    }
+
+    private static int slotOf(ObjectIntMap<String> slots, CustomADT<CustomADT<Consultation>> lists, String id) {
+        int slot = slots.getOrDefault(id, NONE);
+        if (slot == NONE) {
+            slot = lists.size();
+            slots.put(id, slot);
+            lists.add(new CustomADT<>());
+        }
+        return slot;
+    }
+
+    // Doctor slot in the high half, epoch day in the low half
+    private static long dayKey(int slot, long epochDay) {
+        return ((long) slot << 32) | (epochDay & 0xFFFFFFFFL);
+    }
+
+    // Doctor slot, epoch day and hour
+    private static long hourKey(Entry e) {
+        return ((long) e.doctor << 37) | ((e.date.toLocalDate().toEpochDay() & 0xFFFFFFFFL) << 5) | e.date.getHour();
+    }
+
+    private static ADTInterface<Consultation> copy(CustomADT<CustomADT<Consultation>> lists, int slot) {
+        CustomADT<Consultation> out = new CustomADT<>();
+        if (slot == NONE) return out;
+        CustomADT<Consultation> list = lists.get(slot);
+        out.ensureCapacity(list.size());
+        for (int i = 0; i < list.size(); i++) out.add(list.get(i));
+        return out;
+    }
+}
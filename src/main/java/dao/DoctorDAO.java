@@ -11,69 +11,75 @@ import java.io.*;
 public class DoctorDAO {
     private static final String FILE_PATH = "doctors.json";
     private ObjectMapper objectMapper;
+    private final JournaledStore<Doctor> store;
+    private final FileCache cache;
 
     public DoctorDAO() {
         objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
+        store = new JournaledStore<>(FILE_PATH, Doctor.class, Doctor::getId, objectMapper);
+        cache = new FileCache(store.snapshotPath(), store.journalPath());
     }
 
     public ADTInterface<Doctor> retrieveFromFile() {
+        ADTInterface<Doctor> unchanged = cache.isCurrent() ? store.copy() : null;
+        if (unchanged != null) return withSchedules(unchanged);
+        cache.loading();
         ADTInterface<Doctor> doctorList = new CustomADT<>();
 
-        File file = new File(FILE_PATH);
-        boolean migrated = false;
-        if (file.exists() && file.length() > 0) {
-            try {
-                Doctor[] doctors = objectMapper.readValue(file, Doctor[].class);
-                for (Doctor doctor : doctors) {
-                    if (doctor.getSchedule() == null) doctor.setSchedule(new DoctorSchedule());
-                    doctorList.add(doctor);
-                }
-            } catch (IOException ex) {
-                try {
-                    com.fasterxml.jackson.databind.JsonNode root = objectMapper.readTree(file);
-                    if (root.isArray()) {
-                        if (root.size() > 1 && root.get(1).isArray()) {
-                            com.fasterxml.jackson.databind.JsonNode entries = root.get(1);
-                            for (com.fasterxml.jackson.databind.JsonNode pair : entries) {
-                                if (pair.isArray() && pair.size() > 1 && pair.get(1).isObject()) {
-                                    Doctor d = objectMapper.treeToValue(pair.get(1), Doctor.class);
-                                    if (d.getSchedule() == null) d.setSchedule(new DoctorSchedule());
-                                    doctorList.add(d);
-                                }
-                            }
-                            migrated = true;
-                        } else {
-                            Doctor[] doctors = objectMapper.treeToValue(root, Doctor[].class);
-                            for (Doctor doctor : doctors) {
-                                if (doctor.getSchedule() == null) doctor.setSchedule(new DoctorSchedule());
-                                doctorList.add(doctor);
-                            }
-                            migrated = true;
-                        }
-                    }
-                } catch (IOException ex2) {
-                    System.out.println("Error reading doctor data: " + ex2.getMessage());
-                }
-            }
+        try {
+            store.read(doctorList);
+        } catch (IOException ex) {
+            System.out.println("Error reading doctor data: " + ex.getMessage());
         }
-        if (migrated && doctorList.size() > 0) saveToFile(doctorList);
+        try {
+            // A legacy or converted file is rewritten by replay()
+            if (store.replay(doctorList)) cache.saved(); else cache.loaded();
+        } catch (IOException e) {
+            cache.invalidate();
+            System.out.println("Error reading doctor data: " + e.getMessage());
+        }
+
+        return withSchedules(doctorList);
+    }
 
+    // Doctors saved before schedules existed get an empty one
+    private static ADTInterface<Doctor> withSchedules(ADTInterface<Doctor> doctorList) {
+        for (int i = 0; i < doctorList.size(); i++) {
+            if (doctorList.get(i).getSchedule() == null) doctorList.get(i).setSchedule(new DoctorSchedule());
+        }
         return doctorList;
     }
 
+    /** Write the current doctors as a plain JSON array (e.g. to inspect a binary snapshot). */
+    public void exportJson(String path) throws IOException {
+        store.export(retrieveFromFile(), SnapshotFormat.JSON, new File(path));
+    }
+
+    /** True when the file is unchanged since this DAO last loaded or saved it (a stat per file). */
+    public boolean isUnchanged() {
+        return cache.isCurrent();
+    }
+
     public void saveToFile(ADTInterface<Doctor> doctorList) {
         try {
-            Doctor[] doctors = new Doctor[doctorList.size()];
-            for (int i = 0; i < doctorList.size(); i++) {
-                doctors[i] = doctorList.get(i);
-            }
-
-            objectMapper.writerWithDefaultPrettyPrinter()
-                       .writeValue(new File(FILE_PATH), doctors);
+            saveToFile(ChangeSet.of(doctorList, Doctor::getId, store::encode));
+        } catch (IOException e) {
+            System.out.println("Error saving doctor data: " + e.getMessage());
+        }
+    }
 
+    /** Write a list serialized by the caller (Repository.save()). */
+    void saveToFile(ChangeSet changes) {
+        try {
+            if (store.save(changes)) cache.saved(); else cache.invalidate();
         } catch (IOException e) {
+            cache.invalidate();
             System.out.println("Error saving doctor data: " + e.getMessage());
         }
     }
+
+    byte[] encode(Doctor d) throws IOException {
+        return store.encode(d);
+    }
 }
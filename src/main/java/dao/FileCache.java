@@ -0,0 +1,89 @@
+package dao;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * mtime/size stamp of the files a DAO last loaded or saved.
+ *
+ * A DAO asks isCurrent() before parsing; when none of the files changed since,
+ * it builds the list from the elements its JournaledStore already holds in
+ * serialized form (see JournaledStore.copy()) instead of reading the files, at
+ * the cost of one stat per file. Each caller gets new element objects, so edits
+ * one caller has not saved never show up in another's list. Stamps are taken
+ * before reading, so a write racing with a load is picked up by the next load.
+ * Edits that keep both size and mtime (within the filesystem's timestamp
+ * resolution) are not detected.
+ */
+final class FileCache {
+    private final Path[] files;
+    private long[] stamp;        // stamp taken before the load in progress
+    private long[] cachedStamp;  // stamp of the state the DAO holds, or null
+
+    FileCache(String... files) {
+        this.files = new Path[files.length];
+        for (int i = 0; i < files.length; i++) this.files[i] = Paths.get(files[i]);
+    }
+
+    /** True when the DAO holds a loaded or saved state and none of the files changed since. */
+    boolean isCurrent() {
+        return cachedStamp != null && same(stat(), cachedStamp);
+    }
+
+    /** Call before parsing the files. */
+    void loading() {
+        stamp = stat();
+    }
+
+    /** The files were just parsed (after loading()). */
+    void loaded() {
+        cachedStamp = stamp;
+    }
+
+    /** The files were just written by this DAO, so reading them back is free. */
+    void saved() {
+        cachedStamp = stat();
+    }
+
+    void invalidate() {
+        cachedStamp = null;
+    }
+
+    /** Stamp taken by the last loading() call. */
+    long[] loadingStamp() {
+        return stamp;
+    }
+
+    /** Stamp of the last load or save, or null when there is none to trust. */
+    long[] cachedStamp() {
+        return cachedStamp;
+    }
+
+    // mtime and size per file; -1/-1 for a missing file
+    private long[] stat() {
+        long[] out = new long[files.length * 2];
+        for (int i = 0; i < files.length; i++) {
+            try {
+                BasicFileAttributes a = Files.readAttributes(files[i], BasicFileAttributes.class);
+                out[2 * i] = a.lastModifiedTime().toMillis();
+                out[2 * i + 1] = a.size();
+            } catch (NoSuchFileException e) {
+                out[2 * i] = -1;
+                out[2 * i + 1] = -1;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return out;
+    }
+
+    private static boolean same(long[] a, long[] b) {
+        if (a == null || b == null || a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) if (a[i] != b[i]) return false;
+        return true;
+    }
+}
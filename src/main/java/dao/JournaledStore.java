@@ -0,0 +1,656 @@
+package dao;
+
+import adt.ADTInterface;
+import adt.CustomADT;
+import adt.ObjectMap;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Journaled persistence for one entity snapshot file.
+ *
+ * The snapshot file keeps the whole list, as a pretty-printed JSON array or in the
+ * binary format (see SnapshotFormat). A save appends only the changed elements
+ * to "<snapshot>.log" as JSON lines: a delta (see ChangeSet) names them, and a
+ * whole list is diffed against what is already on disk:
+ *
+ *   {"op":"put","id":"...","value":{...}}
+ *   {"op":"del","id":"..."}
+ *   {"op":"order","ids":[...]}      (only when the element order changed)
+ *
+ * after a first line naming the snapshot file the journal applies to:
+ *
+ *   {"op":"base","snapshot":"..."}  (file key, mtime and size)
+ *
+ * Once the log grows past the size of the data set it is compacted back into
+ * the snapshot. Loading reads the snapshot and replays the log on top.
+ *
+ * Lists with missing or duplicate ids cannot be diffed and are written as a
+ * full snapshot instead. Set -Dclinic.journal=false to always write snapshots.
+ *
+ * Several consoles may share the files. Every write happens under "<file>.lock"
+ * (an OS lock, plus a mutex for the stores of this process), and before writing
+ * the store catches up with what the others appended or compacted since it last
+ * read or wrote, so their changes are merged by id instead of diffed away. Reads
+ * take no lock; a read that raced with a write (a torn tail, or a snapshot
+ * replaced under it) is repeated under the lock.
+ */
+final class JournaledStore<T> {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("clinic.journal", "true"));
+    private static final int MIN_COMPACT_RECORDS = 256;
+
+    private final SnapshotFormat format;
+    private final File snapshot;
+    private final File journal;
+    private final File otherSnapshot; // the same file in the format not configured
+    private final File otherJournal;
+    private final Class<T> type;
+    private final Function<? super T, String> idOf;
+    private final ObjectMapper mapper;
+    private final BinarySnapshot.RecordCodec<T> codec; // nullable
+    private final FileMutex mutex;
+
+    // id -> JSON of the element, in file order, as of the last save/load (null until
+    // then, or when the list cannot be keyed). Serves both the diff and copy().
+    private ObjectMap<String, byte[]> onDisk;
+    private Stamp snapshotStamp;  // the snapshot file onDisk was built from
+    private long journalBytes;    // ... and how much of the journal it includes
+    private Stamp readStamp;      // the snapshot file as the last read() found it
+    private int journalRecords;
+    private boolean rewriteDue;   // last read() found a legacy layout or the other format
+    private boolean converting;   // ... the other format; delete its files once rewritten
+
+    JournaledStore(String jsonPath, Class<T> type, Function<? super T, String> idOf, ObjectMapper mapper) {
+        this(jsonPath, type, idOf, mapper, null);
+    }
+
+    /**
+     * jsonPath is the file's JSON name ("consultations.json"); the format decides the
+     * actual file. With a codec, binary snapshots use it instead of the generic token
+     * layout.
+     */
+    JournaledStore(String jsonPath, Class<T> type, Function<? super T, String> idOf, ObjectMapper mapper,
+                   BinarySnapshot.RecordCodec<T> codec) {
+        this.format = SnapshotFormat.forFile(jsonPath);
+        this.snapshot = new File(format.path(jsonPath));
+        this.journal = new File(logPath(snapshot.getPath()));
+        this.otherSnapshot = new File(format.other().path(jsonPath));
+        this.otherJournal = new File(logPath(otherSnapshot.getPath()));
+        this.type = type;
+        this.idOf = idOf;
+        this.mapper = mapper;
+        this.codec = codec;
+        this.mutex = FileMutex.of(new File(jsonPath + ".lock"));
+    }
+
+    /** Path of the journal kept beside a snapshot file. */
+    static String logPath(String snapshotPath) {
+        return snapshotPath + ".log";
+    }
+
+    String snapshotPath() { return snapshot.getPath(); }
+
+    String journalPath() { return journal.getPath(); }
+
+    /**
+     * Append the snapshot's elements to into. When only the other format's files
+     * exist they are read (journal included) instead, and the next replay()
+     * converts them. Call replay() next in either case.
+     */
+    void read(ADTInterface<T> into) throws IOException {
+        rewriteDue = false;
+        converting = false;
+        readStamp = Stamp.of(snapshot);
+        if (snapshot.exists() || journal.exists() || !(otherSnapshot.exists() || otherJournal.exists())) {
+            if (snapshot.exists() && snapshot.length() > 0) {
+                rewriteDue = format.read(mapper, snapshot, type, into, codec);
+            }
+            return;
+        }
+        Stamp base = Stamp.of(otherSnapshot);
+        if (otherSnapshot.length() > 0) format.other().read(mapper, otherSnapshot, type, into, codec);
+        applyJournal(otherJournal, base, into);
+        rewriteDue = true;
+        converting = true;
+    }
+
+    /**
+     * Apply the journal to a list freshly read from the snapshot file, in place,
+     * and remember the result as the on-disk state. Rewrites the snapshot when
+     * the journal had a torn tail or read() asked for a rewrite; returns true if
+     * it did.
+     */
+    boolean replay(ADTInterface<T> list) throws IOException {
+        if (!applyJournal(journal, readStamp, list) && !rewriteDue && Stamp.of(snapshot).equals(readStamp)) {
+            snapshotStamp = readStamp;
+            remember(list);
+            return false;
+        }
+        // The tail may be another console's append in progress, or the snapshot its
+        // compaction: read again where neither can happen, and repair what is left
+        mutex.lock();
+        try {
+            list.clear();
+            read(list);
+            snapshotStamp = readStamp;
+            if (applyJournal(journal, readStamp, list) || rewriteDue) {
+                writeSnapshot(list);
+                return true;
+            }
+            remember(list);
+            return false;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Take a list obtained elsewhere (e.g. a mirror of these files) as the on-disk
+     * state, as if it had been read and replayed when the files had the given
+     * FileCache stamp.
+     */
+    void adopt(ADTInterface<T> list, long[] stamp) throws IOException {
+        // stamp is mtime/size of the snapshot, then of the journal; a snapshot that has
+        // changed since is read again before the next save (see catchUp())
+        Stamp now = Stamp.of(snapshot);
+        snapshotStamp = now.modified == stamp[0] && now.size == stamp[1] ? now : Stamp.UNKNOWN;
+        int records = 0;
+        long bytes = Math.max(0, stamp[3]);
+        if (bytes > 0) {
+            try (LineReader in = new LineReader(journal.toPath(), 0)) {
+                byte[] line;
+                while (in.end() < bytes && (line = in.next()) != null) {
+                    if (line.length > 0 && !isBase(mapper.readTree(line))) records++;
+                }
+            }
+        }
+        journalRecords = records;
+        journalBytes = bytes;
+        rewriteDue = false;
+        converting = false;
+        remember(list);
+    }
+
+    /**
+     * The elements as of the last save/load, as new objects (decoded from the JSON
+     * kept for the diff), or null if the list could not be keyed or decoded.
+     */
+    ADTInterface<T> copy() {
+        if (onDisk == null) return null;
+        try {
+            return decode(onDisk::valueAt, onDisk.size());
+        } catch (IOException e) {
+            return null; // the caller parses the files instead
+        }
+    }
+
+    /** JSON of an element, as the journal records it. */
+    byte[] encode(T e) throws IOException {
+        return mapper.writeValueAsBytes(e);
+    }
+
+    /** The elements of a ChangeSet, as new objects. */
+    ADTInterface<T> decode(ChangeSet changes) throws IOException {
+        return decode(changes.isFull() ? i -> changes.values[i] : changes.puts::valueAt, changes.size());
+    }
+
+    /** Persist the list, appending only what changed since the last save/load (see save(ChangeSet)). */
+    boolean save(ADTInterface<T> list) throws IOException {
+        return save(ChangeSet.of(list, idOf, this::encode));
+    }
+
+    /**
+     * Persist a list or delta serialized by the caller (see ChangeSet), appending only
+     * what changed. Returns false if another console had changed the files since this
+     * store last read or wrote them: its changes to other ids were kept, so the files
+     * now hold more than the caller's list and its cached state is stale.
+     */
+    boolean save(ChangeSet changes) throws IOException {
+        mutex.lock();
+        try {
+            return changes.isFull() ? saveFull(changes) : saveDelta(changes);
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    private boolean saveFull(ChangeSet changes) throws IOException {
+        ObjectMap<String, byte[]> next = keyed(changes);
+        if (!ENABLED || onDisk == null || next == null) { writeSnapshot(changes, next); return true; }
+
+        // The diff is against what this store last saw, so it names only this caller's changes
+        StringBuilder out = new StringBuilder();
+        int records = 0;
+        for (int i = 0; i < onDisk.size(); i++) {
+            if (!next.containsKey(onDisk.keyAt(i))) { appendDelete(out, onDisk.keyAt(i)); records++; }
+        }
+        for (int i = 0; i < next.size(); i++) {
+            if (!Arrays.equals(onDisk.get(next.keyAt(i)), next.valueAt(i))) { appendPut(out, next.keyAt(i), next.valueAt(i)); records++; }
+        }
+        if (!sameOrder(next)) { appendOrder(out, next); records++; }
+        boolean merged = catchUp();
+        if (merged && onDisk == null) { writeSnapshot(changes, next); return true; } // the files are no longer keyed
+        if (records == 0) return !merged;
+
+        if (merged) {
+            // Apply the same records to the files' state; ids this caller left alone keep the other console's version
+            for (String line : out.toString().split("\n")) applyRecord(onDisk, mapper.readTree(line), this::json);
+        }
+        try {
+            if (journalRecords + records > Math.max(MIN_COMPACT_RECORDS, merged ? onDisk.size() : next.size())) {
+                if (merged) rewrite(decode(onDisk::valueAt, onDisk.size())); else writeSnapshot(changes, next);
+                return !merged;
+            }
+            appendJournal(out);
+        } catch (IOException e) {
+            onDisk = null; // the files may be part-written; the next save starts from them
+            throw e;
+        }
+        journalRecords += records;
+        if (!merged) onDisk = next;
+        return !merged;
+    }
+
+    /** Rewrite the snapshot from the list and drop the journal. */
+    void writeSnapshot(ADTInterface<T> list) throws IOException {
+        rewrite(list);
+        remember(list);
+    }
+
+    /** Write the list to a standalone file in the given format (no journal). */
+    void export(ADTInterface<T> list, SnapshotFormat as, File out) throws IOException {
+        as.write(mapper, out, type, list, codec);
+    }
+
+    // ===== Helpers =====
+
+    // Costs O(changes) apart from the compaction every max(256, n) records (and
+    // catching up with other consoles' writes). Called under the lock.
+    private boolean saveDelta(ChangeSet changes) throws IOException {
+        boolean merged = catchUp();
+        if (onDisk == null) {
+            // Nothing keyed to apply it to (an unkeyed list, or a failed write): apply it to the
+            // files, which may hold changes the caller has not seen
+            ADTInterface<T> list = new CustomADT<>();
+            read(list);
+            applyJournal(journal, readStamp, list);
+            applyDelta(list, changes);
+            writeSnapshot(list);
+            return false;
+        }
+        StringBuilder out = new StringBuilder();
+        int records = 0;
+        for (int i = 0; i < changes.removed.size(); i++) {
+            String id = changes.removed.get(i);
+            if (onDisk.containsKey(id)) { appendDelete(out, id); records++; }
+        }
+        for (int i = 0; i < changes.puts.size(); i++) {
+            String id = changes.puts.keyAt(i);
+            // A removed and re-added id moves to the end, so it is written even if unchanged
+            if (changes.removed.contains(id) || !Arrays.equals(onDisk.get(id), changes.puts.valueAt(i))) {
+                appendPut(out, id, changes.puts.valueAt(i));
+                records++;
+            }
+        }
+        if (records == 0) return !merged;
+
+        boolean compact = !ENABLED || journalRecords + records > Math.max(MIN_COMPACT_RECORDS, onDisk.size());
+        try {
+            if (!compact) appendJournal(out);
+            for (int i = 0; i < changes.removed.size(); i++) onDisk.remove(changes.removed.get(i));
+            for (int i = 0; i < changes.puts.size(); i++) onDisk.put(changes.puts.keyAt(i), changes.puts.valueAt(i));
+            if (compact) rewrite(decode(onDisk::valueAt, onDisk.size()));
+        } catch (IOException e) {
+            onDisk = null; // the files may be part-written; the next save starts from them
+            throw e;
+        }
+        journalRecords += compact ? 0 : records;
+        return !merged;
+    }
+
+    // Bring onDisk up to the files, which another console may have appended to or
+    // compacted since this store last read or wrote them: apply the journal's new
+    // tail, or read everything again. Called under the lock, so whatever is torn now
+    // is a crash's leftover and gets rewritten. Returns true if the files had changed.
+    private boolean catchUp() throws IOException {
+        if (onDisk == null) return false;
+        Stamp now = Stamp.of(snapshot);
+        long length = journal.length();
+        if (now.equals(snapshotStamp)) {
+            if (length == journalBytes) return false;
+            if (length > journalBytes && !applyJournal(journal, journalBytes, now, onDisk, this::json)) return true;
+        }
+        ADTInterface<T> list = new CustomADT<>();
+        if (snapshot.exists() && snapshot.length() > 0) format.read(mapper, snapshot, type, list, codec);
+        snapshotStamp = now;
+        if (applyJournal(journal, now, list)) rewrite(list);
+        remember(list);
+        return true;
+    }
+
+    // Apply a delta by id to a list that may hold missing or repeated ids
+    private void applyDelta(ADTInterface<T> list, ChangeSet changes) throws IOException {
+        for (int k = 0; k < changes.removed.size(); k++) {
+            String id = changes.removed.get(k);
+            for (int i = list.size() - 1; i >= 0; i--) {
+                T e = list.get(i);
+                if (e != null && id.equals(idOf.apply(e))) list.remove(i);
+            }
+        }
+        for (int k = 0; k < changes.puts.size(); k++) {
+            String id = changes.puts.keyAt(k);
+            T value = mapper.readValue(changes.puts.valueAt(k), type);
+            int at = -1;
+            for (int i = 0; i < list.size() && at < 0; i++) {
+                T e = list.get(i);
+                if (e != null && id.equals(idOf.apply(e))) at = i;
+            }
+            if (at >= 0) list.set(at, value); else list.add(value);
+        }
+    }
+
+    private ADTInterface<T> decode(IntFunction<byte[]> value, int size) throws IOException {
+        CustomADT<T> list = new CustomADT<>();
+        list.ensureCapacity(size);
+        for (int i = 0; i < size; i++) list.add(mapper.readValue(value.apply(i), type));
+        return list;
+    }
+
+    private void writeSnapshot(ChangeSet changes, ObjectMap<String, byte[]> state) throws IOException {
+        rewrite(decode(changes));
+        onDisk = state;
+    }
+
+    private void rewrite(ADTInterface<T> list) throws IOException {
+        format.write(mapper, snapshot, type, list, codec);
+        Files.deleteIfExists(journal.toPath());
+        snapshotStamp = Stamp.of(snapshot);
+        journalBytes = 0;
+        if (converting) {
+            Files.deleteIfExists(otherSnapshot.toPath());
+            Files.deleteIfExists(otherJournal.toPath());
+            converting = false;
+        }
+        rewriteDue = false;
+        journalRecords = 0;
+    }
+
+    // id -> JSON in list order, or null if an element has no id or shares one
+    private static ObjectMap<String, byte[]> keyed(ChangeSet changes) {
+        ObjectMap<String, byte[]> state = new ObjectMap<>(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            String id = changes.ids[i];
+            if (id == null || state.put(id, changes.values[i]) != null) return null;
+        }
+        return state;
+    }
+
+    // Apply a journal file to list in place and count its records. Returns true if it
+    // stopped short: at a torn tail (a crash's partial write, or an append still in
+    // progress elsewhere) or at a journal begun on another snapshot than base (left
+    // by a crash mid-compaction, or read across one). The records before that are
+    // applied, so the caller can keep them and rewrite the snapshot.
+    private boolean applyJournal(File log, Stamp base, ADTInterface<T> list) throws IOException {
+        journalRecords = 0;
+        journalBytes = 0;
+        if (!log.exists() || log.length() == 0) return false;
+        ObjectMap<String, T> state = new ObjectMap<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            T e = list.get(i);
+            String id = e == null ? null : idOf.apply(e);
+            // The snapshot itself was written as a full rewrite of an unkeyed list; any
+            // journal beside it is stale and goes with the next rewrite
+            if (id == null || state.put(id, e) != null) return true;
+        }
+        boolean stopped = applyJournal(log, 0, base, state, value -> mapper.treeToValue(value, type));
+        list.clear();
+        for (int i = 0; i < state.size(); i++) list.add(state.valueAt(i));
+        return stopped;
+    }
+
+    // Apply log's records from byte offset from on to state, adding them to journalRecords
+    // and the bytes read to journalBytes. Returns true if it stopped short (see above).
+    private <V> boolean applyJournal(File log, long from, Stamp base, ObjectMap<String, V> state,
+                                     Decoder<V> decoder) throws IOException {
+        try (LineReader in = new LineReader(log.toPath(), from)) {
+            byte[] line;
+            while ((line = in.next()) != null) {
+                if (line.length > 0) {
+                    try {
+                        JsonNode rec = mapper.readTree(line);
+                        if (!isBase(rec)) {
+                            applyRecord(state, rec, decoder);
+                            journalRecords++;
+                        } else if (!rec.get("snapshot").asText().equals(base.toString())) {
+                            return true;
+                        }
+                    } catch (IOException | RuntimeException ex) {
+                        return true;
+                    }
+                }
+                journalBytes = in.end();
+            }
+            return in.partial();
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static boolean isBase(JsonNode rec) {
+        return "base".equals(rec.get("op").asText());
+    }
+
+    private interface Decoder<V> {
+        V decode(JsonNode value) throws IOException;
+    }
+
+    // The form onDisk keeps an element in (see remember())
+    private byte[] json(JsonNode value) throws IOException {
+        return mapper.writeValueAsBytes(mapper.treeToValue(value, type));
+    }
+
+    private <V> void applyRecord(ObjectMap<String, V> state, JsonNode rec, Decoder<V> decoder) throws IOException {
+        String op = rec.get("op").asText();
+        switch (op) {
+            case "put": {
+                String id = rec.get("id").asText();
+                state.put(id, decoder.decode(rec.get("value")));
+                break;
+            }
+            case "del":
+                state.remove(rec.get("id").asText());
+                break;
+            case "order": {
+                ObjectMap<String, V> ordered = new ObjectMap<>(state.size());
+                for (JsonNode id : rec.get("ids")) {
+                    V e = state.get(id.asText());
+                    if (e != null) ordered.put(id.asText(), e);
+                }
+                // Keep anything the order record did not mention (e.g. written by another instance)
+                for (int i = 0; i < state.size(); i++) ordered.putIfAbsent(state.keyAt(i), state.valueAt(i));
+                state.clear();
+                for (int i = 0; i < ordered.size(); i++) state.put(ordered.keyAt(i), ordered.valueAt(i));
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal op: " + op);
+        }
+    }
+
+    // Remember the list as the on-disk state; lists that cannot be keyed disable diffing.
+    private void remember(ADTInterface<T> list) throws IOException {
+        onDisk = null;
+        ObjectMap<String, byte[]> state = new ObjectMap<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            T e = list.get(i);
+            String id = e == null ? null : idOf.apply(e);
+            if (id == null || state.containsKey(id)) return;
+            state.put(id, mapper.writeValueAsBytes(e));
+        }
+        onDisk = state;
+    }
+
+    // Would replaying puts/deletes alone (new ids appended) reproduce next's order?
+    private boolean sameOrder(ObjectMap<String, byte[]> next) {
+        int want = 0;
+        for (int i = 0; i < onDisk.size(); i++) {
+            String id = onDisk.keyAt(i);
+            if (next.containsKey(id) && !id.equals(next.keyAt(want++))) return false;
+        }
+        for (; want < next.size(); want++) {
+            if (onDisk.containsKey(next.keyAt(want))) return false;
+        }
+        return true;
+    }
+
+    // Append records to the journal; a new journal starts with the snapshot it applies to
+    private void appendJournal(StringBuilder records) throws IOException {
+        if (journalBytes == 0) {
+            records.insert(0, "{\"op\":\"base\",\"snapshot\":" + mapper.writeValueAsString(snapshotStamp.toString()) + "}\n");
+        }
+        byte[] bytes = records.toString().getBytes(StandardCharsets.UTF_8);
+        AtomicFiles.append(journal, bytes);
+        journalBytes += bytes.length;
+    }
+
+    private void appendPut(StringBuilder out, String id, byte[] json) throws IOException {
+        out.append("{\"op\":\"put\",\"id\":").append(mapper.writeValueAsString(id))
+           .append(",\"value\":").append(new String(json, StandardCharsets.UTF_8)).append("}\n");
+    }
+
+    private void appendDelete(StringBuilder out, String id) throws IOException {
+        out.append("{\"op\":\"del\",\"id\":").append(mapper.writeValueAsString(id)).append("}\n");
+    }
+
+    private void appendOrder(StringBuilder out, ObjectMap<String, byte[]> next) throws IOException {
+        String[] ids = new String[next.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = next.keyAt(i);
+        out.append("{\"op\":\"order\",\"ids\":").append(mapper.writeValueAsString(ids)).append("}\n");
+    }
+
+    /** Identity of a snapshot file: file key (inode), mtime and size; a rewrite changes the key. */
+    private static final class Stamp {
+        static final Stamp UNKNOWN = new Stamp(new Object(), -2, -2);
+
+        final Object key;
+        final long modified;
+        final long size;
+
+        private Stamp(Object key, long modified, long size) {
+            this.key = key;
+            this.modified = modified;
+            this.size = size;
+        }
+
+        static Stamp of(File f) throws IOException {
+            try {
+                BasicFileAttributes a = Files.readAttributes(f.toPath(), BasicFileAttributes.class);
+                return new Stamp(a.fileKey(), a.lastModifiedTime().toMillis(), a.size());
+            } catch (NoSuchFileException e) {
+                return new Stamp(null, -1, -1);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Stamp)) return false;
+            Stamp s = (Stamp) o;
+            return Objects.equals(key, s.key) && modified == s.modified && size == s.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, modified, size);
+        }
+
+        @Override
+        public String toString() {
+            return key + "/" + modified + "/" + size;
+        }
+    }
+
+    /**
+     * The write lock of one file: a mutex shared by the stores of this process, and
+     * an OS lock on "<file>.lock" against other processes. Like queue.lock (see
+     * QueueDAO), the OS lock belongs to the process and the lock file stays open:
+     * closing any descriptor of it would drop the lock. Reentrant.
+     */
+    private static final class FileMutex {
+        private static final CustomADT<FileMutex> all = new CustomADT<>();
+
+        private final File file;
+        private final ReentrantLock local = new ReentrantLock();
+        private FileChannel channel;
+        private FileLock held;
+
+        private FileMutex(File file) {
+            this.file = file;
+        }
+
+        static synchronized FileMutex of(File file) {
+            String path = file.getAbsolutePath();
+            for (int i = 0; i < all.size(); i++) {
+                if (all.get(i).file.getAbsolutePath().equals(path)) return all.get(i);
+            }
+            FileMutex m = new FileMutex(file);
+            all.add(m);
+            return m;
+        }
+
+        void lock() throws IOException {
+            local.lock();
+            if (local.getHoldCount() > 1) return;
+            try {
+                // Polled rather than blocking: a blocked fcntl wait can report a false deadlock
+                // when other threads of this process hold other files' locks
+                for (long wait = 1; (held = channel().tryLock()) == null; wait = Math.min(wait * 2, 20)) {
+                    try {
+                        Thread.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for " + file.getName());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                local.unlock();
+                throw e;
+            }
+        }
+
+        void unlock() {
+            try {
+                if (local.getHoldCount() == 1 && held != null) {
+                    held.release();
+                    held = null;
+                }
+            } catch (IOException e) {
+                held = null;
+                System.out.println("Error unlocking " + file.getName() + ": " + e.getMessage());
+            } finally {
+                local.unlock();
+            }
+        }
+
+        private FileChannel channel() throws IOException {
+            if (channel == null || !channel.isOpen()) { // closed by an interrupt
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            }
+            return channel;
+        }
+    }
+}
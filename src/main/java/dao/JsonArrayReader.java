@@ -0,0 +1,94 @@
+package dao;
+
+import adt.ADTInterface;
+import adt.CustomADT;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Token-streaming reader for the entity files.
+ *
+ * Elements are bound one at a time and appended straight to the target list, so
+ * neither an intermediate T[] nor a JsonNode tree of the whole file is built.
+ * Understands both layouts the DAOs have seen:
+ *
+ *   [ {...}, {...} ]                                   current
+ *   [ "[Lentity.X;", [ ["entity.X", {...}], ... ] ]    legacy typed wrapper
+ *
+ * The target is presized from the file length and the size of the first record.
+ */
+final class JsonArrayReader {
+    private JsonArrayReader() {}
+
+    /**
+     * Append the file's elements to into. Returns true if the legacy layout was
+     * read (the caller should rewrite the file). On error the list is cleared
+     * and the exception rethrown, so a bad file never yields a partial list.
+     */
+    static <T> boolean read(ObjectMapper mapper, File file, Class<T> type, ADTInterface<T> into) throws IOException {
+        int before = into.size();
+        try (JsonParser p = mapper.getFactory().createParser(file)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) {
+                throw MismatchedInputException.from(p, type, "Expected a JSON array");
+            }
+            ObjectReader reader = mapper.readerFor(type);
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.VALUE_STRING) {
+                readLegacy(p, reader, file.length(), into);
+                return true;
+            }
+            boolean sized = false;
+            for (; t != JsonToken.END_ARRAY; t = p.nextToken()) {
+                if (t == JsonToken.VALUE_NULL) { into.add(null); continue; }
+                if (t != JsonToken.START_OBJECT) {
+                    throw MismatchedInputException.from(p, type, "Unexpected " + t + " in entity array");
+                }
+                long start = p.getTokenLocation().getByteOffset();
+                into.add(reader.readValue(p));
+                if (!sized) { presize(into, file.length(), start, p.getCurrentLocation().getByteOffset()); sized = true; }
+            }
+            return false;
+        } catch (IOException | RuntimeException e) {
+            while (into.size() > before) into.remove(into.size() - 1);
+            throw e;
+        }
+    }
+
+    // ["[Lentity.X;", [ ["entity.X", {...}], ... ]]: only pairs whose second item is an object count
+    private static <T> void readLegacy(JsonParser p, ObjectReader reader, long fileLength, ADTInterface<T> into) throws IOException {
+        if (p.nextToken() != JsonToken.START_ARRAY) {
+            throw MismatchedInputException.from(p, Object.class, "Expected the legacy entry list");
+        }
+        boolean sized = false;
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (t != JsonToken.START_ARRAY) { p.skipChildren(); continue; }
+            int pos = 0;
+            while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (pos++ == 1 && t == JsonToken.START_OBJECT) {
+                    long start = p.getTokenLocation().getByteOffset();
+                    into.add(reader.readValue(p));
+                    if (!sized) { presize(into, fileLength, start, p.getCurrentLocation().getByteOffset()); sized = true; }
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+    }
+
+    // Estimate the element count as file length / first record length (+1/8 slack)
+    @SuppressWarnings("unchecked")
+    private static <T> void presize(ADTInterface<T> into, long fileLength, long start, long end) {
+        if (!(into instanceof CustomADT<?>) || start < 0 || end <= start) return;
+        long estimate = fileLength / (end - start);
+        estimate += estimate >> 3;
+        if (estimate > into.size() && estimate < Integer.MAX_VALUE / 2) {
+            ((CustomADT<T>) into).ensureCapacity((int) estimate);
+        }
+    }
+}
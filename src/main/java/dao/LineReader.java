@@ -0,0 +1,74 @@
+package dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the '\n'-terminated lines of an append-only file (a journal or event log)
+ * from a byte offset, a chunk at a time, so a file of any size streams through a
+ * buffer the size of its longest line. A last line still missing its newline (a
+ * torn write, or an append in progress elsewhere) is not returned: partial()
+ * reports it, and end() is the offset just past the last line returned, where a
+ * later read resumes.
+ */
+final class LineReader implements Closeable {
+    private static final int CHUNK = 64 * 1024;
+
+    private final FileChannel ch;
+    private ByteBuffer buf = ByteBuffer.allocate(CHUNK); // read mode: position..limit unread
+    private int scanned;  // bytes after position already known to hold no '\n'
+    private long end;
+    private boolean eof;
+
+    LineReader(Path file, long from) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.READ), from);
+    }
+
+    /** Read ch from byte offset from; close() closes ch. */
+    LineReader(FileChannel ch, long from) throws IOException {
+        this.ch = ch;
+        ch.position(from);
+        end = from;
+        buf.flip();
+    }
+
+    /** The next complete line without its '\n' (possibly empty), or null when none is left. */
+    byte[] next() throws IOException {
+        while (true) {
+            for (int i = buf.position() + scanned; i < buf.limit(); i++) {
+                if (buf.get(i) != '\n') continue;
+                byte[] line = new byte[i - buf.position()];
+                buf.get(line);
+                buf.get(); // the '\n'
+                scanned = 0;
+                end += line.length + 1;
+                return line;
+            }
+            scanned = buf.remaining();
+            if (eof) return null;
+            // Keep the unfinished line at the front; grow only when it fills the buffer
+            buf.compact();
+            if (!buf.hasRemaining()) {
+                buf.flip();
+                buf = ByteBuffer.allocate(buf.capacity() * 2).put(buf);
+            }
+            if (ch.read(buf) < 0) eof = true;
+            buf.flip();
+        }
+    }
+
+    /** Offset just past the last line next() returned (the start offset before the first). */
+    long end() { return end; }
+
+    /** After next() returned null: true if bytes without a closing '\n' follow end(). */
+    boolean partial() { return buf.hasRemaining(); }
+
+    @Override
+    public void close() throws IOException {
+        ch.close();
+    }
+}
@@ -0,0 +1,656 @@
+package dao;
+
+import adt.ADTInterface;
+import adt.CustomADT;
+import adt.ObjectIntMap;
+import adt.ObjectSet;
+import entity.Consultation;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Memory-mapped, fixed-width column view of the consultations.
+ *
+ * Two files: "<base>.dat" holds a 128-byte header plus one 48-byte record per
+ * consultation, "<base>.heap" holds the variable-length text (reason, notes, and
+ * anything else that is not a number). Record layout:
+ *
+ *   0  int   id number          ("C0042" -> 42, UNPARSED if not in that form)
+ *   4  int   patient id number  ("P0007" -> 7)
+ *   8  int   doctor id number   ("D0001" -> 1)
+ *   12 int   text length
+ *   16 long  epoch second (UTC) of the date, NO_SECOND if none
+ *   24 int   nanosecond of the date
+ *   28 byte  status ordinal, -1 if none
+ *   32 long  text offset in the heap
+ *   40 long  fingerprint of the whole consultation
+ *
+ * Opening is a map of the two files, and scans such as per-doctor/per-hour
+ * counts read only the columns they need instead of materializing Consultations.
+ * The JSON/binary file behind ConsultationDAO stays the source of truth: the
+ * store is a derived copy that the DAO syncs after every load and save. sync()
+ * rewrites only records whose fingerprint changed (appending their text to the
+ * heap) and records the mtime/size stamp of the source files, so a later run
+ * that finds the files unchanged can build the list from here (readAll())
+ * instead of parsing them. A save that names its changes (see ChangeSet) is
+ * applied with apply(), which touches only the records involved.
+ *
+ * Consoles on the same data directory share the two files. Writers hold an
+ * exclusive lock on the .dat file and readers (readAll(), scan()) a shared one,
+ * and both take the count and heap end from the header once they have it, so a
+ * reader sees a sync from another console whole or not at all, and two consoles
+ * never append text at the same heap end.
+ */
+public final class MappedConsultationStore {
+    public static final int NO_DATE = Integer.MIN_VALUE;
+    public static final int UNPARSED = -1;
+    public static final long NO_SECOND = Long.MIN_VALUE;
+
+    private static final int MAGIC = 0x434C4E4D; // "CLNM"
+    private static final int VERSION = 2;  // 1 kept dates to the minute
+    private static final int HEADER = 128;
+    private static final int RECORD = 48;
+    private static final int H_COUNT = 8;
+    private static final int H_HEAP_END = 16;
+    private static final int H_GARBAGE = 24;
+    private static final int H_DIRTY = 32;   // set while a sync is writing; a dirty store is rebuilt on open
+    private static final int H_STAMP_LEN = 36;
+    private static final int H_STAMP = 40;   // up to MAX_STAMP longs
+    private static final int MAX_STAMP = 8;
+    private static final int H_WRITES = 104; // bumped when a sync/apply starts and again when it completes, in any console
+
+    private static final Consultation.Status[] STATUSES = Consultation.Status.values();
+    private static final Consultation BLANK = new Consultation(); // stands in for null elements
+    static { BLANK.setStatus(null); }
+
+    private final FileChannel data;
+    private final FileChannel heap;
+    private MappedByteBuffer records;
+    private MappedByteBuffer text;
+    private int count;
+    private long heapEnd;
+    private long garbage; // heap bytes no record points at any more
+    private long writes;  // H_WRITES as of the header this view was taken from
+    private long syncedWrites; // H_WRITES when synced was last set
+    private long readWrites;   // H_WRITES of the last readAll(sourceStamp), for markSynced()
+    private ObjectIntMap<String> positions; // id -> record index, built on first apply(); null when stale
+    private volatile boolean synced; // last sync() completed
+    private long committing = -1; // H_WRITES of this console's completed sync awaiting commit(), -1 if none
+
+    /** base is the path without extension, e.g. "consultations". */
+    MappedConsultationStore(String base) throws IOException {
+        this.data = FileChannel.open(Paths.get(base + ".dat"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.heap = FileChannel.open(Paths.get(base + ".heap"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        records = data.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(data.size(), HEADER + 1024L * RECORD));
+        text = heap.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(heap.size(), 64 * 1024));
+        FileLock lock = lock(false);
+        try {
+            if (records.getInt(0) == MAGIC && records.getInt(4) == VERSION && records.get(H_DIRTY) == 0) {
+                count = records.getInt(H_COUNT);
+                heapEnd = records.getLong(H_HEAP_END);
+                garbage = records.getLong(H_GARBAGE);
+                writes = records.getLong(H_WRITES);
+                if (count < 0 || heapEnd < 0) {
+                    reset();
+                } else {
+                    ensureRecords(count);
+                    ensureHeap(heapEnd);
+                }
+            } else {
+                reset(); // new, from another version, or interrupted mid-sync: rebuilt by the next sync()
+            }
+        } finally {
+            release(lock);
+        }
+    }
+
+    // ===== Columns =====
+
+    public int size() { return count; }
+
+    /** True once sync() has completed and no sync is in progress or has failed since. */
+    public boolean isSynced() { return synced; }
+
+    // True if the last completed sync was from source files with this stamp (see FileCache).
+    // The caller holds the file lock.
+    private boolean mirrors(long[] sourceStamp) {
+        adoptHeader();
+        if (sourceStamp == null || !complete()
+                || records.getInt(H_STAMP_LEN) != sourceStamp.length) return false;
+        for (int k = 0; k < sourceStamp.length; k++) {
+            if (records.getLong(H_STAMP + 8 * k) != sourceStamp[k]) return false;
+        }
+        return true;
+    }
+
+    /** Every record as a fresh Consultation, in order. Repeated patient/doctor ids share one String. */
+    public synchronized ADTInterface<Consultation> readAll() throws IOException {
+        FileLock lock = lock(true);
+        try {
+            adoptHeader();
+            return readRecords();
+        } finally {
+            release(lock);
+        }
+    }
+
+    /**
+     * readAll() if the last completed sync was from source files with this stamp
+     * (see FileCache), else null. Checked and read under one lock, so the list is
+     * never from a sync another console has under way.
+     */
+    synchronized ADTInterface<Consultation> readAll(long[] sourceStamp) throws IOException {
+        FileLock lock = lock(true);
+        try {
+            if (!mirrors(sourceStamp)) return null;
+            readWrites = writes;
+            return readRecords();
+        } finally {
+            release(lock);
+        }
+    }
+
+    /**
+     * Run reader, which reads columns of this store, with the store locked against
+     * writers in other consoles. Returns false without running it unless the store
+     * still holds size records from this console's last sync (no other console has
+     * synced since), so the caller can fall back to its own list.
+     */
+    public synchronized boolean scan(int size, Runnable reader) {
+        FileLock lock;
+        try {
+            lock = lock(true);
+        } catch (IOException e) {
+            return false;
+        }
+        try {
+            adoptHeader();
+            if (!synced || writes != syncedWrites || !complete() || count != size) return false;
+            reader.run();
+            return true;
+        } finally {
+            release(lock);
+        }
+    }
+
+    private ADTInterface<Consultation> readRecords() {
+        CustomADT<Consultation> out = new CustomADT<>();
+        out.ensureCapacity(count);
+        String[] patients = new String[1024];
+        String[] doctors = new String[1024];
+        for (int i = 0; i < count; i++) out.add(get(i, patients, doctors));
+        return out;
+    }
+
+    /**
+     * Mark the store as in step without comparing records; for a caller that has
+     * just built its list from readAll() after mirrors() confirmed the source.
+     */
+    synchronized void markSynced() {
+        synced = true;
+        syncedWrites = readWrites;
+    }
+
+    public int idNumber(int i) { return records.getInt(at(i)); }
+
+    public int patientNumber(int i) { return records.getInt(at(i) + 4); }
+
+    public int doctorNumber(int i) { return records.getInt(at(i) + 8); }
+
+    /** Seconds since 1970-01-01T00:00 (UTC), or NO_SECOND. */
+    public long epochSecond(int i) { return records.getLong(at(i) + 16); }
+
+    /** Minutes since 1970-01-01T00:00 (UTC), or NO_DATE. */
+    public int epochMinute(int i) {
+        long second = epochSecond(i);
+        return second == NO_SECOND ? NO_DATE : (int) Math.floorDiv(second, 60L);
+    }
+
+    /** The date of record i, or null. */
+    public LocalDateTime date(int i) {
+        long second = epochSecond(i);
+        return second == NO_SECOND ? null : LocalDateTime.ofEpochSecond(second, records.getInt(at(i) + 24), ZoneOffset.UTC);
+    }
+
+    public Consultation.Status status(int i) {
+        int s = records.get(at(i) + 28);
+        return s < 0 || s >= STATUSES.length ? null : STATUSES[s];
+    }
+
+    public String id(int i) { return idText(idNumber(i), 'C', i, 0); }
+
+    public String patientId(int i) { return idText(patientNumber(i), 'P', i, 1); }
+
+    public String doctorId(int i) { return idText(doctorNumber(i), 'D', i, 2); }
+
+    public String reason(int i) { return textField(i, 3); }
+
+    public String notes(int i) { return textField(i, 4); }
+
+    /** A fresh Consultation built from record i. */
+    public Consultation get(int i) {
+        return get(i, null, null);
+    }
+
+    // patients/doctors (nullable) cache formatted ids by number
+    private Consultation get(int i, String[] patients, String[] doctors) {
+        String[] t = readText(i);
+        Consultation c = new Consultation(idText(idNumber(i), 'C', t[0]), cachedId(patientNumber(i), 'P', t[1], patients),
+                cachedId(doctorNumber(i), 'D', t[2], doctors), date(i), t[3], t[4], status(i));
+        c.setStatus(status(i)); // the constructor turns a null status into ONGOING
+        c.setCalendarEventId(t[5]);
+        c.setFollowUpOfId(t[6]);
+        return c;
+    }
+
+    public static int epochMinute(LocalDateTime t) {
+        if (t == null) return NO_DATE;
+        return (int) Math.floorDiv(t.toEpochSecond(ZoneOffset.UTC), 60L);
+    }
+
+    // ===== Writing =====
+
+    /**
+     * Make the store mirror list (same order), which was loaded from or saved to
+     * source files with the given stamp (nullable). Records whose fingerprint is
+     * unchanged are left alone, so syncing after a typical save touches a handful
+     * of records.
+     */
+    synchronized void sync(ADTInterface<Consultation> list, long[] sourceStamp) throws IOException {
+        synced = false;
+        FileLock lock = lock(false);
+        try {
+            adoptHeader();
+            int n = list.size();
+            boolean dirty = n != count || !mirrors(sourceStamp);
+            if (dirty) markDirty();
+            for (int i = 0; i < n; i++) {
+                Consultation c = list.get(i);
+                if (c == null) c = BLANK;
+                long fp = fingerprint(c);
+                if (i < count && records.getLong(at(i) + 40) == fp) continue;
+                if (!dirty) { markDirty(); dirty = true; }
+                write(i, c, fp);
+            }
+            if (!dirty) {
+                synced = true;
+                syncedWrites = writes;
+                return;
+            }
+            positions = null;
+            for (int i = n; i < count; i++) garbage += records.getInt(at(i) + 12);
+            count = n;
+            if (garbage > (1 << 20) && garbage > heapEnd / 2) compact(list);
+            finish(sourceStamp);
+        } finally {
+            release(lock);
+        }
+    }
+
+    /**
+     * Apply a delta (see ChangeSet) to the store: drop the records of the removed
+     * ids, then rewrite the put consultations whose fingerprint changed and append
+     * the new ones (the order JournaledStore gives them). Costs O(puts), plus one
+     * pass over the records if any were removed. Returns false, and leaves the
+     * store for a full sync(), unless it mirrored the files as of fromStamp, the
+     * state the delta was made against.
+     */
+    synchronized boolean apply(long[] fromStamp, ObjectSet<String> removedIds, ADTInterface<Consultation> puts,
+                               long[] sourceStamp) throws IOException {
+        synced = false;
+        FileLock lock = lock(false);
+        try {
+            if (!mirrors(fromStamp)) return false; // also adopts another console's header
+            apply(removedIds, puts, sourceStamp);
+            return true;
+        } finally {
+            release(lock);
+        }
+    }
+
+    private void apply(ObjectSet<String> removedIds, ADTInterface<Consultation> puts, long[] sourceStamp) throws IOException {
+        markDirty();
+        ObjectIntMap<String> at = positions();
+        boolean[] drop = null;
+        for (int k = 0; k < removedIds.size(); k++) {
+            int i = at.getOrDefault(removedIds.get(k), -1);
+            if (i < 0) continue;
+            if (drop == null) drop = new boolean[count];
+            drop[i] = true;
+        }
+        if (drop != null) {
+            byte[] rec = new byte[RECORD];
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int pos = HEADER + i * RECORD;
+                if (drop[i]) { garbage += records.getInt(pos + 12); continue; }
+                if (kept != i) {
+                    records.get(pos, rec);
+                    records.put(HEADER + kept * RECORD, rec);
+                }
+                kept++;
+            }
+            count = kept;
+            positions = null;
+            at = positions();
+        }
+        for (int k = 0; k < puts.size(); k++) {
+            Consultation c = puts.get(k) == null ? BLANK : puts.get(k);
+            long fp = fingerprint(c);
+            int i = at.getOrDefault(c.getId(), -1);
+            if (i < 0) {
+                i = count;
+                at.put(c.getId(), i);
+            } else if (records.getLong(at(i) + 40) == fp) {
+                continue;
+            }
+            write(i, c, fp);
+        }
+        writeHeader();
+        if (garbage > (1 << 20) && garbage > heapEnd / 2) compact(readRecords());
+        finish(sourceStamp);
+    }
+
+    /** Flush the mapped pages to disk. */
+    public synchronized void force() {
+        records.force();
+        text.force();
+    }
+
+    // Record the header and source stamp of a completed sync/apply
+    private void finish(long[] sourceStamp) {
+        writeHeader();
+        int stampLen = sourceStamp == null || sourceStamp.length > MAX_STAMP ? -1 : sourceStamp.length;
+        records.putInt(H_STAMP_LEN, stampLen);
+        for (int k = 0; k < stampLen; k++) records.putLong(H_STAMP + 8 * k, sourceStamp[k]);
+        bumpWrites();
+        synced = true;
+        syncedWrites = writes;
+        committing = writes;
+        // Stays marked dirty until the pages are on disk, so an OS crash before then means a rebuild
+        AtomicFiles.commitLater(this, this::commit);
+    }
+
+    // Not dirty, or dirty only for this console's own completed sync awaiting commit()
+    // (a writer that died part way bumped H_WRITES when it started)
+    private boolean complete() {
+        return records.get(H_DIRTY) == 0 || records.getLong(H_WRITES) == committing;
+    }
+
+    private void markDirty() {
+        records.put(H_DIRTY, (byte) 1);
+        bumpWrites();
+        committing = -1;
+    }
+
+    private void bumpWrites() {
+        writes = records.getLong(H_WRITES) + 1;
+        records.putLong(H_WRITES, writes);
+    }
+
+    // id -> record index, rebuilt from the id column when stale
+    private ObjectIntMap<String> positions() {
+        if (positions == null) {
+            positions = new ObjectIntMap<>(count);
+            for (int i = 0; i < count; i++) positions.put(id(i), i);
+        }
+        return positions;
+    }
+
+    // Group-committed after a sync: force the records and text, then clear the dirty flag
+    // (if another console has written since, the flag is its own to clear)
+    private synchronized void commit() throws IOException {
+        if (committing < 0) return;
+        FileLock lock = lock(false);
+        try {
+            if (records.get(H_DIRTY) != 0 && records.getLong(H_WRITES) == committing) {
+                force();
+                records.put(H_DIRTY, (byte) 0);
+            }
+            committing = -1;
+        } finally {
+            release(lock);
+        }
+    }
+
+    // Advisory lock on the whole .dat file; the heap is only touched under it. Polled
+    // rather than blocking: record locks belong to the process, so a console blocked
+    // here while its fsync thread holds this lock and another console waits for the
+    // queue lock would be refused as a deadlock (EDEADLK) by the kernel
+    private FileLock lock(boolean shared) throws IOException {
+        for (long wait = 1; ; wait = Math.min(wait * 2, 20)) {
+            FileLock lock = data.tryLock(0, Long.MAX_VALUE, shared);
+            if (lock != null) return lock;
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the consultation store");
+            }
+        }
+    }
+
+    private static void release(FileLock lock) {
+        try {
+            lock.release();
+        } catch (IOException e) {
+            System.out.println("Error unlocking consultation store: " + e.getMessage());
+        }
+    }
+
+    private void write(int i, Consultation c, long fp) throws IOException {
+        ensureRecords(i + 1);
+        int pos = HEADER + i * RECORD;
+        if (i < count) garbage += records.getInt(pos + 12);
+
+        int idNo = number(c.getId(), 'C');
+        int patientNo = number(c.getPatientId(), 'P');
+        int doctorNo = number(c.getDoctorId(), 'D');
+        byte[] block = encodeText(
+                idNo == UNPARSED ? c.getId() : null,
+                patientNo == UNPARSED ? c.getPatientId() : null,
+                doctorNo == UNPARSED ? c.getDoctorId() : null,
+                c.getReason(), c.getNotes(), c.getCalendarEventId(), c.getFollowUpOfId());
+        ensureHeap(heapEnd + block.length);
+        text.put((int) heapEnd, block);
+
+        records.putInt(pos, idNo);
+        records.putInt(pos + 4, patientNo);
+        records.putInt(pos + 8, doctorNo);
+        records.putInt(pos + 12, block.length);
+        records.putLong(pos + 16, c.getDate() == null ? NO_SECOND : c.getDate().toEpochSecond(ZoneOffset.UTC));
+        records.putInt(pos + 24, c.getDate() == null ? 0 : c.getDate().getNano());
+        records.put(pos + 28, (byte) (c.getStatus() == null ? -1 : c.getStatus().ordinal()));
+        records.putLong(pos + 32, heapEnd);
+        records.putLong(pos + 40, fp);
+        heapEnd += block.length;
+        if (i >= count) count = i + 1;
+    }
+
+    // Rewrite the heap with only live text by rebuilding every record from the list
+    private void compact(ADTInterface<Consultation> list) throws IOException {
+        reset();
+        for (int i = 0; i < list.size(); i++) {
+            Consultation c = list.get(i) == null ? BLANK : list.get(i);
+            write(i, c, fingerprint(c));
+        }
+    }
+
+    private void reset() {
+        count = 0;
+        positions = null;
+        heapEnd = 0;
+        garbage = 0;
+        records.putInt(0, MAGIC);
+        records.putInt(4, VERSION);
+        records.putInt(H_STAMP_LEN, -1);
+        writeHeader();
+        bumpWrites(); // other consoles re-read the emptied header
+    }
+
+    // The files are shared with other consoles on the same data directory; take the
+    // record count and heap end a sync in another process left in the header.
+    // The caller holds the file lock.
+    private void adoptHeader() {
+        if (records.getInt(0) != MAGIC) return;
+        int n = records.getInt(H_COUNT);
+        long end = records.getLong(H_HEAP_END);
+        long w = records.getLong(H_WRITES);
+        if ((w == writes && n == count && end == heapEnd) || n < 0 || end < 0) return;
+        try {
+            ensureRecords(n);
+            ensureHeap(end);
+        } catch (IOException e) {
+            return; // keep the old view; mirrors() then fails its stamp check and the source is parsed
+        }
+        count = n;
+        heapEnd = end;
+        garbage = records.getLong(H_GARBAGE);
+        writes = w;
+        positions = null;
+    }
+
+    private void writeHeader() {
+        records.putInt(H_COUNT, count);
+        records.putLong(H_HEAP_END, heapEnd);
+        records.putLong(H_GARBAGE, garbage);
+    }
+
+    private void ensureRecords(int n) throws IOException {
+        long need = HEADER + (long) n * RECORD;
+        if (need <= records.capacity()) return;
+        long size = Math.max(need, (long) records.capacity() * 2);
+        if (size > Integer.MAX_VALUE) throw new IOException("Consultation store full");
+        records = data.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void ensureHeap(long need) throws IOException {
+        if (need <= text.capacity()) return;
+        long size = Math.max(need, (long) text.capacity() * 2);
+        if (size > Integer.MAX_VALUE) throw new IOException("Consultation text heap full");
+        text = heap.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    // ===== Helpers =====
+
+    private int at(int i) {
+        if (i < 0 || i >= count) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + count);
+        return HEADER + i * RECORD;
+    }
+
+    private String idText(int number, char prefix, int i, int field) {
+        return number == UNPARSED ? textField(i, field) : format(prefix, number);
+    }
+
+    private static String idText(int number, char prefix, String text) {
+        return number == UNPARSED ? text : format(prefix, number);
+    }
+
+    private static String cachedId(int number, char prefix, String text, String[] cache) {
+        if (cache == null || number == UNPARSED || number >= cache.length) return idText(number, prefix, text);
+        String id = cache[number];
+        if (id == null) cache[number] = id = format(prefix, number);
+        return id;
+    }
+
+    // prefix + String.format("%04d", number), without the formatter (readAll builds three per record)
+    private static String format(char prefix, int number) {
+        String digits = Integer.toString(number);
+        StringBuilder sb = new StringBuilder(5 + digits.length()).append(prefix);
+        for (int k = digits.length(); k < 4; k++) sb.append('0');
+        return sb.append(digits).toString();
+    }
+
+    // The number in "<prefix><digits>" if formatting it back gives the same string, else UNPARSED
+    static int number(String id, char prefix) {
+        if (id == null || id.length() < 5 || id.length() > 10 || id.charAt(0) != prefix) return UNPARSED;
+        // "C0042" but not "C42" or "C00042", which would not format back the same
+        long n = 0;
+        for (int k = 1; k < id.length(); k++) {
+            char ch = id.charAt(k);
+            if (ch < '0' || ch > '9') return UNPARSED;
+            n = n * 10 + (ch - '0');
+        }
+        // at most 9 digits, so n fits an int
+        return format(prefix, (int) n).equals(id) ? (int) n : UNPARSED;
+    }
+
+    // Text block: 7 nullable strings [id, patientId, doctorId, reason, notes, calendarEventId, followUpOfId],
+    // each an int byte length (-1 = null) followed by UTF-8
+    private static byte[] encodeText(String... fields) {
+        byte[][] bytes = new byte[fields.length][];
+        int size = 0;
+        for (int f = 0; f < fields.length; f++) {
+            if (fields[f] != null) { bytes[f] = fields[f].getBytes(StandardCharsets.UTF_8); size += bytes[f].length; }
+            size += 4;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        for (byte[] b : bytes) {
+            out.putInt(b == null ? -1 : b.length);
+            if (b != null) out.put(b);
+        }
+        return out.array();
+    }
+
+    private String textField(int i, int field) {
+        int pos = at(i);
+        int p = (int) records.getLong(pos + 32);
+        for (int f = 0; f < field; f++) {
+            int len = text.getInt(p);
+            p += 4 + Math.max(len, 0);
+        }
+        int len = text.getInt(p);
+        if (len < 0) return null;
+        byte[] b = new byte[len];
+        text.get(p + 4, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private String[] readText(int i) {
+        int p = (int) records.getLong(at(i) + 32);
+        String[] out = new String[7];
+        for (int f = 0; f < out.length; f++) {
+            int len = text.getInt(p);
+            p += 4;
+            if (len >= 0) {
+                byte[] b = new byte[len];
+                text.get(p, b);
+                out[f] = new String(b, StandardCharsets.UTF_8);
+                p += len;
+            }
+        }
+        return out;
+    }
+
+    // 64-bit FNV-1a over every persisted field
+    private static long fingerprint(Consultation c) {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, c.getId());
+        h = mix(h, c.getPatientId());
+        h = mix(h, c.getDoctorId());
+        h = mix(h, c.getReason());
+        h = mix(h, c.getNotes());
+        h = mix(h, c.getCalendarEventId());
+        h = mix(h, c.getFollowUpOfId());
+        LocalDateTime d = c.getDate();
+        h = (h ^ (d == null ? NO_SECOND : d.toEpochSecond(ZoneOffset.UTC))) * 0x100000001b3L;
+        h = (h ^ (d == null ? -1 : d.getNano())) * 0x100000001b3L;
+        h = (h ^ (c.getStatus() == null ? -1 : c.getStatus().ordinal())) * 0x100000001b3L;
+        return h;
+    }
+
+    private static long mix(long h, String s) {
+        if (s == null) return (h ^ 0xff) * 0x100000001b3L;
+        for (int k = 0; k < s.length(); k++) h = (h ^ s.charAt(k)) * 0x100000001b3L;
+        return (h ^ 0xfe) * 0x100000001b3L; // terminator, so ("ab","c") != ("a","bc")
+    }
+}
@@ -10,55 +10,65 @@ import java.io.*;
 public class MedicationDAO {
     private static final String FILE = "medications.json";
     private final ObjectMapper mapper;
+    private final JournaledStore<Medication> store;
+    private final FileCache cache;
 
     public MedicationDAO() {
         mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
+        store = new JournaledStore<>(FILE, Medication.class, Medication::getId, mapper);
+        cache = new FileCache(store.snapshotPath(), store.journalPath());
     }
 
     public ADTInterface<Medication> load() {
+        ADTInterface<Medication> unchanged = cache.isCurrent() ? store.copy() : null;
+        if (unchanged != null) return unchanged;
+        cache.loading();
         ADTInterface<Medication> list = new CustomADT<>();
-        File f = new File(FILE);
-        boolean migrated = false;
-        if (f.exists() && f.length() > 0) {
-            try {
-                Medication[] arr = mapper.readValue(f, Medication[].class);
-                for (Medication m : arr) list.add(m);
-            } catch (IOException ex) {
-                try {
-                    com.fasterxml.jackson.databind.JsonNode root = mapper.readTree(f);
-                    if (root.isArray()) {
-                        if (root.size() > 1 && root.get(1).isArray()) {
-                            com.fasterxml.jackson.databind.JsonNode entries = root.get(1);
-                            for (com.fasterxml.jackson.databind.JsonNode pair : entries) {
-                                if (pair.isArray() && pair.size() > 1 && pair.get(1).isObject()) {
-                                    Medication m = mapper.treeToValue(pair.get(1), Medication.class);
-                                    list.add(m);
-                                }
-                            }
-                            migrated = true;
-                        } else {
-                            Medication[] arr = mapper.treeToValue(root, Medication[].class);
-                            for (Medication m : arr) list.add(m);
-                            migrated = true;
-                        }
-                    }
-                } catch (IOException ex2) {
-                    System.out.println("Error loading medications: " + ex2.getMessage());
-                }
-            }
+        try {
+            store.read(list);
+        } catch (IOException ex) {
+            System.out.println("Error loading medications: " + ex.getMessage());
+        }
+        try {
+            // A legacy or converted file is rewritten by replay()
+            if (store.replay(list)) cache.saved(); else cache.loaded();
+        } catch (IOException e) {
+            cache.invalidate();
+            System.out.println("Error loading medications: " + e.getMessage());
         }
-        if (migrated && list.size() > 0) save(list);
         return list;
     }
 
+    /** Write the current medications as a plain JSON array (e.g. to inspect a binary snapshot). */
+    public void exportJson(String path) throws IOException {
+        store.export(load(), SnapshotFormat.JSON, new File(path));
+    }
+
+    /** True when the file is unchanged since this DAO last loaded or saved it (a stat per file). */
+    public boolean isUnchanged() {
+        return cache.isCurrent();
+    }
+
     public void save(ADTInterface<Medication> list) {
         try {
-            Medication[] arr = new Medication[list.size()];
-            for (int i=0;i<list.size();i++) arr[i]=list.get(i);
-            mapper.writerWithDefaultPrettyPrinter().writeValue(new File(FILE), arr);
+            save(ChangeSet.of(list, Medication::getId, store::encode));
         } catch (IOException e) {
             System.out.println("Error saving medications: " + e.getMessage());
         }
     }
+
+    /** Write a list serialized by the caller (Repository.save()). */
+    void save(ChangeSet changes) {
+        try {
+            if (store.save(changes)) cache.saved(); else cache.invalidate();
+        } catch (IOException e) {
+            cache.invalidate();
+            System.out.println("Error saving medications: " + e.getMessage());
+        }
+    }
+
+    byte[] encode(Medication m) throws IOException {
+        return store.encode(m);
+    }
 }
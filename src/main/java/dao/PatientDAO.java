@@ -18,69 +18,67 @@ import java.io.*;
 public class PatientDAO {
     private static final String FILE_PATH = "patients.json";
     private ObjectMapper objectMapper;
+    private final JournaledStore<Patient> store;
+    private final FileCache cache;
 
     public PatientDAO() {
         objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
+        store = new JournaledStore<>(FILE_PATH, Patient.class, Patient::getId, objectMapper);
+        cache = new FileCache(store.snapshotPath(), store.journalPath());
     }
 
     public ADTInterface<Patient> retrieveFromFile() {
+        ADTInterface<Patient> unchanged = cache.isCurrent() ? store.copy() : null;
+        if (unchanged != null) return unchanged;
+        cache.loading();
         ADTInterface<Patient> patientList = new CustomADT<>();
 
-        File file = new File(FILE_PATH);
-        if (file.exists() && file.length() > 0) {
-                boolean migrated = false;
-                try {
-                    // Try normal deserialization: JSON array of Patient objects
-                    Patient[] patients = objectMapper.readValue(file, Patient[].class);
-                    for (Patient patient : patients) patientList.add(patient);
-                } catch (IOException ex) {
-                    // Fallback: handle legacy/wrapped format like ["[Lentity.Patient;", [ ["entity.Patient", {..}], ... ] ]
-                    try {
-                        com.fasterxml.jackson.databind.JsonNode root = objectMapper.readTree(file);
-                        if (root.isArray()) {
-                            // If second element is an array of pairs [type, object]
-                            if (root.size() > 1 && root.get(1).isArray()) {
-                                com.fasterxml.jackson.databind.JsonNode entries = root.get(1);
-                                for (com.fasterxml.jackson.databind.JsonNode pair : entries) {
-                                    if (pair.isArray() && pair.size() > 1 && pair.get(1).isObject()) {
-                                        Patient p = objectMapper.treeToValue(pair.get(1), Patient.class);
-                                        patientList.add(p);
-                                    }
-                                }
-                                migrated = true;
-                            } else {
-                                // Try treating root itself as array of Patient objects
-                                Patient[] patients = objectMapper.treeToValue(root, Patient[].class);
-                                for (Patient patient : patients) patientList.add(patient);
-                                migrated = true;
-                            }
-                        }
-                    } catch (IOException ex2) {
-                        System.out.println("Error reading patient data: " + ex2.getMessage());
-                    }
-                }
-                // If we read a legacy format, persist a clean JSON array for future runs
-                if (migrated && patientList.size() > 0) {
-                    saveToFile(patientList);
-                }
+        try {
+            store.read(patientList);
+        } catch (IOException ex) {
+            System.out.println("Error reading patient data: " + ex.getMessage());
+        }
+        try {
+            // If we read a legacy format (or the other snapshot format), replay() rewrites the file
+            if (store.replay(patientList)) cache.saved(); else cache.loaded();
+        } catch (IOException e) {
+            cache.invalidate();
+            System.out.println("Error reading patient data: " + e.getMessage());
         }
 
         return patientList;
     }
 
+    /** Write the current patients as a plain JSON array (e.g. to inspect a binary snapshot). */
+    public void exportJson(String path) throws IOException {
+        store.export(retrieveFromFile(), SnapshotFormat.JSON, new File(path));
+    }
+
+    /** True when the file is unchanged since this DAO last loaded or saved it (a stat per file). */
+    public boolean isUnchanged() {
+        return cache.isCurrent();
+    }
+
     public void saveToFile(ADTInterface<Patient> patientList) {
         try {
-            Patient[] patients = new Patient[patientList.size()];
-            for (int i = 0; i < patientList.size(); i++) {
-                patients[i] = patientList.get(i);
-            }
-
-            objectMapper.writerWithDefaultPrettyPrinter()
-                       .writeValue(new File(FILE_PATH), patients);
+            saveToFile(ChangeSet.of(patientList, Patient::getId, store::encode));
+        } catch (IOException e) {
+            System.out.println("Error saving patient data: " + e.getMessage());
+        }
+    }
 
+    /** Write a list serialized by the caller (Repository.save()). */
+    void saveToFile(ChangeSet changes) {
+        try {
+            if (store.save(changes)) cache.saved(); else cache.invalidate();
         } catch (IOException e) {
+            cache.invalidate();
             System.out.println("Error saving patient data: " + e.getMessage());
         }
     }
+
+    byte[] encode(Patient p) throws IOException {
+        return store.encode(p);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package dao;
+
+import adt.ObjectMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Single background writer for entity files.
+ *
+ * Repository.save() hands its write to submit() and returns at once, so a menu
+ * action no longer waits for a snapshot rewrite of the whole file. One "persister" thread runs the writes in submission order. A write
+ * submitted while an earlier one for the same key is still waiting replaces it:
+ * a repository's write takes everything saved since its last one (see
+ * Repository.save()), so only the newer one is worth doing.
+ *
+ * flush() waits until everything submitted so far is written and durable; it
+ * runs at exit and JVM shutdown. Loads only need the writes in the files, not on
+ * disk, and call awaitWrites() before reading a file this process may still be
+ * writing. -Dclinic.async=false writes on the caller's thread.
+ */
+public final class Persister {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("clinic.async", "true"));
+
+    private static final Object LOCK = new Object();
+    private static final ObjectMap<Object, Runnable> pending = new ObjectMap<>();
+    private static Object running;    // key of the write in progress, or null
+    private static boolean draining;  // a drain task is queued or running
+    private static ExecutorService writer;
+    private static volatile Thread writerThread;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(Persister::flush, "persister-shutdown"));
+    }
+
+    private Persister() {}
+
+    /** Run write on the persister thread, replacing a not yet started write for the same key. */
+    static void submit(Object key, Runnable write) {
+        if (!ENABLED) {
+            run(write);
+            return;
+        }
+        synchronized (LOCK) {
+            pending.put(key, write);
+            if (draining) return;
+            draining = true;
+            if (writer == null) {
+                writer = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "persister");
+                    t.setDaemon(true); // the shutdown hook flushes; a daemon never holds the JVM open
+                    return t;
+                });
+            }
+            writer.execute(Persister::drain);
+        }
+    }
+
+    /** True while a write for key is waiting or in progress. */
+    static boolean isPending(Object key) {
+        synchronized (LOCK) {
+            return pending.containsKey(key) || running == key;
+        }
+    }
+
+    /** Wait until every write submitted so far has finished, then force it to disk. */
+    public static void flush() {
+        if (awaitWrites()) AtomicFiles.sync();
+    }
+
+    /**
+     * Wait until every write submitted so far is in the files, visible to other
+     * processes, without forcing it (the group commit still does that); false if
+     * interrupted or called on the writer thread.
+     */
+    public static boolean awaitWrites() {
+        if (Thread.currentThread() == writerThread) return false; // a write cannot wait for itself
+        synchronized (LOCK) {
+            while (draining) {
+                try {
+                    LOCK.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void drain() {
+        writerThread = Thread.currentThread();
+        while (true) {
+            Runnable write;
+            synchronized (LOCK) {
+                running = null;
+                if (pending.isEmpty()) {
+                    draining = false;
+                    LOCK.notifyAll();
+                    return;
+                }
+                running = pending.keyAt(0);
+                write = pending.remove(running);
+            }
+            run(write);
+        }
+    }
+
+    private static void run(Runnable write) {
+        // The DAOs report their own IO errors; anything else must not stop the writer
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            System.out.println("Error saving data: " + e.getMessage());
+        }
+    }
+}
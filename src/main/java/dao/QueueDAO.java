@@ -2,38 +2,454 @@ package dao;
 
 import adt.ADTInterface;
 import adt.CustomADT;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import entity.PatientQueueEntry;
+import entity.QueueEvent;
+import entity.QueueStatus;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.util.List;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+/**
+ * Queue persistence as an append-only event log.
+ *
+ * Every change is a QueueEvent (ENQUEUED, CALLED, BUMPED, COMPLETED, REMOVED,
+ * CLEARED) appended to queue-events.log as one JSON line, so an action costs an
+ * append of its own events, and the log keeps the recent history for wait-time
+ * and throughput figures (see history()). The queue is the fold of the log over
+ * the newest snapshot. Every clinic.queue.snapshotEvery events (default 500) the
+ * fold is written to queue-snapshot.json together with the seq and log offset it
+ * covers, so loading reads the snapshot and replays only the tail. A log that
+ * does not exist yet is seeded from the old current-state file, queue.json.
+ *
+ * The snapshot also lets the log shed its old events: at a snapshot, events
+ * older than clinic.queue.keepHours (default 24, the span QueueMetrics charts)
+ * are cut off the front once they make up at least half the log, so the file
+ * stays about the size of two windows and trimming costs O(1) per event.
+ * Offsets are logical: a trimmed log starts with a {"base":n} line giving the
+ * offset of the byte after it, so an offset names the same event in every
+ * version of the file, and a reader whose offset was cut off starts over from
+ * the snapshot. The log is read a chunk at a time, whatever its size.
+ *
+ * The folded list is in offer order: entries by arrival, a called entry or a
+ * waiting entry whose priority was raised moved to the end (QueueMaintenance
+ * requeues both). Offering it in that order rebuilds the
+ * serving order exactly, priority ties included.
+ *
+ * Several consoles (reception desks, doctor stations) may run against the same
+ * data directory at once, so appends go through lock(): it serialises QueueDAOs
+ * across threads (LOCAL) and processes (an OS lock on queue.lock), and hands out
+ * the queue generation, a counter in queue.lock that every unlock(true) bumps. A
+ * holder whose copy is older than the generation reloads before changing it, so
+ * no change is made to a stale queue and none is lost. Reads need no lock: only
+ * complete lines are applied, and an append under the lock ends every line.
+ *
+ * onApplied() registers a listener that sees each event as it is folded in,
+ * whether appended here or read from another console's appends.
+ */
 public class QueueDAO {
     private static final String FILE = "queue.json";
+    private static final String LOG_FILE = "queue-events.log";
+    private static final String SNAPSHOT_FILE = "queue-snapshot.json";
+    private static final String LOCK_FILE = "queue.lock";
+    private static final int SNAPSHOT_EVERY = Integer.getInteger("clinic.queue.snapshotEvery", 500);
+    private static final int KEEP_HOURS = Integer.getInteger("clinic.queue.keepHours", 24);
+    // First line of a trimmed log, fixed width: {"base":<19 digits>}
+    private static final String BASE_PREFIX = "{\"base\":";
+    private static final int HEADER = BASE_PREFIX.length() + 19 + 2;
+    private static final long FIRST = -1;   // readLog(): from the first event the log still has
+    private static final long TRIMMED = -1; // readLog(): the log no longer reaches back to from
+    private static final ReentrantLock LOCAL = new ReentrantLock();
+
+    /** Contents of queue-snapshot.json. */
+    static final class Snapshot {
+        public long seq;       // last event folded in
+        public long offset;    // log bytes folded in (a logical offset, see class comment)
+        public PatientQueueEntry[] entries;
+    }
+
     private final ObjectMapper mapper = new ObjectMapper();
+    private final JournaledStore<PatientQueueEntry> legacy;
+    private final File log = new File(LOG_FILE);
+    private final File snapshotFile = new File(SNAPSHOT_FILE);
+
+    // The fold of the log as far as this DAO has read it
+    private final CustomADT<PatientQueueEntry> state = new CustomADT<>(PatientQueueEntry::getId);
+    private boolean opened;
+    private long seq;          // last event applied to state
+    private long offset;       // log bytes applied to state (logical)
+    private long snapshotSeq;  // seq of the newest snapshot on disk
+
+    private BiConsumer<QueueEvent, PatientQueueEntry> listener; // see onApplied()
+
+    // queue.lock, opened once and never closed: closing any descriptor of a file drops
+    // every OS lock the process holds on it. The lock is the process's, so it is shared
+    // by every QueueDAO here and held by the outermost lock() (guarded by LOCAL).
+    private static FileChannel lockChannel;
+    private static FileLock fileLock;
 
     public QueueDAO(){
         mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        legacy = new JournaledStore<>(FILE, PatientQueueEntry.class, PatientQueueEntry::getId, mapper);
+    }
+
+    /** The current queue in offer order (see class comment); the entries are this caller's own copies. */
+    public synchronized ADTInterface<PatientQueueEntry> load(){
+        catchUp(false);
+        CustomADT<PatientQueueEntry> out = new CustomADT<>(PatientQueueEntry::getId);
+        out.ensureCapacity(state.size());
+        for (int i = 0; i < state.size(); i++) out.add(state.get(i).copy());
+        return out;
+    }
+
+    /**
+     * Append events (seq and missing times are filled in here) and fold them in.
+     * The caller holds lock() and built the events on the queue as of load().
+     * Returns false if they could not be written; the next load() then rereads
+     * the files.
+     */
+    public synchronized boolean append(ADTInterface<QueueEvent> events){
+        if (events.isEmpty()) return true;
+        catchUp(true);
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (int i = 0; i < events.size(); i++) {
+                QueueEvent e = events.get(i);
+                e.setSeq(seq + 1 + i);
+                if (e.getAt() == null) e.setAt(LocalDateTime.now());
+                lines.write(mapper.writeValueAsBytes(e));
+                lines.write('\n');
+            }
+            byte[] bytes = lines.toByteArray();
+            AtomicFiles.append(log, bytes);
+            offset += bytes.length;
+            for (int i = 0; i < events.size(); i++) fold(events.get(i));
+            seq += events.size();
+        } catch(IOException e){
+            System.out.println("Error saving queue: "+e.getMessage());
+            opened = false; // reread from the files before the next change
+            return false;
+        }
+        try {
+            if (seq - snapshotSeq >= SNAPSHOT_EVERY) {
+                long drop = droppable();
+                if (drop > 0) trimLog(drop); else writeSnapshot();
+            }
+        } catch(IOException e){
+            // The events are in the log; the next snapshot covers them
+            System.out.println("Error saving queue snapshot: "+e.getMessage());
+            opened = false; // reread the files before the next change
+        }
+        return true;
+    }
+
+    /**
+     * Call listener with each event folded in from now on, and the entry it acts
+     * on as it was just before (null if not queued). Events in a snapshot have
+     * already been folded and are not seen; the log tail after it is.
+     */
+    public synchronized void onApplied(BiConsumer<QueueEvent, PatientQueueEntry> listener){
+        this.listener = listener;
+    }
+
+    /**
+     * The events still in the log, oldest first: at least the last
+     * clinic.queue.keepHours hours of them (see class comment).
+     */
+    public ADTInterface<QueueEvent> history(){
+        CustomADT<QueueEvent> out = new CustomADT<>();
+        try {
+            readLog(FIRST, out::add);
+        } catch(IOException e){ System.out.println("Error loading queue history: "+e.getMessage()); }
+        return out;
+    }
+
+    /**
+     * Take the queue lock (blocking) and return the current generation. Every
+     * lock() must be followed by exactly one unlock(). A thread that already holds
+     * it (one controller's change run inside another's, on any QueueDAO) holds it
+     * again.
+     */
+    public long lock(){
+        LOCAL.lock();
+        boolean outermost = LOCAL.getHoldCount() == 1;
+        try {
+            FileChannel ch = lockChannel();
+            if (outermost) fileLock = ch.lock();
+            else if (fileLock == null) return -1; // the outer lock() went without it
+            return readGeneration(ch);
+        } catch(IOException | OverlappingFileLockException e){
+            // Still exclusive within this process; report and carry on without the file lock
+            System.out.println("Error locking queue: "+e.getMessage());
+            if (outermost) releaseFileLock();
+            return -1;
+        }
+    }
+
+    /** Release the lock; changed = events were appended under it. */
+    public void unlock(boolean changed){
+        try {
+            if (fileLock != null && changed) {
+                FileChannel ch = lockChannel();
+                ch.write(ByteBuffer.allocate(Long.BYTES).putLong(0, readGeneration(ch) + 1), 0);
+            }
+        } catch(IOException e){
+            System.out.println("Error locking queue: "+e.getMessage());
+        } finally {
+            if (LOCAL.getHoldCount() == 1) releaseFileLock();
+            LOCAL.unlock();
+        }
+    }
+
+    /** Current generation, read without the lock (to see whether a reload is due); -1 if unknown. */
+    public long generation(){
+        try {
+            return readGeneration(lockChannel());
+        } catch(IOException e){
+            return -1;
+        }
+    }
+
+    /** Write the current queue as a plain JSON array. */
+    public void exportJson(String path) throws java.io.IOException {
+        legacy.export(load(), SnapshotFormat.JSON, new File(path));
     }
 
-    public ADTInterface<PatientQueueEntry> load(){
-        ADTInterface<PatientQueueEntry> list = new CustomADT<>();
+    /** Apply one event to a queue in offer order. */
+    static void apply(CustomADT<PatientQueueEntry> queue, QueueEvent e){
+        if (e.getType() == QueueEvent.Type.CLEARED) { queue.clear(); return; }
+        int at = e.getQueueId() == null ? -1 : queue.indexOf(e.getQueueId());
+        switch (e.getType()) {
+            case ENQUEUED -> {
+                if (at >= 0) return;
+                PatientQueueEntry n = new PatientQueueEntry(e.getQueueId(), e.getPatientId(), e.getDoctorId(), e.getReason(), e.getPriority());
+                n.setLinkedConsultationId(e.getLinkedConsultationId());
+                n.setEnqueuedAt(e.getAt());
+                queue.add(n);
+            }
+            case CALLED -> {
+                if (at < 0) return;
+                PatientQueueEntry c = queue.remove(at);
+                c.setStatus(QueueStatus.IN_PROGRESS);
+                c.setPreferredDoctorId(e.getDoctorId());
+                c.setCalledAt(e.getAt());
+                c.incrementCallAttempts();
+                queue.add(c); // requeued behind the entries already in progress
+            }
+            case BUMPED -> {
+                if (at < 0) return;
+                PatientQueueEntry b = queue.get(at);
+                boolean raised = b.getStatus() == QueueStatus.WAITING && e.getPriority() > b.getPriority();
+                b.setPriority(e.getPriority());
+                if (raised) queue.add(queue.remove(at)); // behind its new peers, like QueueMaintenance.bump
+            }
+            case COMPLETED, REMOVED -> { if (at >= 0) queue.remove(at); }
+            default -> { }
+        }
+    }
+
+    private void fold(QueueEvent e){
+        if (listener != null) {
+            int at = e.getQueueId() == null ? -1 : state.indexOf(e.getQueueId());
+            listener.accept(e, at < 0 ? null : state.get(at));
+        }
+        apply(state, e);
+    }
+
+    // Bring state up to the end of the log. writing = the caller holds lock() and is
+    // about to append, so a torn last line (a crash mid-append) is cut off first.
+    private void catchUp(boolean writing){
         try {
-            File f = new File(FILE);
-            if (f.exists() && f.length()>0) {
-                List<PatientQueueEntry> data = mapper.readValue(f, new TypeReference<List<PatientQueueEntry>>(){});
-                for (PatientQueueEntry e: data) list.add(e);
+            if (!opened) open();
+            long end = readLog(offset, this::foldNew);
+            if (end == TRIMMED) {
+                // Another console trimmed the log past what this DAO had read; the snapshot
+                // it wrote first covers the gap
+                open();
+                end = readLog(offset, this::foldNew);
+                if (end == TRIMMED) {
+                    System.out.println("Error loading queue: the log does not meet the snapshot; replaying what is left");
+                    end = readLog(FIRST, this::foldNew);
+                }
+            }
+            offset = end;
+            if (writing) {
+                try (FileChannel ch = FileChannel.open(log.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    long[] h = header(ch);
+                    long at = offset - h[0] + h[1];
+                    if (ch.size() > at) ch.truncate(at);
+                } catch(NoSuchFileException ignored){ }
             }
-        } catch(Exception e){ System.out.println("Error loading queue: "+e.getMessage()); }
-        return list;
+        } catch(IOException e){ System.out.println("Error loading queue: "+e.getMessage()); }
+    }
+
+    private void foldNew(QueueEvent e){
+        if (e.getSeq() <= seq) return;
+        fold(e);
+        seq = e.getSeq();
+    }
+
+    // Start over from the newest snapshot, or from the old queue.json when there is no log yet
+    private void open() throws IOException {
+        state.clear();
+        seq = 0;
+        offset = 0;
+        snapshotSeq = 0;
+        if (snapshotFile.exists()) {
+            Snapshot s = mapper.readValue(snapshotFile, Snapshot.class);
+            if (s.entries != null) for (PatientQueueEntry e : s.entries) state.add(e);
+            seq = snapshotSeq = s.seq;
+            offset = s.offset;
+        } else if (!log.exists()) {
+            CustomADT<PatientQueueEntry> old = new CustomADT<>(PatientQueueEntry::getId);
+            legacy.read(old);
+            legacy.replay(old);
+            // Its file order is the serving order: in progress first, in call order, then waiting
+            for (int i = 0; i < old.size(); i++) {
+                PatientQueueEntry e = old.get(i);
+                if (e != null && e.getId() != null && state.indexOf(e.getId()) < 0) state.add(e);
+            }
+            opened = true;
+            if (!state.isEmpty()) writeSnapshot(); // the log starts from this state
+            return;
+        }
+        opened = true;
+    }
+
+    // Events from logical offset from (or FIRST) to the last complete line, streamed to
+    // into; returns the offset at the end of that line, or TRIMMED if the log now starts
+    // after from (or ends before it)
+    private long readLog(long from, Consumer<QueueEvent> into) throws IOException {
+        FileChannel ch;
+        try {
+            ch = FileChannel.open(log.toPath(), StandardOpenOption.READ);
+        } catch(NoSuchFileException e){
+            return Math.max(from, 0);
+        }
+        try (ch) {
+            long[] h = header(ch);
+            long base = h[0], skew = h[1] - base; // file position = offset + skew
+            if (from == FIRST) from = base;
+            else if (from < base || ch.size() < from + skew) return TRIMMED;
+            if (ch.size() == from + skew) return from;
+            LineReader lines = new LineReader(ch, from + skew);
+            byte[] line;
+            for (long start = from; (line = lines.next()) != null; start = lines.end() - skew) {
+                if (line.length == 0) continue;
+                QueueEvent e;
+                try {
+                    e = mapper.readValue(line, QueueEvent.class);
+                } catch(IOException ex){
+                    // a line torn by a crash and written over; the events after it still count
+                    System.out.println("Error loading queue: skipped damaged event at offset " + start);
+                    continue;
+                }
+                into.accept(e);
+            }
+            return lines.end() - skew;
+        }
+    }
+
+    // {base offset, header length} of an open log; {0, 0} for a log never trimmed
+    private static long[] header(FileChannel ch) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER);
+        while (buf.hasRemaining() && ch.read(buf, buf.position()) > 0) { }
+        String head = new String(buf.array(), 0, buf.position(), StandardCharsets.US_ASCII);
+        if (buf.hasRemaining() || !head.startsWith(BASE_PREFIX)) return new long[] {0, 0};
+        return new long[] {Long.parseLong(head.substring(BASE_PREFIX.length(), HEADER - 2)), HEADER};
+    }
+
+    // Bytes at the front of the log holding only events older than KEEP_HOURS, or 0 when
+    // they are less than half of it (not worth rewriting the rest yet). The caller holds
+    // lock() and has just appended, so the log ends at offset.
+    private long droppable() throws IOException {
+        if (!log.exists()) return 0;
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(KEEP_HOURS);
+        long drop = 0, size;
+        try (FileChannel ch = FileChannel.open(log.toPath(), StandardOpenOption.READ)) {
+            long[] h = header(ch);
+            size = offset - h[0];
+            LineReader in = new LineReader(ch, h[1]);
+            byte[] line;
+            while (drop < size && (line = in.next()) != null) {
+                if (line.length > 0) {
+                    try {
+                        LocalDateTime at = mapper.readValue(line, QueueEvent.class).getAt();
+                        if (at != null && !at.isBefore(cutoff)) break;
+                    } catch(IOException ignored){ } // damaged: nothing worth keeping
+                }
+                drop = in.end() - h[1];
+            }
+        }
+        return drop > 0 && drop >= size - drop ? drop : 0;
+    }
+
+    // Cut the first drop bytes of events off the log. The snapshot is written first: it
+    // covers them, and its offset holds in the old log and the new one alike.
+    private void trimLog(long drop) throws IOException {
+        writeSnapshot();
+        AtomicFiles.replace(log, out -> {
+            try (FileChannel ch = FileChannel.open(log.toPath(), StandardOpenOption.READ)) {
+                long[] h = header(ch);
+                long base = h[0] + drop;
+                out.write(String.format("%s%019d}\n", BASE_PREFIX, base).getBytes(StandardCharsets.US_ASCII));
+                long end = offset - h[0] + h[1];
+                WritableByteChannel to = Channels.newChannel(out);
+                for (long at = h[1] + drop; at < end; ) {
+                    long n = ch.transferTo(at, end - at, to);
+                    if (n <= 0) throw new IOException("queue log ended at byte " + at + ", expected " + end);
+                    at += n;
+                }
+            }
+        });
+    }
+
+    private void writeSnapshot() throws IOException {
+        Snapshot s = new Snapshot();
+        s.seq = seq;
+        s.offset = offset;
+        s.entries = new PatientQueueEntry[state.size()];
+        for (int i = 0; i < s.entries.length; i++) s.entries[i] = state.get(i);
+        AtomicFiles.replace(snapshotFile, out -> mapper.writeValue(out, s));
+        snapshotSeq = seq;
+    }
+
+    private static long readGeneration(FileChannel ch) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Long.BYTES);
+        while (buf.hasRemaining() && ch.read(buf, buf.position()) > 0) { }
+        return buf.hasRemaining() ? 0 : buf.getLong(0); // new or short file: generation 0
+    }
+
+    private static synchronized FileChannel lockChannel() throws IOException {
+        if (lockChannel == null || !lockChannel.isOpen()) { // closed by an interrupt mid-read
+            lockChannel = FileChannel.open(new File(LOCK_FILE).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return lockChannel;
     }
 
-    public void save(ADTInterface<PatientQueueEntry> queue){
+    private static void releaseFileLock(){
         try {
-            PatientQueueEntry[] arr = new PatientQueueEntry[queue.size()];
-            for (int i=0;i<queue.size();i++) arr[i]=queue.get(i);
-            mapper.writerWithDefaultPrettyPrinter().writeValue(new File(FILE), arr);
-        } catch(Exception e){ System.out.println("Error saving queue: "+e.getMessage()); }
+            if (fileLock != null) fileLock.release();
+        } catch(IOException ignored){ }
+        fileLock = null;
     }
 }
@@ -0,0 +1,78 @@
+package dao;
+
+import entity.Consultation;
+import entity.Doctor;
+import entity.Medication;
+import entity.Patient;
+import entity.Treatment;
+import java.io.IOException;
+
+/**
+ * The shared repositories, one per entity file. Each is loaded on first use
+ * (holder idiom), so a screen that never touches treatments never parses them.
+ *
+ * consultationColumns() is a memory-mapped column mirror of consultations()
+ * for reports that scan every record; consultationIndex() answers per-doctor,
+ * per-patient and slot queries without scanning. The queue is not here: QueueMaintenance
+ * owns the live queue and saves it through QueueDAO.
+ */
+public final class Repositories {
+    private Repositories() {}
+
+    private static class Patients {
+        static final PatientDAO DAO = new PatientDAO();
+        static final Repository<Patient> INSTANCE =
+                new Repository<>(Patient::getId, DAO::retrieveFromFile, DAO::encode, DAO::saveToFile, DAO::isUnchanged);
+    }
+
+    private static class Doctors {
+        static final DoctorDAO DAO = new DoctorDAO();
+        static final Repository<Doctor> INSTANCE =
+                new Repository<>(Doctor::getId, DAO::retrieveFromFile, DAO::encode, DAO::saveToFile, DAO::isUnchanged);
+    }
+
+    private static class Consultations {
+        static final ConsultationDAO DAO = new ConsultationDAO();
+        static {
+            try {
+                DAO.mirrorTo(new MappedConsultationStore("consultations"));
+            } catch (IOException e) {
+                System.out.println("Error opening consultation store: " + e.getMessage());
+            }
+        }
+        static final Repository<Consultation> INSTANCE =
+                new Repository<>(Consultation::getId, DAO::load, DAO::encode, DAO::save, DAO::isUnchanged);
+        static final ConsultationIndex INDEX = new ConsultationIndex(INSTANCE);
+    }
+
+    private static class Treatments {
+        static final TreatmentDAO DAO = new TreatmentDAO();
+        static final Repository<Treatment> INSTANCE =
+                new Repository<>(Treatment::getId, DAO::load, DAO::encode, DAO::save, DAO::isUnchanged);
+    }
+
+    private static class Medications {
+        static final MedicationDAO DAO = new MedicationDAO();
+        static final Repository<Medication> INSTANCE =
+                new Repository<>(Medication::getId, DAO::load, DAO::encode, DAO::save, DAO::isUnchanged);
+    }
+
+    public static Repository<Patient> patients() { return Patients.INSTANCE; }
+    public static Repository<Doctor> doctors() { return Doctors.INSTANCE; }
+    public static Repository<Consultation> consultations() { return Consultations.INSTANCE; }
+    public static Repository<Treatment> treatments() { return Treatments.INSTANCE; }
+    public static Repository<Medication> medications() { return Medications.INSTANCE; }
+
+    /** Doctor, patient and booked-slot indexes over consultations(). */
+    public static ConsultationIndex consultationIndex() { return Consultations.INDEX; }
+
+    /**
+     * Column view of consultations(), synced by the DAO after every load and save,
+     * or null if the mapped files could not be opened. Read it through scan(),
+     * which checks it is still in step.
+     */
+    public static MappedConsultationStore consultationColumns() {
+        consultations(); // loads (and so syncs) the mirror
+        return Consultations.DAO.columns();
+    }
+}
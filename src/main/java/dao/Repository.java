@@ -0,0 +1,229 @@
+package dao;
+
+import adt.ADTInterface;
+import adt.CustomADT;
+import adt.ObjectMap;
+import adt.ObjectSet;
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide in-memory copy of one entity file.
+ *
+ * The list is loaded once through the entity's DAO and indexed by id, so lookups
+ * are hash hits instead of a file parse plus a linear scan. Every control class
+ * works on the same live list (see Repositories); save() serializes it on the
+ * calling thread and hands the bytes to the background Persister, which writes
+ * them through the DAO. Listeners (see ChangeListener) follow each change.
+ *
+ * Changes go through add(), update() and remove(), so save() serializes and
+ * writes only those elements. After edits it cannot name one by one (ids
+ * renumbered, list sorted) the caller reports updateAll(); a save() with nothing
+ * reported writes, and diffs, the whole list.
+ */
+public class Repository<T> {
+
+    /**
+     * Told of every change: add(), update() and remove() one element at a time, and
+     * changed() when the contents changed in ways not reported one by one (reload(),
+     * updateAll(), or a save() with nothing reported), so derived data is rebuilt.
+     * Called with the repository locked.
+     */
+    public interface ChangeListener<U> {
+        void changed(Repository<U> repository);
+
+        default void added(U e) { }
+
+        /** before (the element that had the id) was edited in place (after == before) or replaced by after. */
+        default void updated(U before, U after) { }
+
+        default void removed(U e) { }
+    }
+
+    private final Function<? super T, String> idOf;
+    private final Supplier<ADTInterface<T>> loader;
+    private final ChangeSet.Encoder<T> encoder;
+    private final Consumer<ChangeSet> saver;
+    private final BooleanSupplier unchanged;
+    private final CustomADT<T> items;
+    private final CustomADT<ChangeListener<T>> listeners = new CustomADT<>();
+    private long version;
+
+    // Reported since the last save(): elements put (id -> live element) and ids removed
+    private final ObjectMap<String, T> puts = new ObjectMap<>();
+    private final ObjectSet<String> removed = new ObjectSet<>();
+    private boolean everything;  // updateAll() was called
+    private boolean keyed;       // every element has an id of its own, so deltas can name them
+
+    // Saved but not yet taken by the writer; later saves fold into it (see write())
+    private final Object unwrittenLock = new Object();
+    private ChangeSet unwritten;
+
+    Repository(Function<? super T, String> idOf, Supplier<ADTInterface<T>> loader, ChangeSet.Encoder<T> encoder,
+               Consumer<ChangeSet> saver, BooleanSupplier unchanged) {
+        this.idOf = idOf;
+        this.loader = loader;
+        this.encoder = encoder;
+        this.saver = saver;
+        this.unchanged = unchanged;
+        this.items = new CustomADT<>(idOf);
+        fill(loader.get());
+    }
+
+    /**
+     * The shared live list. Mutations are visible to every caller; make them
+     * through add()/update()/remove() (or report updateAll()), then save().
+     */
+    public ADTInterface<T> all() { return items; }
+
+    /** Element with this id (exact match), or null. */
+    public T findById(String id) {
+        return id == null ? null : items.findEntry(id);
+    }
+
+    /** Bumped on every save/reload, so callers can cache derived data cheaply. */
+    public synchronized long version() { return version; }
+
+    /** Append e to the list; the next save() writes it. */
+    public synchronized void add(T e) {
+        String id = e == null ? null : idOf.apply(e);
+        if (id == null || items.findEntry(id) != null) keyed = false;
+        items.add(e);
+        if (id != null) puts.put(id, e);
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).added(e);
+    }
+
+    /**
+     * e was edited in place, or replaces the element with its id (added if there
+     * is none); the next save() writes it.
+     */
+    public synchronized void update(T e) {
+        String id = e == null ? null : idOf.apply(e);
+        if (id == null) { keyed = false; return; }
+        int at = items.indexOf(id);
+        puts.put(id, e);
+        if (at < 0) {
+            items.add(e);
+            for (int i = 0; i < listeners.size(); i++) listeners.get(i).added(e);
+            return;
+        }
+        T before = items.get(at) != e ? items.set(at, e) : e;
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).updated(before, e);
+    }
+
+    /** Remove e (by id) from the list; the next save() deletes it. Returns false if it was not there. */
+    public synchronized boolean remove(T e) {
+        String id = e == null ? null : idOf.apply(e);
+        int at = id == null ? -1 : items.indexOf(id);
+        if (at < 0) return false;
+        T gone = items.remove(at);
+        puts.remove(id);
+        removed.add(id);
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).removed(gone);
+        return true;
+    }
+
+    /** The list was changed in ways not reported one by one (ids renumbered, reordered); the next save() writes all of it. */
+    public synchronized void updateAll() {
+        items.reindex(); // ids may have been renumbered in place
+        everything = true;
+        changed();
+    }
+
+    /** Write the reported changes back to the file, in the background (see Persister). */
+    public synchronized void save() {
+        boolean unreported = !everything && puts.isEmpty() && removed.isEmpty();
+        boolean whole = everything || !keyed || unreported || fullUnwritten();
+        // Serialized here: the writer must not read entities callers keep changing while it runs
+        ChangeSet changes;
+        try {
+            if (whole) {
+                if (!everything) items.reindex(); // unreported edits may have changed ids
+                changes = ChangeSet.of(items, idOf, encoder);
+                keyed = changes.keyed();
+            } else {
+                changes = ChangeSet.delta();
+                for (int i = 0; i < removed.size(); i++) changes.remove(removed.get(i));
+                for (int i = 0; i < puts.size(); i++) changes.put(puts.keyAt(i), encoder.encode(puts.valueAt(i)));
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving data: " + e.getMessage());
+            return; // the changes stay reported for the next save()
+        }
+        puts.clear();
+        removed.clear();
+        everything = false;
+        synchronized (unwrittenLock) {
+            // A full list covers every earlier change; a delta is folded into the one still waiting
+            if (unwritten == null || changes.isFull()) unwritten = changes;
+            else unwritten.addAll(changes);
+        }
+        Persister.submit(this, this::write);
+        version++;
+        if (unreported) changed();
+    }
+
+    // A delta cannot be folded into a full list, so the save after one that is still waiting is full too
+    private boolean fullUnwritten() {
+        synchronized (unwrittenLock) {
+            return unwritten != null && unwritten.isFull();
+        }
+    }
+
+    // Runs on the persister thread; takes whatever was saved since the last write
+    private void write() {
+        ChangeSet changes;
+        synchronized (unwrittenLock) {
+            changes = unwritten;
+            unwritten = null;
+        }
+        if (changes != null) saver.accept(changes);
+    }
+
+    /** True once the last save() has been written to the file. */
+    public boolean isSaved() {
+        return !Persister.isPending(this);
+    }
+
+    /**
+     * Replace the contents with what is currently on disk (picks up external edits).
+     * Costs only a stat when the file has not changed since it was last loaded or saved.
+     */
+    public synchronized void reload() {
+        Persister.awaitWrites(); // our own pending write is newer than the file, and must not race the read
+        if (unchanged.getAsBoolean()) return;
+        fill(loader.get());
+        version++;
+        changed();
+    }
+
+    public synchronized void addListener(ChangeListener<T> listener) {
+        if (listener != null) listeners.add(listener);
+    }
+
+    public synchronized void removeListener(ChangeListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    private void fill(ADTInterface<T> fresh) {
+        items.clear();
+        puts.clear();
+        removed.clear();
+        everything = false;
+        ObjectSet<String> seen = new ObjectSet<>(fresh.size());
+        keyed = true;
+        for (int i = 0; i < fresh.size(); i++) {
+            T e = fresh.get(i);
+            String id = e == null ? null : idOf.apply(e);
+            if (id == null || !seen.add(id)) keyed = false;
+            items.add(e);
+        }
+    }
+
+    private void changed() {
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).changed(this);
+    }
+}
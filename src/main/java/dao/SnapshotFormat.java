@@ -0,0 +1,86 @@
+package dao;
+
+import adt.ADTInterface;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+
+/**
+ * On-disk format of an entity snapshot file.
+ *
+ * JSON is the default. A file can be switched to the binary format with
+ * -Dclinic.format.<name>=binary (e.g. clinic.format.consultations=binary), or
+ * every file at once with -Dclinic.format=binary. The binary snapshot lives next
+ * to where the JSON would be ("consultations.bin") and the file in the other
+ * format is converted on the next load (see JournaledStore).
+ */
+enum SnapshotFormat {
+    JSON(".json") {
+        @Override
+        <T> boolean read(ObjectMapper mapper, File file, Class<T> type, ADTInterface<T> into,
+                         BinarySnapshot.RecordCodec<T> codec) throws IOException {
+            return JsonArrayReader.read(mapper, file, type, into);
+        }
+
+        @Override
+        <T> void write(ObjectMapper mapper, File file, Class<T> type, ADTInterface<T> list,
+                       BinarySnapshot.RecordCodec<T> codec) throws IOException {
+            @SuppressWarnings("unchecked")
+            T[] arr = (T[]) Array.newInstance(type, list.size());
+            for (int i = 0; i < list.size(); i++) arr[i] = list.get(i);
+            AtomicFiles.replace(file, out -> mapper.writerWithDefaultPrettyPrinter().writeValue(out, arr));
+        }
+    },
+
+    BINARY(".bin") {
+        @Override
+        <T> boolean read(ObjectMapper mapper, File file, Class<T> type, ADTInterface<T> into,
+                         BinarySnapshot.RecordCodec<T> codec) throws IOException {
+            BinarySnapshot.read(mapper, file, type, into, codec);
+            return false;
+        }
+
+        @Override
+        <T> void write(ObjectMapper mapper, File file, Class<T> type, ADTInterface<T> list,
+                       BinarySnapshot.RecordCodec<T> codec) throws IOException {
+            BinarySnapshot.write(mapper, file, list, codec);
+        }
+    };
+
+    private final String extension;
+
+    SnapshotFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Append the file's elements to into. Returns true if the file is in an outdated
+     * layout and should be rewritten. codec (nullable) is only used by BINARY.
+     */
+    abstract <T> boolean read(ObjectMapper mapper, File file, Class<T> type, ADTInterface<T> into,
+            BinarySnapshot.RecordCodec<T> codec) throws IOException;
+
+    abstract <T> void write(ObjectMapper mapper, File file, Class<T> type, ADTInterface<T> list,
+            BinarySnapshot.RecordCodec<T> codec) throws IOException;
+
+    /** Where a file configured as jsonPath ("consultations.json") lives in this format. */
+    String path(String jsonPath) {
+        return baseName(jsonPath) + extension;
+    }
+
+    SnapshotFormat other() {
+        return this == JSON ? BINARY : JSON;
+    }
+
+    /** Format configured for the file, from clinic.format.<name> or clinic.format (default JSON). */
+    static SnapshotFormat forFile(String jsonPath) {
+        String name = new File(baseName(jsonPath)).getName();
+        String value = System.getProperty("clinic.format." + name, System.getProperty("clinic.format", "json"));
+        return "binary".equalsIgnoreCase(value.trim()) ? BINARY : JSON;
+    }
+
+    private static String baseName(String jsonPath) {
+        return jsonPath.endsWith(".json") ? jsonPath.substring(0, jsonPath.length() - ".json".length()) : jsonPath;
+    }
+}
@@ -10,33 +10,94 @@ import java.io.*;
 public class TreatmentDAO {
     private static final String FILE = "treatments.json";
     private final ObjectMapper mapper;
+    private final JournaledStore<Treatment> store;
+    private final FileCache cache;
+
+    // Field layout of treatments.bin (see BinarySnapshot.RecordCodec)
+    private static final BinarySnapshot.RecordCodec<Treatment> CODEC = new BinarySnapshot.RecordCodec<>() {
+        @Override
+        public void write(BinarySnapshot.Out out, Treatment t) throws IOException {
+            out.string(t.getId());
+            out.string(t.getConsultationId());
+            out.enumName(t.getType());
+            out.string(t.getName());
+            out.strings(t.getMedicationIds());
+            out.string(t.getDiagnosis());
+            out.enumName(t.getStatus());
+            out.date(t.getOrderedDate());
+            out.string(t.getInstructions());
+            out.string(t.getNotes());
+            out.number(t.getCost());
+        }
+
+        @Override
+        public Treatment read(BinarySnapshot.In in) throws IOException {
+            Treatment t = new Treatment();
+            t.setId(in.string());
+            t.setConsultationId(in.string());
+            t.setType(in.enumName(Treatment.Type.class));
+            t.setName(in.string());
+            t.setMedicationIds(in.strings());
+            t.setDiagnosis(in.string());
+            t.setStatus(in.enumName(Treatment.TreatmentStatus.class));
+            t.setOrderedDate(in.date());
+            t.setInstructions(in.string());
+            t.setNotes(in.string());
+            t.setCost(in.doubleOrNull());
+            return t;
+        }
+    };
 
     public TreatmentDAO() {
         mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
+        store = new JournaledStore<>(FILE, Treatment.class, Treatment::getId, mapper, CODEC);
+        cache = new FileCache(store.snapshotPath(), store.journalPath());
     }
 
     public ADTInterface<Treatment> load() {
+        ADTInterface<Treatment> unchanged = cache.isCurrent() ? store.copy() : null;
+        if (unchanged != null) return unchanged;
+        cache.loading();
         ADTInterface<Treatment> list = new CustomADT<>();
         try {
-            File f = new File(FILE);
-            if (f.exists() && f.length() > 0) {
-                Treatment[] arr = mapper.readValue(f, Treatment[].class);
-                for (Treatment t : arr) list.add(t);
-            }
+            store.read(list);
+            if (store.replay(list)) cache.saved(); else cache.loaded();
         } catch (IOException e) {
             System.out.println("Error loading treatments: " + e.getMessage());
         }
         return list;
     }
 
+    /** Write the current treatments as a plain JSON array (e.g. to inspect a binary snapshot). */
+    public void exportJson(String path) throws IOException {
+        store.export(load(), SnapshotFormat.JSON, new File(path));
+    }
+
+    /** True when the file is unchanged since this DAO last loaded or saved it (a stat per file). */
+    public boolean isUnchanged() {
+        return cache.isCurrent();
+    }
+
     public void save(ADTInterface<Treatment> list) {
         try {
-            Treatment[] arr = new Treatment[list.size()];
-            for (int i=0;i<list.size();i++) arr[i]=list.get(i);
-            mapper.writerWithDefaultPrettyPrinter().writeValue(new File(FILE), arr);
+            save(ChangeSet.of(list, Treatment::getId, store::encode));
         } catch (IOException e) {
             System.out.println("Error saving treatments: " + e.getMessage());
         }
     }
+
+    /** Write a list serialized by the caller (Repository.save()). */
+    void save(ChangeSet changes) {
+        try {
+            if (store.save(changes)) cache.saved(); else cache.invalidate();
+        } catch (IOException e) {
+            cache.invalidate();
+            System.out.println("Error saving treatments: " + e.getMessage());
+        }
+    }
+
+    byte[] encode(Treatment t) throws IOException {
+        return store.encode(t);
+    }
 }
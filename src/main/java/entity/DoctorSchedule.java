@@ -15,6 +15,17 @@ public class DoctorSchedule {
     return availability[day][hour] == SlotStatus.AVAILABLE;
     }
 
+    /**
+     * The day's AVAILABLE hours as a bitmap (bit h set when hour h is available),
+     * so a day can be intersected with bookings in one operation.
+     */
+    public int dayMask(int day) {
+        int mask = 0;
+        SlotStatus[] hours = availability[day];
+        for (int h = 0; h < 24; h++) if (hours[h] == SlotStatus.AVAILABLE) mask |= 1 << h;
+        return mask;
+    }
+
     public void setStatus(int day, int hour, SlotStatus status) {
         availability[day][hour] = status;
     }
@@ -8,6 +8,7 @@ public class PatientQueueEntry {
     private String reason;
     private QueueStatus status = QueueStatus.WAITING;
     private LocalDateTime enqueuedAt = LocalDateTime.now();
+    private LocalDateTime calledAt; // last call, null while never called
     private int priority = 0; // 0 normal, higher = higher priority
     private int callAttempts = 0;
     // Link to an existing booked consultation (optional)
@@ -29,13 +30,28 @@ public class PatientQueueEntry {
     public String getReason() { return reason; }
     public QueueStatus getStatus() { return status; }
     public LocalDateTime getEnqueuedAt() { return enqueuedAt; }
+    public LocalDateTime getCalledAt() { return calledAt; }
     public int getPriority() { return priority; }
     public int getCallAttempts() { return callAttempts; }
     public String getLinkedConsultationId() { return linkedConsultationId; }
 
     public void setStatus(QueueStatus status) { this.status = status; }
+    public void setEnqueuedAt(LocalDateTime enqueuedAt) { this.enqueuedAt = enqueuedAt; }
+    public void setCalledAt(LocalDateTime calledAt) { this.calledAt = calledAt; }
     public void setPriority(int priority) { this.priority = priority; }
     public void incrementCallAttempts(){ this.callAttempts++; }
+    public void setCallAttempts(int callAttempts) { this.callAttempts = callAttempts; }
     public void setPreferredDoctorId(String preferredDoctorId) { this.preferredDoctorId = preferredDoctorId; }
     public void setLinkedConsultationId(String linkedConsultationId) { this.linkedConsultationId = linkedConsultationId; }
+
+    /** A separate entry with the same fields. */
+    public PatientQueueEntry copy() {
+        PatientQueueEntry c = new PatientQueueEntry(id, patientId, preferredDoctorId, reason, priority);
+        c.status = status;
+        c.enqueuedAt = enqueuedAt;
+        c.calledAt = calledAt;
+        c.callAttempts = callAttempts;
+        c.linkedConsultationId = linkedConsultationId;
+        return c;
+    }
 }
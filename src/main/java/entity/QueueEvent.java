@@ -0,0 +1,47 @@
+package entity;
+import java.time.LocalDateTime;
+
+/** One change to the patient queue, as appended to the queue event log. */
+public class QueueEvent {
+    public enum Type { ENQUEUED, CALLED, BUMPED, COMPLETED, REMOVED, CLEARED }
+
+    private long seq;                  // position in the log, assigned when appended
+    private Type type;
+    private LocalDateTime at = LocalDateTime.now();
+    private String queueId;            // null for CLEARED
+    private String patientId;
+    private String doctorId;           // ENQUEUED: preferred (null = any); CALLED/COMPLETED: the doctor seeing the patient
+    private String reason;
+    private int priority;              // ENQUEUED: initial; BUMPED: new priority
+    private String linkedConsultationId;
+    private String consultationId;     // COMPLETED: the consultation created
+
+    public QueueEvent() {}
+
+    public QueueEvent(Type type, String queueId) {
+        this.type = type;
+        this.queueId = queueId;
+    }
+
+    public long getSeq() { return seq; }
+    public Type getType() { return type; }
+    public LocalDateTime getAt() { return at; }
+    public String getQueueId() { return queueId; }
+    public String getPatientId() { return patientId; }
+    public String getDoctorId() { return doctorId; }
+    public String getReason() { return reason; }
+    public int getPriority() { return priority; }
+    public String getLinkedConsultationId() { return linkedConsultationId; }
+    public String getConsultationId() { return consultationId; }
+
+    public void setSeq(long seq) { this.seq = seq; }
+    public void setType(Type type) { this.type = type; }
+    public void setAt(LocalDateTime at) { this.at = at; }
+    public void setQueueId(String queueId) { this.queueId = queueId; }
+    public void setPatientId(String patientId) { this.patientId = patientId; }
+    public void setDoctorId(String doctorId) { this.doctorId = doctorId; }
+    public void setReason(String reason) { this.reason = reason; }
+    public void setPriority(int priority) { this.priority = priority; }
+    public void setLinkedConsultationId(String linkedConsultationId) { this.linkedConsultationId = linkedConsultationId; }
+    public void setConsultationId(String consultationId) { this.consultationId = consultationId; }
+}
@@ -0,0 +1,43 @@
+package utility;
+
+import dao.ConsultationDAO;
+import dao.DoctorDAO;
+import dao.MedicationDAO;
+import dao.PatientDAO;
+import dao.QueueDAO;
+import dao.TreatmentDAO;
+import java.io.IOException;
+
+/**
+ * Command-line export of an entity file as a plain JSON array, whatever format it
+ * is stored in (useful when a file has been switched to the binary snapshot format).
+ *
+ *   java -Dclinic.format.consultations=binary utility.SnapshotExport consultations out.json
+ */
+public class SnapshotExport {
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: SnapshotExport <patients|doctors|consultations|treatments|medications|queue> <output.json>");
+            System.exit(2);
+        }
+        try {
+            export(args[0], args[1]);
+            System.out.println("Exported " + args[0] + " to " + args[1]);
+        } catch (IllegalArgumentException | IOException e) {
+            System.out.println("Error exporting " + args[0] + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    public static void export(String entity, String path) throws IOException {
+        switch (entity.toLowerCase()) {
+            case "patients" -> new PatientDAO().exportJson(path);
+            case "doctors" -> new DoctorDAO().exportJson(path);
+            case "consultations" -> new ConsultationDAO().exportJson(path);
+            case "treatments" -> new TreatmentDAO().exportJson(path);
+            case "medications" -> new MedicationDAO().exportJson(path);
+            case "queue" -> new QueueDAO().exportJson(path);
+            default -> throw new IllegalArgumentException("Unknown entity file: " + entity);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package adt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the queue against a plain list kept in serving order: highest priority
+ * first, and first come first served among equal priorities. update() keeps an
+ * element's place among its ties, requeue() sends it behind them.
+ */
+class IndexedPriorityQueueTest {
+    private static final Comparator<Item> HIGHEST_FIRST = Comparator.comparingInt((Item e) -> e.priority).reversed();
+
+    private static final class Item {
+        final String id;
+        int priority;
+        long seq; // the model's tie-break, mirroring the queue's
+
+        Item(String id, int priority) {
+            this.id = id;
+            this.priority = priority;
+        }
+
+        @Override
+        public String toString() { return id + "/" + priority; }
+    }
+
+    // Serving order of the model: priority, then enqueue sequence
+    private static final Comparator<Item> MODEL = HIGHEST_FIRST.thenComparingLong(e -> e.seq);
+
+    @Test
+    void servesTiesInArrivalOrder() {
+        IndexedPriorityQueue<Item> q = new IndexedPriorityQueue<>(HIGHEST_FIRST, e -> e.id);
+        String[] ids = {"P1", "P2", "P3", "P4", "P5", "P6"};
+        int[] priorities = {1, 3, 1, 3, 2, 1};
+        for (int i = 0; i < ids.length; i++) q.offer(new Item(ids[i], priorities[i]));
+        assertEquals(List.of("P2", "P4", "P5", "P1", "P3", "P6"), drain(q));
+    }
+
+    @Test
+    void raisedElementKeepsItsPlaceAmongNewTies() {
+        IndexedPriorityQueue<Item> q = new IndexedPriorityQueue<>(HIGHEST_FIRST, e -> e.id);
+        Item first = new Item("P1", 1);
+        q.offer(first);
+        q.offer(new Item("P2", 2));
+        q.offer(new Item("P3", 2));
+        first.priority = 2;
+        assertTrue(q.update("P1"));
+        // P1 came first, so it is ahead of the patients it now ties with
+        assertEquals(List.of("P1", "P2", "P3"), drain(q));
+    }
+
+    @Test
+    void requeuedElementGoesBehindItsTies() {
+        IndexedPriorityQueue<Item> q = new IndexedPriorityQueue<>(HIGHEST_FIRST, e -> e.id);
+        Item first = new Item("P1", 1);
+        q.offer(first);
+        q.offer(new Item("P2", 2));
+        q.offer(new Item("P3", 2));
+        first.priority = 2;
+        assertTrue(q.requeue("P1"));
+        assertEquals(List.of("P2", "P3", "P1"), drain(q));
+    }
+
+    @Test
+    void findsAndRemovesById() {
+        IndexedPriorityQueue<Item> q = new IndexedPriorityQueue<>(2, HIGHEST_FIRST, e -> e.id);
+        Item p2 = new Item("P2", 5);
+        q.offer(new Item("P1", 1));
+        q.offer(p2);
+        q.offer(new Item("P3", 3));
+        assertSame(p2, q.get("P2"));
+        assertSame(p2, q.remove("P2"));
+        assertFalse(q.contains("P2"));
+        assertNull(q.remove("P2"));
+        assertFalse(q.update("P2"));
+        assertFalse(q.requeue(null));
+        assertThrows(IllegalArgumentException.class, () -> q.offer(new Item("P1", 9)));
+        assertThrows(IllegalArgumentException.class, () -> q.offer(new Item(null, 9)));
+        // A removed id can be queued again
+        q.offer(new Item("P2", 0));
+        assertEquals(List.of("P3", "P1", "P2"), drain(q));
+        assertNull(q.poll());
+        assertNull(q.peek());
+    }
+
+    @Test
+    void matchesAReferenceOrderUnderRandomOperations() {
+        for (int arity : new int[]{2, 3, 4, 8}) {
+            Random rnd = new Random(arity * 1000L + 17);
+            IndexedPriorityQueue<Item> q = new IndexedPriorityQueue<>(arity, HIGHEST_FIRST, e -> e.id);
+            List<Item> model = new ArrayList<>();
+            long seq = 0;
+            int nextId = 0;
+            for (int step = 0; step < 20_000; step++) {
+                int op = rnd.nextInt(10);
+                if (op < 4 || model.isEmpty()) {
+                    Item e = new Item("P" + nextId++, rnd.nextInt(5));
+                    e.seq = seq++;
+                    q.offer(e);
+                    model.add(e);
+                } else if (op < 6) {
+                    model.sort(MODEL);
+                    assertSame(model.remove(0), q.poll(), "poll at step " + step);
+                } else if (op < 7) {
+                    Item e = model.remove(rnd.nextInt(model.size()));
+                    assertSame(e, q.remove(e.id), "remove at step " + step);
+                } else {
+                    // Change a priority in place, then restore heap order with or without a fresh seq
+                    Item e = model.get(rnd.nextInt(model.size()));
+                    e.priority = rnd.nextInt(5);
+                    if (op < 9) {
+                        assertTrue(q.update(e.id));
+                    } else {
+                        e.seq = seq++;
+                        assertTrue(q.requeue(e.id));
+                    }
+                }
+                assertEquals(model.size(), q.size());
+                if (step % 500 == 0) {
+                    model.sort(MODEL);
+                    assertEquals(model, toList(q.toSortedADT()), "snapshot at step " + step);
+                    assertSame(model.get(0), q.peek());
+                }
+            }
+            model.sort(MODEL);
+            assertEquals(model, toList(q.toSortedADT()));
+            List<Item> served = new ArrayList<>();
+            for (CustomADT.ADTIterator<Item> it = q.orderedIterator(); it.hasNext(); ) served.add(it.next());
+            assertEquals(model, served);
+            List<Item> polled = new ArrayList<>();
+            for (Item e; (e = q.poll()) != null; ) polled.add(e);
+            assertEquals(model, polled);
+            assertTrue(q.isEmpty());
+        }
+    }
+
+    private static List<String> drain(IndexedPriorityQueue<Item> q) {
+        List<String> ids = new ArrayList<>();
+        for (Item e; (e = q.poll()) != null; ) ids.add(e.id);
+        return ids;
+    }
+
+    private static List<Item> toList(CustomADT<Item> adt) {
+        List<Item> out = new ArrayList<>(adt.size());
+        for (int i = 0; i < adt.size(); i++) out.add(adt.get(i));
+        return out;
+    }
+}
@@ -0,0 +1,120 @@
+package adt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Sorts random and patterned inputs with CustomADT.sort (TimSort) and checks the
+ * result against List.sort, which is stable: equal keys must keep their input
+ * order, so every element is tagged with its original position.
+ */
+class TimSortTest {
+    private static final int[] SIZES = {0, 1, 2, 3, 31, 32, 33, 64, 65, 100, 257, 1000, 4096, 10_000};
+    private static final Comparator<int[]> BY_KEY = Comparator.comparingInt(e -> e[0]);
+
+    private interface Shape {
+        int key(Random rnd, int i, int n);
+    }
+
+    private static final Shape[] SHAPES = {
+            (rnd, i, n) -> rnd.nextInt(),              // distinct, random
+            (rnd, i, n) -> rnd.nextInt(4),             // few distinct keys: stability matters
+            (rnd, i, n) -> i,                          // already sorted
+            (rnd, i, n) -> n - i,                      // reversed (descending run)
+            (rnd, i, n) -> 7,                          // all equal
+            (rnd, i, n) -> i % 50,                     // ascending runs (sawtooth)
+            (rnd, i, n) -> (i / 40) % 2 == 0 ? i : -i, // alternating ascending/descending runs
+            (rnd, i, n) -> rnd.nextInt(10) == 0 ? rnd.nextInt(n + 1) : i, // nearly sorted
+    };
+
+    @Test
+    void matchesListSortOnRandomAndPatternedInput() {
+        Random rnd = new Random(20240611L);
+        for (int n : SIZES) {
+            for (int s = 0; s < SHAPES.length; s++) {
+                for (int round = 0; round < 3; round++) {
+                    int[][] input = new int[n][];
+                    for (int i = 0; i < n; i++) input[i] = new int[]{SHAPES[s].key(rnd, i, n), i};
+                    assertSortsLikeList(input, BY_KEY, "n=" + n + " shape=" + s);
+                }
+            }
+        }
+    }
+
+    @Test
+    void descendingComparatorStaysStable() {
+        Random rnd = new Random(7L);
+        int[][] input = new int[3000][];
+        for (int i = 0; i < input.length; i++) input[i] = new int[]{rnd.nextInt(20), i};
+        assertSortsLikeList(input, BY_KEY.reversed(), "reversed");
+    }
+
+    @Test
+    void reusesItsMergeBufferAcrossSorts() {
+        // CustomADT keeps one TimSort per list; a large sort followed by smaller ones must not see stale state
+        Random rnd = new Random(99L);
+        CustomADT<int[]> list = new CustomADT<>();
+        for (int n : new int[]{5000, 40, 1200, 3, 5000}) {
+            list.clear();
+            List<int[]> expected = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int[] e = {rnd.nextInt(100), i};
+                list.add(e);
+                expected.add(e);
+            }
+            list.sort(BY_KEY);
+            expected.sort(BY_KEY);
+            assertSame(expected, list, "n=" + n);
+        }
+    }
+
+    @Test
+    void sortsOnlyTheGivenRange() {
+        Random rnd = new Random(3L);
+        Integer[] a = new Integer[500];
+        for (int i = 0; i < a.length; i++) a[i] = rnd.nextInt(1000);
+        Integer[] expected = a.clone();
+        Arrays.sort(expected, 100, 400);
+        new TimSort<Integer>().sort(a, 100, 400, Integer::compare);
+        assertEquals(Arrays.asList(expected), Arrays.asList(a));
+    }
+
+    @Test
+    void rejectsAComparatorThatBreaksItsContract() {
+        // Random answers eventually trip the merge's consistency checks
+        Random rnd = new Random(1L);
+        CustomADT<Integer> list = new CustomADT<>();
+        for (int i = 0; i < 10_000; i++) list.add(i);
+        assertThrows(IllegalArgumentException.class, () -> {
+            for (int round = 0; round < 50; round++) list.sort((Comparator<Integer>) (x, y) -> rnd.nextInt(3) - 1);
+        });
+    }
+
+    private static void assertSortsLikeList(int[][] input, Comparator<int[]> order, String label) {
+        List<int[]> expected = new ArrayList<>(Arrays.asList(input));
+        expected.sort(order);
+        CustomADT<int[]> actual = new CustomADT<>();
+        for (int[] e : input) actual.add(e);
+        actual.sort(order);
+        assertSame(expected, actual, label);
+    }
+
+    private static void assertSame(List<int[]> expected, CustomADT<int[]> actual, String label) {
+        assertEquals(expected.size(), actual.size(), label + ": size");
+        for (int i = 0; i < expected.size(); i++) {
+            int[] e = expected.get(i), a = actual.get(i);
+            if (e[0] != a[0] || e[1] != a[1]) {
+                fail(label + ": at " + i + " expected key " + e[0] + " (input #" + e[1]
+                        + ") but was key " + a[0] + " (input #" + a[1] + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import adt.ADTInterface;
+import adt.CustomADT;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import entity.Medication;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Saves through one JournaledStore and loads through a fresh one, which reads the
+ * snapshot and folds the journal on top: the result must be the list last saved,
+ * whether the saves were full lists or deltas, and across torn tails, compaction
+ * and a second store writing the same files.
+ */
+class JournaledStoreTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fullSavesRoundTripThroughTheJournal() throws IOException {
+        JournaledStore<Medication> store = open();
+        ADTInterface<Medication> list = load(store);
+        for (int i = 1; i <= 40; i++) list.add(medication(i, "Drug " + i));
+        assertTrue(store.save(list));
+        assertEquals(json(list), json(load(open())));
+
+        // Change, remove, add and reorder, then check each state as a new console sees it
+        list.get(3).setName("Renamed");
+        list.remove(10);
+        list.add(medication(41, "Drug 41"));
+        assertTrue(store.save(list));
+        assertEquals(json(list), json(load(open())));
+
+        Medication moved = list.remove(0);
+        list.add(moved);
+        assertTrue(store.save(list));
+        assertEquals(json(list), json(load(open())));
+        assertTrue(journal().exists(), "small changes go to the journal, not a new snapshot");
+    }
+
+    @Test
+    void deltasRoundTripThroughTheJournal() throws IOException {
+        JournaledStore<Medication> store = open();
+        ADTInterface<Medication> list = load(store);
+        for (int i = 1; i <= 10; i++) list.add(medication(i, "Drug " + i));
+        assertTrue(store.save(list));
+
+        ChangeSet delta = ChangeSet.delta();
+        Medication changed = medication(2, "Changed");
+        delta.put(changed.getId(), store.encode(changed));
+        delta.remove(id(5));
+        Medication added = medication(11, "Drug 11");
+        delta.put(added.getId(), store.encode(added));
+        assertTrue(store.save(delta));
+
+        list.set(1, changed);
+        list.remove(4);
+        list.add(added);
+        assertEquals(json(list), json(load(open())));
+        assertEquals(json(list), json(store.copy()));
+    }
+
+    @Test
+    void randomSavesMatchTheLastSavedList() throws IOException {
+        Random rnd = new Random(42L);
+        JournaledStore<Medication> store = open();
+        ADTInterface<Medication> list = load(store);
+        int nextId = 1;
+        // Enough rounds to pass the compaction threshold several times
+        for (int round = 0; round < 300; round++) {
+            int op = rnd.nextInt(4);
+            if (op == 0 || list.size() < 3) {
+                list.add(medication(nextId++, "Drug " + round));
+            } else if (op == 1) {
+                list.remove(rnd.nextInt(list.size()));
+            } else if (op == 2) {
+                list.get(rnd.nextInt(list.size())).setName("Round " + round);
+            } else {
+                list.add(list.remove(rnd.nextInt(list.size())));
+            }
+            assertTrue(store.save(list));
+            if (round % 25 == 0) assertEquals(json(list), json(load(open())), "round " + round);
+        }
+        assertEquals(json(list), json(load(open())));
+    }
+
+    @Test
+    void tornTailIsDroppedAndRepaired() throws IOException {
+        JournaledStore<Medication> store = open();
+        ADTInterface<Medication> list = load(store);
+        for (int i = 1; i <= 5; i++) list.add(medication(i, "Drug " + i));
+        assertTrue(store.save(list));
+        list.get(0).setName("Saved");
+        assertTrue(store.save(list));
+
+        // A crash in the middle of the next append
+        Files.write(journal().toPath(), "{\"op\":\"put\",\"id\":\"M0002\",\"val".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        JournaledStore<Medication> reader = open();
+        ADTInterface<Medication> loaded = new CustomADT<>();
+        reader.read(loaded);
+        assertTrue(reader.replay(loaded), "the torn journal is rewritten into the snapshot");
+        assertEquals(json(list), json(loaded));
+        assertFalse(journal().exists());
+        assertEquals(json(list), json(load(open())));
+    }
+
+    @Test
+    void saveMergesAnotherStoresChanges() throws IOException {
+        JournaledStore<Medication> first = open();
+        ADTInterface<Medication> mine = load(first);
+        for (int i = 1; i <= 6; i++) mine.add(medication(i, "Drug " + i));
+        assertTrue(first.save(mine));
+
+        // Another console loads the same files and changes one medication
+        JournaledStore<Medication> second = open();
+        ADTInterface<Medication> theirs = load(second);
+        theirs.get(1).setName("Theirs");
+        assertTrue(second.save(theirs));
+
+        // This store has not seen that change: its save keeps it and reports the files moved on
+        mine.get(4).setName("Mine");
+        assertFalse(first.save(mine));
+        ADTInterface<Medication> merged = load(open());
+        assertEquals("Theirs", merged.get(1).getName());
+        assertEquals("Mine", merged.get(4).getName());
+        assertEquals(json(merged), json(first.copy()));
+
+        // Now up to date, the next save is an ordinary one
+        mine = first.copy();
+        mine.get(0).setName("Again");
+        assertTrue(first.save(mine));
+        assertEquals(json(mine), json(load(open())));
+    }
+
+    // ===== Helpers =====
+
+    private JournaledStore<Medication> open() {
+        return new JournaledStore<>(dir.resolve("medications.json").toString(), Medication.class, Medication::getId, mapper);
+    }
+
+    private File journal() {
+        return new File(open().journalPath());
+    }
+
+    private static ADTInterface<Medication> load(JournaledStore<Medication> store) throws IOException {
+        ADTInterface<Medication> list = new CustomADT<>();
+        store.read(list);
+        store.replay(list);
+        return list;
+    }
+
+    private static String id(int n) {
+        return String.format("M%04d", n);
+    }
+
+    private static Medication medication(int n, String name) {
+        Medication m = new Medication(id(n), name);
+        m.setPrice(1.5 * n);
+        return m;
+    }
+
+    private List<String> json(ADTInterface<Medication> list) throws IOException {
+        List<String> out = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) out.add(mapper.writeValueAsString(list.get(i)));
+        return out;
+    }
+}